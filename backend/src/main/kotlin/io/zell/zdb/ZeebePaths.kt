@@ -16,7 +16,11 @@
 package io.zell.zdb
 
 import java.io.File
+import java.nio.file.Files
 import java.nio.file.Path
+import kotlin.io.path.isDirectory
+import kotlin.io.path.listDirectoryEntries
+import kotlin.io.path.name
 
 class ZeebePaths {
 
@@ -35,5 +39,20 @@ class ZeebePaths {
                 .resolve("partitions")
                 .resolve(partition)
         }
+
+        /**
+         * Returns the log paths of all partitions of the data directory, ordered by partition id, or
+         * an empty list if the path is no data directory of a broker.
+         */
+        fun getPartitionLogPaths(dataPath : Path) : List<Path> {
+            val partitionsPath = dataPath.resolve("raft-partition").resolve("partitions")
+            if (!Files.isDirectory(partitionsPath)) {
+                return emptyList()
+            }
+
+            return partitionsPath.listDirectoryEntries()
+                .filter { it.isDirectory() && it.name.toIntOrNull() != null }
+                .sortedBy { it.name.toInt() }
+        }
     }
 }
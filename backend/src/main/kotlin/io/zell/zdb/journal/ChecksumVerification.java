@@ -0,0 +1,46 @@
+/*
+ * Copyright © 2021 Christopher Kujawa (zelldon91@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.zell.zdb.journal;
+
+/** Defines which records are verified against their checksum, when they are read. */
+public enum ChecksumVerification {
+  /** Every record is verified. */
+  FULL,
+  /**
+   * The first record of each segment and every {@link #SAMPLE_INTERVAL}-th record afterwards is
+   * verified.
+   */
+  SAMPLED,
+  /** No record is verified. */
+  OFF;
+
+  public static final int SAMPLE_INTERVAL = 64;
+
+  /**
+   * Returns true if the record with the given offset, relative to the first record of its segment,
+   * needs to be verified.
+   *
+   * @param recordOffset the number of records before this record in the same segment
+   * @return true if the checksum of the record has to be verified
+   */
+  public boolean shouldVerify(final long recordOffset) {
+    return switch (this) {
+      case FULL -> true;
+      case SAMPLED -> recordOffset % SAMPLE_INTERVAL == 0;
+      case OFF -> false;
+    };
+  }
+}
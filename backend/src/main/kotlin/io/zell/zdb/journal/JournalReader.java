@@ -18,6 +18,7 @@ package io.zell.zdb.journal;
 
 
 import java.util.Iterator;
+import java.util.function.ToLongFunction;
 
 public interface JournalReader extends Iterator<ReadOnlyJournalRecord>, AutoCloseable {
 
@@ -62,13 +63,15 @@ public interface JournalReader extends Iterator<ReadOnlyJournalRecord>, AutoClos
    * Seek to the last index of the journal. The index returned is that of the record which would be
    * returned by calling {@link #next()}.
    *
-   * <p>Equivalent to calling seek(journal.getLastIndex()).
+   * <p>The segment descriptors know where the last record of a segment starts, such that only the
+   * records written afterwards have to be read. Segments without this information are read
+   * completely.
    *
    * <p>Callers are expected to call {@link #hasNext()} after a seek, regardless of the result
    * returned.
    *
-   * <p>If the journal is empty, then the index returned is the {@link ReadOnlyJournal#getLastIndex()},
-   * which may be lower than {@link ReadOnlyJournal#getFirstIndex()}.
+   * <p>If the journal is empty, then the index returned is the {@link
+   * ReadOnlyJournal#getFirstIndex()}.
    *
    * @return the last index of the journal
    */
@@ -106,6 +109,26 @@ public interface JournalReader extends Iterator<ReadOnlyJournalRecord>, AutoClos
    */
   long seekToAsqn(long asqn, long indexUpperBound);
 
+  /**
+   * Seek to the record with the highest key less than or equal to the given {@code key}. The key
+   * of a record is extracted via the given {@code keyExtractor}, records for which it returns a
+   * negative value have no key and are skipped. The keys are expected to be monotonically
+   * increasing over the journal, like the ASQN or the timestamp of the contained application
+   * entries.
+   *
+   * <p>Other than {@link #seekToAsqn(long)} this doesn't need an index. The segments are bisected
+   * by the key of their first record, and afterwards the records of the found segment, such that
+   * only a logarithmic number of records has to be read.
+   *
+   * <p>If there are no records with a lower or equal key, then the reader will be positioned at the
+   * beginning of the journal, as if {@link JournalReader#seekToFirst()} was called.
+   *
+   * @param key the key to seek to
+   * @param keyExtractor extracts the key of a record, or a negative value if it has none
+   * @return the index of the record that will be returned by {@link #next()}
+   */
+  long seekToKey(long key, ToLongFunction<ReadOnlyJournalRecord> keyExtractor);
+
   @Override
   void close();
 }
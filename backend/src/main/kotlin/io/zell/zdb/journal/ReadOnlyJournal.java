@@ -16,6 +16,7 @@
  */
 package io.zell.zdb.journal;
 
+import java.util.Spliterator;
 
 public interface ReadOnlyJournal extends AutoCloseable {
   /**
@@ -46,6 +47,17 @@ public interface ReadOnlyJournal extends AutoCloseable {
    */
   JournalReader openReader();
 
+  /**
+   * Returns a spliterator over all records of the journal, which splits at segment boundaries. This
+   * allows to read the journal with a parallel stream, where each split reads its own segments.
+   *
+   * <p>If the journal reuses records, a record is only valid while it is passed to the action of
+   * the spliterator, and has to be {@link ReadOnlyJournalRecord#copy() copied} to keep it.
+   *
+   * @return a spliterator over all records
+   */
+  Spliterator<ReadOnlyJournalRecord> spliterator();
+
   /**
    * Check if the journal is open
    *
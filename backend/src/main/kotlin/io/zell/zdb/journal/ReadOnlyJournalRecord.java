@@ -54,4 +54,14 @@ public interface ReadOnlyJournalRecord {
    * @return serialized record
    */
   DirectBuffer serializedRecord();
+
+  /**
+   * Returns a copy of this record, which can be kept after the next record is read. Readers might
+   * reuse the same record instance for every read, see {@link
+   * io.zell.zdb.journal.record.JournalRecordView}. Records which are not reused can return
+   * themselves.
+   *
+   * @return a record which is not changed by subsequent reads
+   */
+  ReadOnlyJournalRecord copy();
 }
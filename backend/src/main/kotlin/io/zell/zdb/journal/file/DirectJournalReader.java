@@ -0,0 +1,254 @@
+/*
+ * Copyright © 2021 Christopher Kujawa (zelldon91@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.zell.zdb.journal.file;
+
+import io.camunda.zeebe.journal.JournalException;
+import io.zell.zdb.journal.JournalReader;
+import io.zell.zdb.journal.ReadOnlyJournalRecord;
+import io.zell.zdb.journal.record.JournalRecordReaderUtil;
+import io.zell.zdb.journal.record.JournalRecordView;
+import io.zell.zdb.journal.record.SBESerializer;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.NoSuchElementException;
+import java.util.function.ToLongFunction;
+
+/**
+ * Journal reader, which streams the segments with direct I/O instead of mapping them. Scanning a
+ * large log through the mapped segments fills the page cache with the log, which evicts the pages
+ * of other processes on the same host, e.g. of the broker. Direct I/O bypasses the page cache.
+ *
+ * <p>Seeks are delegated to a {@link SegmentedJournalReader}, since they only touch a few pages of
+ * the mapped segments. Afterwards, the segment is streamed from the position the seek ended at.
+ *
+ * <p>The streamed chunks are copied into a parse buffer, from which the records are read. The
+ * remaining bytes of a record, which spans two chunks, are moved to a second parse buffer, such
+ * that the last returned record stays valid until the next one is read.
+ */
+final class DirectJournalReader implements JournalReader {
+
+  private static final int CHUNK_SIZE = 1024 * 1024;
+
+  private final SegmentedReadOnlyJournal journal;
+  private final SegmentedJournalReader seekReader;
+  private final JournalRecordReaderUtil recordReader =
+      new JournalRecordReaderUtil(new SBESerializer());
+  private final JournalRecordView recordView = new JournalRecordView();
+  private final int metadataLength = new SBESerializer().getMetadataLength();
+  private ByteBuffer parseBuffer = ByteBuffer.allocateDirect(2 * CHUNK_SIZE).limit(0);
+  private ByteBuffer spareBuffer = ByteBuffer.allocateDirect(2 * CHUNK_SIZE);
+  // whether the last returned record was read from the current parse buffer
+  private boolean recordInParseBuffer;
+  private boolean positioned;
+  private Segment currentSegment;
+  private DirectSegmentStream stream;
+  private boolean streamExhausted;
+  private long nextIndex;
+
+  DirectJournalReader(
+      final SegmentedReadOnlyJournal journal, final SegmentedJournalReader seekReader) {
+    this.journal = journal;
+    this.seekReader = seekReader;
+  }
+
+  @Override
+  public boolean hasNext() {
+    if (!positioned) {
+      openStream(
+          seekReader.getCurrentSegment(), seekReader.getNextPosition(), seekReader.getNextIndex());
+      positioned = true;
+    }
+
+    while (!hasNextInSegment()) {
+      if (!currentSegment.isOpen()) {
+        return false;
+      }
+
+      final Segment nextSegment = journal.getNextSegment(currentSegment.index());
+      if (nextSegment == null || nextSegment.index() != nextIndex) {
+        return false;
+      }
+      openStream(nextSegment, nextSegment.descriptor().length(), nextSegment.index());
+    }
+    return true;
+  }
+
+  /**
+   * Reads the next record. If the journal reuses records, the returned record is only valid until
+   * the next call. Otherwise, the record is copied out of the parse buffer.
+   *
+   * @return the next record
+   */
+  @Override
+  public ReadOnlyJournalRecord next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+
+    FrameUtil.readVersion(parseBuffer);
+    final boolean verifyChecksum =
+        journal.getChecksumVerification().shouldVerify(nextIndex - currentSegment.index());
+    final var record = recordReader.read(parseBuffer, nextIndex, verifyChecksum, recordView);
+    recordInParseBuffer = true;
+    nextIndex = record.index() + 1;
+    return journal.reusesRecords() ? record : record.copy();
+  }
+
+  @Override
+  public long seek(final long index) {
+    return reposition(seekReader.seek(index));
+  }
+
+  @Override
+  public long seekToFirst() {
+    return reposition(seekReader.seekToFirst());
+  }
+
+  @Override
+  public long seekToLast() {
+    return reposition(seekReader.seekToLast());
+  }
+
+  @Override
+  public long seekToAsqn(final long asqn) {
+    return reposition(seekReader.seekToAsqn(asqn));
+  }
+
+  @Override
+  public long seekToAsqn(final long asqn, final long indexUpperBound) {
+    return reposition(seekReader.seekToAsqn(asqn, indexUpperBound));
+  }
+
+  @Override
+  public long seekToKey(
+      final long key, final ToLongFunction<ReadOnlyJournalRecord> keyExtractor) {
+    return reposition(seekReader.seekToKey(key, keyExtractor));
+  }
+
+  @Override
+  public void close() {
+    closeStream();
+    seekReader.close();
+  }
+
+  private long reposition(final long index) {
+    // the stream is opened lazily at the position of the seek reader
+    closeStream();
+    positioned = false;
+    return index;
+  }
+
+  private boolean hasNextInSegment() {
+    if (!currentSegment.isOpen() || !ensureAvailable(FrameUtil.getLength())) {
+      return false;
+    }
+
+    // if the next entry exists the version would be non-zero
+    if (!FrameUtil.hasValidVersion(parseBuffer, parseBuffer.position())) {
+      return false;
+    }
+
+    // an incomplete or invalid record is detected when it is read
+    if (ensureAvailable(FrameUtil.getLength() + metadataLength)) {
+      final int recordLength =
+          recordReader.getRecordLength(
+              parseBuffer, parseBuffer.position() + FrameUtil.getLength());
+      if (recordLength > 0) {
+        ensureAvailable(FrameUtil.getLength() + recordLength);
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Fills the parse buffer with the next chunks of the stream, until it contains at least the given
+   * number of bytes after its position.
+   *
+   * @return true if the bytes are available, false if the end of the segment was reached before
+   */
+  private boolean ensureAvailable(final int length) {
+    if (parseBuffer.remaining() >= length) {
+      return true;
+    }
+    if (streamExhausted) {
+      return false;
+    }
+
+    if (recordInParseBuffer) {
+      // the last returned record may still be used, don't overwrite it
+      if (spareBuffer.capacity() < parseBuffer.remaining()) {
+        spareBuffer = ByteBuffer.allocateDirect(parseBuffer.capacity());
+      }
+      spareBuffer.clear().put(parseBuffer);
+      final var previousBuffer = parseBuffer;
+      parseBuffer = spareBuffer;
+      spareBuffer = previousBuffer;
+      recordInParseBuffer = false;
+    } else {
+      parseBuffer.compact();
+    }
+
+    try {
+      while (parseBuffer.position() < length) {
+        final var chunk = stream.next();
+        if (chunk == null) {
+          streamExhausted = true;
+          break;
+        }
+
+        if (parseBuffer.remaining() < chunk.remaining()) {
+          parseBuffer = grow(parseBuffer, parseBuffer.position() + chunk.remaining());
+        }
+        parseBuffer.put(chunk);
+      }
+    } catch (final IOException e) {
+      throw new JournalException(
+          String.format("Failed to stream segment %s", currentSegment.file()), e);
+    } finally {
+      parseBuffer.flip();
+    }
+
+    return parseBuffer.remaining() >= length;
+  }
+
+  private static ByteBuffer grow(final ByteBuffer buffer, final int minCapacity) {
+    final var grownBuffer =
+        ByteBuffer.allocateDirect(Math.max(minCapacity, buffer.capacity() * 2));
+    return grownBuffer.put(buffer.flip());
+  }
+
+  private void openStream(final Segment segment, final int position, final long index) {
+    closeStream();
+    currentSegment = segment;
+    nextIndex = index;
+    parseBuffer.clear().limit(0);
+    try {
+      stream = new DirectSegmentStream(segment.file(), position, CHUNK_SIZE);
+      streamExhausted = false;
+    } catch (final IOException e) {
+      throw new JournalException(
+          String.format("Failed to open segment %s for streaming", segment.file()), e);
+    }
+  }
+
+  private void closeStream() {
+    if (stream != null) {
+      stream.close();
+      stream = null;
+    }
+    streamExhausted = true;
+  }
+}
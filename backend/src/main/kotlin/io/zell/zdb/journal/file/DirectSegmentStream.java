@@ -0,0 +1,171 @@
+/*
+ * Copyright © 2021 Christopher Kujawa (zelldon91@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.zell.zdb.journal.file;
+
+import com.sun.nio.file.ExtendedOpenOption;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Streams a segment file in chunks with direct I/O, which bypasses the page cache. Direct I/O
+ * requires the buffers, file positions and lengths to be aligned to the block size of the file
+ * system, which is why the stream starts at the block before the requested position.
+ *
+ * <p>Two buffers are used alternately: while the caller parses one chunk, the next one is read into
+ * the other buffer on a virtual thread. A returned chunk is only valid until the next call of
+ * {@link #next()}.
+ *
+ * <p>If the file system doesn't support direct I/O, the file is streamed the same way, but through
+ * the page cache.
+ */
+final class DirectSegmentStream implements AutoCloseable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(DirectSegmentStream.class);
+  private static final int DEFAULT_BLOCK_SIZE = 4096;
+
+  private final FileChannel channel;
+  private final long fileSize;
+  private final int chunkSize;
+  private final ByteBuffer[] buffers = new ByteBuffer[2];
+  private long readPosition;
+  // the number of bytes at the start of the first chunk, which precede the requested position
+  private int skip;
+  // null if the end of the file is reached
+  private FutureTask<Integer> pendingRead;
+  private int pendingBuffer;
+
+  /**
+   * Opens the segment file and starts reading the first chunk.
+   *
+   * @param file the segment file to stream
+   * @param startPosition the position in the file from which on it is streamed
+   * @param chunkSize the number of bytes which are read at once, rounded up to the block size
+   */
+  DirectSegmentStream(final Path file, final int startPosition, final int chunkSize)
+      throws IOException {
+    final int blockSize = getBlockSize(file);
+    channel = open(file);
+    fileSize = channel.size();
+    this.chunkSize = (chunkSize + blockSize - 1) / blockSize * blockSize;
+    for (int i = 0; i < buffers.length; i++) {
+      buffers[i] =
+          ByteBuffer.allocateDirect(this.chunkSize + blockSize)
+              .alignedSlice(blockSize)
+              .limit(this.chunkSize);
+    }
+
+    readPosition = (long) startPosition / blockSize * blockSize;
+    skip = (int) (startPosition - readPosition);
+    startRead(0);
+  }
+
+  /**
+   * Returns the next chunk of the file, or null if the end of the file is reached. The chunk is
+   * positioned at its first byte to read, and the reading of the following chunk is started.
+   *
+   * @return the next chunk, which is valid until the next call
+   */
+  ByteBuffer next() throws IOException {
+    if (pendingRead == null) {
+      return null;
+    }
+
+    final int read = await(pendingRead);
+    final var buffer = buffers[pendingBuffer];
+    if (read <= 0) {
+      pendingRead = null;
+      return null;
+    }
+
+    buffer.limit(read).position(Math.min(skip, read));
+    skip = 0;
+    readPosition += read;
+    if (readPosition < fileSize) {
+      startRead(1 - pendingBuffer);
+    } else {
+      pendingRead = null;
+    }
+    return buffer;
+  }
+
+  @Override
+  public void close() {
+    try {
+      // fails a read which is still running, such that its buffer isn't written anymore
+      channel.close();
+    } catch (final IOException e) {
+      LOG.debug("Failed to close the channel of a streamed segment.", e);
+    }
+    pendingRead = null;
+  }
+
+  private void startRead(final int bufferIndex) {
+    final var buffer = buffers[bufferIndex].clear().limit(chunkSize);
+    final long position = readPosition;
+    pendingBuffer = bufferIndex;
+    pendingRead = new FutureTask<>(() -> readFully(buffer, position));
+    Thread.ofVirtual().name("zdb-segment-stream").start(pendingRead);
+  }
+
+  private int readFully(final ByteBuffer buffer, final long position) throws IOException {
+    while (buffer.hasRemaining()) {
+      final int read = channel.read(buffer, position + buffer.position());
+      if (read <= 0) {
+        break;
+      }
+    }
+    return buffer.position();
+  }
+
+  private static int await(final FutureTask<Integer> read) throws IOException {
+    try {
+      return read.get();
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while reading the segment", e);
+    } catch (final ExecutionException e) {
+      if (e.getCause() instanceof final IOException ioException) {
+        throw ioException;
+      }
+      throw new IOException("Failed to read the segment", e.getCause());
+    }
+  }
+
+  private static FileChannel open(final Path file) throws IOException {
+    try {
+      return FileChannel.open(file, StandardOpenOption.READ, ExtendedOpenOption.DIRECT);
+    } catch (final UnsupportedOperationException | IOException e) {
+      LOG.debug("Direct I/O is not supported for {}, will read it through the page cache.", file, e);
+      return FileChannel.open(file, StandardOpenOption.READ);
+    }
+  }
+
+  private static int getBlockSize(final Path file) {
+    try {
+      return (int) Files.getFileStore(file).getBlockSize();
+    } catch (final UnsupportedOperationException | IOException e) {
+      return DEFAULT_BLOCK_SIZE;
+    }
+  }
+}
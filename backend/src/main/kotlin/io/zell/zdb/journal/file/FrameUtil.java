@@ -40,6 +40,19 @@ final class FrameUtil {
     if (buffer.capacity() < buffer.position() + LENGTH) {
       return false;
     }
-    return buffer.get(buffer.position()) != IGNORE;
+    return hasValidVersion(buffer, buffer.position());
+  }
+
+  /** Returns true if there is a valid version at the given offset of the buffer. */
+  static boolean hasValidVersion(final ByteBuffer buffer, final int offset) {
+    if (buffer.capacity() < offset + LENGTH) {
+      return false;
+    }
+    return buffer.get(offset) != IGNORE;
+  }
+
+  /** Returns the length of the frame, which precedes each record. */
+  static int getLength() {
+    return LENGTH;
   }
 }
@@ -33,6 +33,17 @@ interface JournalIndex {
    */
   void index(ReadOnlyJournalRecord record, int position);
 
+  /**
+   * Indexes the given index, asqn and position with in a segment. Same as {@link
+   * #index(ReadOnlyJournalRecord, int)}, but doesn't require the record itself, e.g. when the index
+   * is restored from a {@link JournalIndexCache}.
+   *
+   * @param index the index of the record
+   * @param asqn the asqn of the record
+   * @param position the position of the record with in its segment
+   */
+  void index(long index, long asqn, int position);
+
   /**
    * Looks up the position of the given index.
    *
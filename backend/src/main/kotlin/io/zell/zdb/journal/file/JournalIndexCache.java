@@ -0,0 +1,327 @@
+/*
+ * Copyright © 2021 Christopher Kujawa (zelldon91@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.zell.zdb.journal.file;
+
+import io.camunda.zeebe.journal.JournalException;
+import io.zell.zdb.journal.ChecksumVerification;
+import org.agrona.IoUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Persists the sparse journal index on disk, such that it can be reused across zdb invocations.
+ * Without it every run has to scan the log again, to find the position of an index or asqn.
+ *
+ * <p>The cache file contains a block per segment, which is keyed by the segment file name, size and
+ * last modified time. A block holds every indexed entry of its segment, which are the index, the
+ * position with in the segment and the asqn. On load, the blocks of unchanged segments are restored
+ * into the {@link JournalIndex}. Segments which are new or have changed since, are scanned once and
+ * appended to the cache file.
+ *
+ * <p>The file layout is (little endian):
+ *
+ * <pre>
+ * header:  magic (int) | version (int) | density (int) | segment count (int)
+ * segment: name length (short) | name (bytes) | file size (long) | last modified (long)
+ *          | entry count (int) | entries
+ * entry:   index (long) | position (int) | asqn (long)
+ * </pre>
+ */
+final class JournalIndexCache {
+
+  private static final Logger LOG = LoggerFactory.getLogger(JournalIndexCache.class);
+  private static final ByteOrder ENDIANNESS = ByteOrder.LITTLE_ENDIAN;
+  private static final int MAGIC = 0x5A444249; // ZDBI
+  private static final int VERSION = 1;
+  private static final int HEADER_LENGTH = Integer.BYTES * 4;
+  private static final int SEGMENT_COUNT_OFFSET = Integer.BYTES * 3;
+  private static final int ENTRY_LENGTH = Long.BYTES + Integer.BYTES + Long.BYTES;
+  private static final String FILE_EXTENSION = ".idx";
+
+  private final Path cacheFile;
+  private final int density;
+
+  JournalIndexCache(
+      final File cacheDirectory, final File journalDirectory, final String name, final int density) {
+    // different copies of the same partition should not share their cache
+    final var directoryHash =
+        Integer.toHexString(journalDirectory.getAbsoluteFile().toPath().normalize().hashCode());
+    cacheFile = cacheDirectory.toPath().resolve(name + "-" + directoryHash + FILE_EXTENSION);
+    this.density = density;
+  }
+
+  /**
+   * Restores the index of all given segments into the journal index. Segments which are not part
+   * of the cache yet are scanned, and the cache file is extended with them.
+   *
+   * @param segments the segments of the journal, in order
+   * @param journalIndex the index to restore into
+   */
+  void restore(final Collection<Segment> segments, final JournalIndex journalIndex) {
+    final var cache = readCache();
+    boolean isCacheValid = cache != null;
+    final Map<String, SegmentEntries> cachedEntries = isCacheValid ? cache : Map.of();
+    final var cachedSegmentNames = new HashSet<>(cachedEntries.keySet());
+
+    final List<SegmentEntries> allEntries = new ArrayList<>();
+    final List<SegmentEntries> newEntries = new ArrayList<>();
+    for (final Segment segment : segments) {
+      final var key = SegmentKey.of(segment.file());
+      if (key == null) {
+        continue;
+      }
+
+      final var cached = cachedEntries.get(key.name());
+      if (cached != null && cached.key().equals(key)) {
+        cached.restore(journalIndex);
+        allEntries.add(cached);
+        cachedSegmentNames.remove(key.name());
+        continue;
+      }
+
+      // stale entries (e.g. the segment is still written) need to be replaced
+      isCacheValid &= cached == null;
+      final var scanned = scan(key, segment, journalIndex);
+      if (scanned != null) {
+        allEntries.add(scanned);
+        newEntries.add(scanned);
+      }
+    }
+
+    // segments which have been removed in the meantime, e.g. by compaction
+    isCacheValid &= cachedSegmentNames.isEmpty();
+
+    try {
+      if (!isCacheValid) {
+        write(allEntries);
+      } else if (!newEntries.isEmpty()) {
+        append(newEntries, allEntries.size());
+      }
+    } catch (final IOException | JournalException e) {
+      // the cache is only an optimization, we can still read the journal without it
+      LOG.debug("Failed to write the journal index cache {}, will continue without.", cacheFile, e);
+    }
+  }
+
+  private SegmentEntries scan(
+      final SegmentKey key, final Segment segment, final JournalIndex journalIndex) {
+    final var entries = new SegmentEntries(key);
+    // records are only read to index them, they don't need to be kept
+    final var reader = segment.createReader(true, ChecksumVerification.FULL);
+    try {
+      while (reader.hasNext()) {
+        final int position = reader.getNextPosition();
+        final var record = reader.next();
+        if (record.index() % density == 0) {
+          entries.add(record.index(), position, record.asqn());
+          journalIndex.index(record.index(), record.asqn(), position);
+        }
+      }
+    } catch (final RuntimeException e) {
+      // we don't cache incomplete segments, they are scanned again on the next run
+      LOG.debug("Failed to index segment {}, will not cache it.", key.name(), e);
+      return null;
+    } finally {
+      reader.close();
+    }
+    return entries;
+  }
+
+  /** Returns the cached entries by segment file name, or null if there is no (valid) cache. */
+  private Map<String, SegmentEntries> readCache() {
+    if (!Files.isRegularFile(cacheFile)) {
+      return null;
+    }
+
+    MappedByteBuffer buffer = null;
+    try (final var channel = FileChannel.open(cacheFile, StandardOpenOption.READ)) {
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      buffer.order(ENDIANNESS);
+      return readCache(buffer);
+    } catch (final IOException | RuntimeException e) {
+      LOG.debug("Failed to read the journal index cache {}, will rebuild it.", cacheFile, e);
+      return null;
+    } finally {
+      if (buffer != null) {
+        IoUtil.unmap(buffer);
+      }
+    }
+  }
+
+  private Map<String, SegmentEntries> readCache(final ByteBuffer buffer) {
+    if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION || buffer.getInt() != density) {
+      return null;
+    }
+
+    final int segmentCount = buffer.getInt();
+    final Map<String, SegmentEntries> cachedEntries = new HashMap<>();
+    for (int i = 0; i < segmentCount; i++) {
+      final var nameBytes = new byte[buffer.getShort()];
+      buffer.get(nameBytes);
+      final var key =
+          new SegmentKey(
+              new String(nameBytes, StandardCharsets.UTF_8), buffer.getLong(), buffer.getLong());
+
+      final int entryCount = buffer.getInt();
+      final var entries = new SegmentEntries(key, entryCount);
+      for (int entry = 0; entry < entryCount; entry++) {
+        entries.add(buffer.getLong(), buffer.getInt(), buffer.getLong());
+      }
+      cachedEntries.put(key.name(), entries);
+    }
+    return cachedEntries;
+  }
+
+  private void write(final List<SegmentEntries> allEntries) throws IOException {
+    Files.createDirectories(cacheFile.getParent());
+    final var tmpFile = cacheFile.resolveSibling(cacheFile.getFileName() + ".tmp");
+    try (final var channel =
+        FileChannel.open(
+            tmpFile,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING)) {
+      final var header = ByteBuffer.allocate(HEADER_LENGTH).order(ENDIANNESS);
+      header.putInt(MAGIC).putInt(VERSION).putInt(density).putInt(allEntries.size());
+      writeFully(channel, header.flip());
+      for (final SegmentEntries entries : allEntries) {
+        writeFully(channel, entries.serialize());
+      }
+      channel.force(true);
+    }
+    Files.move(
+        tmpFile, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  private void append(final List<SegmentEntries> newEntries, final int segmentCount)
+      throws IOException {
+    try (final var channel = FileChannel.open(cacheFile, StandardOpenOption.WRITE)) {
+      channel.position(channel.size());
+      for (final SegmentEntries entries : newEntries) {
+        writeFully(channel, entries.serialize());
+      }
+      // only after the segments are written, the count is updated to make them visible
+      channel.force(true);
+      final var count = ByteBuffer.allocate(Integer.BYTES).order(ENDIANNESS);
+      count.putInt(segmentCount).flip();
+      while (count.hasRemaining()) {
+        channel.write(count, SEGMENT_COUNT_OFFSET + count.position());
+      }
+      channel.force(true);
+    }
+  }
+
+  private static void writeFully(final FileChannel channel, final ByteBuffer buffer)
+      throws IOException {
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+  }
+
+  /** Identifies a segment file, if one of the attributes changes the cached entries are stale. */
+  private record SegmentKey(String name, long size, long lastModified) {
+
+    static SegmentKey of(final Path file) {
+      try {
+        return new SegmentKey(
+            file.getFileName().toString(),
+            Files.size(file),
+            Files.getLastModifiedTime(file).toMillis());
+      } catch (final IOException e) {
+        LOG.debug("Failed to read attributes of segment {}, will not cache it.", file, e);
+        return null;
+      }
+    }
+  }
+
+  /** The indexed entries of a single segment. */
+  private static final class SegmentEntries {
+    private final SegmentKey key;
+    private long[] indexes;
+    private int[] positions;
+    private long[] asqns;
+    private int size;
+
+    SegmentEntries(final SegmentKey key) {
+      this(key, 16);
+    }
+
+    SegmentEntries(final SegmentKey key, final int expectedSize) {
+      this.key = key;
+      final int capacity = Math.max(expectedSize, 1);
+      indexes = new long[capacity];
+      positions = new int[capacity];
+      asqns = new long[capacity];
+    }
+
+    SegmentKey key() {
+      return key;
+    }
+
+    void add(final long index, final int position, final long asqn) {
+      if (size == indexes.length) {
+        final int capacity = size * 2;
+        indexes = Arrays.copyOf(indexes, capacity);
+        positions = Arrays.copyOf(positions, capacity);
+        asqns = Arrays.copyOf(asqns, capacity);
+      }
+      indexes[size] = index;
+      positions[size] = position;
+      asqns[size] = asqn;
+      size++;
+    }
+
+    void restore(final JournalIndex journalIndex) {
+      for (int i = 0; i < size; i++) {
+        journalIndex.index(indexes[i], asqns[i], positions[i]);
+      }
+    }
+
+    ByteBuffer serialize() {
+      final var nameBytes = key.name().getBytes(StandardCharsets.UTF_8);
+      final var buffer =
+          ByteBuffer.allocate(
+                  Short.BYTES + nameBytes.length + Long.BYTES * 2 + Integer.BYTES + ENTRY_LENGTH * size)
+              .order(ENDIANNESS);
+      buffer.putShort((short) nameBytes.length).put(nameBytes);
+      buffer.putLong(key.size()).putLong(key.lastModified());
+      buffer.putInt(size);
+      for (int i = 0; i < size; i++) {
+        buffer.putLong(indexes[i]).putInt(positions[i]).putLong(asqns[i]);
+      }
+      return buffer.flip();
+    }
+  }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright © 2021 Christopher Kujawa (zelldon91@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.zell.zdb.journal.file;
+
+import io.zell.zdb.journal.ChecksumVerification;
+import io.zell.zdb.journal.ReadOnlyJournalRecord;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Spliterator over the records of a range of segments. It splits at segment boundaries, such that
+ * every split reads its segments with its own {@link SegmentReader}, which allows to read the
+ * journal in parallel.
+ *
+ * <p>Every segment is read from its first record to its end. Other than the {@link
+ * SegmentedJournalReader}, the splits don't check whether the indexes are continuous across
+ * segments, since a split doesn't know the end of the preceding segment.
+ */
+final class JournalSpliterator implements Spliterator<ReadOnlyJournalRecord> {
+
+  private final List<Segment> segments;
+  private final int endSegment;
+  private final boolean reuseRecords;
+  private final ChecksumVerification checksumVerification;
+  private int nextSegment;
+  private SegmentReader reader;
+
+  JournalSpliterator(
+      final List<Segment> segments,
+      final int fromSegment,
+      final int endSegment,
+      final boolean reuseRecords,
+      final ChecksumVerification checksumVerification) {
+    this.segments = segments;
+    nextSegment = fromSegment;
+    this.endSegment = endSegment;
+    this.reuseRecords = reuseRecords;
+    this.checksumVerification = checksumVerification;
+  }
+
+  @Override
+  public boolean tryAdvance(final Consumer<? super ReadOnlyJournalRecord> action) {
+    while (true) {
+      if (reader != null && reader.hasNext()) {
+        action.accept(reader.next());
+        return true;
+      }
+
+      closeReader();
+      if (nextSegment >= endSegment) {
+        return false;
+      }
+      reader = segments.get(nextSegment++).createReader(reuseRecords, checksumVerification);
+    }
+  }
+
+  @Override
+  public Spliterator<ReadOnlyJournalRecord> trySplit() {
+    // once started, the remaining segments are no prefix anymore
+    final int remainingSegments = endSegment - nextSegment;
+    if (reader != null || remainingSegments < 2) {
+      return null;
+    }
+
+    final int middleSegment = nextSegment + remainingSegments / 2;
+    final var prefix =
+        new JournalSpliterator(
+            segments, nextSegment, middleSegment, reuseRecords, checksumVerification);
+    nextSegment = middleSegment;
+    return prefix;
+  }
+
+  /**
+   * Estimates the number of records by the descriptors of the remaining segments. The last index is
+   * not known for every segment, e.g. the last one, in which case it counts as a single record.
+   */
+  @Override
+  public long estimateSize() {
+    long estimate = 0;
+    for (int i = nextSegment; i < endSegment; i++) {
+      final var segment = segments.get(i);
+      estimate += Math.max(segment.getLastIndex() - segment.index() + 1, 1);
+    }
+    return estimate;
+  }
+
+  @Override
+  public int characteristics() {
+    return ORDERED | NONNULL | IMMUTABLE;
+  }
+
+  private void closeReader() {
+    if (reader != null) {
+      reader.close();
+      reader = null;
+    }
+  }
+}
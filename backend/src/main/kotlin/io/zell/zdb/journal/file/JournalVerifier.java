@@ -0,0 +1,161 @@
+/*
+ * Copyright © 2021 Christopher Kujawa (zelldon91@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.zell.zdb.journal.file;
+
+import io.zell.zdb.journal.ChecksumVerification;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Verifies the integrity of all records of a journal. Each segment is verified by its own task on
+ * a fork join pool, such that the verification scales with the available cores. Other than a
+ * journal reader, the verification doesn't stop at the first corrupted record, it skips to the next
+ * valid record and reports the index range in between.
+ */
+public final class JournalVerifier {
+
+  /** The end of a corrupted range is unknown, if no valid record follows in the same segment. */
+  public static final long UNKNOWN_INDEX = -1;
+
+  private final SegmentedReadOnlyJournal journal;
+
+  public JournalVerifier(final SegmentedReadOnlyJournal journal) {
+    this.journal = journal;
+  }
+
+  /**
+   * Verifies all segments of the journal on the given pool, and waits until all are verified.
+   *
+   * @param pool the pool to run the verification on
+   * @return the result of the verification
+   */
+  public VerificationResult verify(final ForkJoinPool pool) {
+    final long startNanos = System.nanoTime();
+    final List<SegmentVerification> tasks =
+        journal.getSegments().stream().map(SegmentVerification::new).toList();
+    tasks.forEach(pool::execute);
+
+    long records = 0;
+    long bytes = 0;
+    final List<CorruptedRange> corruptedRanges = new ArrayList<>();
+    for (final SegmentVerification task : tasks) {
+      final var result = task.join();
+      records += result.records();
+      bytes += result.bytes();
+      corruptedRanges.addAll(result.corruptedRanges());
+    }
+
+    return new VerificationResult(
+        tasks.size(),
+        records,
+        bytes,
+        Duration.ofNanos(System.nanoTime() - startNanos),
+        corruptedRanges);
+  }
+
+  /**
+   * A range of indexes, which couldn't be read in a segment.
+   *
+   * @param segment the file name of the segment
+   * @param fromIndex the first index of the range
+   * @param toIndex the last index of the range, or {@link #UNKNOWN_INDEX} if the range extends to
+   *     the end of the segment
+   * @param reason why the first record couldn't be read
+   */
+  public record CorruptedRange(String segment, long fromIndex, long toIndex, String reason) {}
+
+  /**
+   * The result of verifying a journal.
+   *
+   * @param segments the number of verified segments
+   * @param records the number of valid records
+   * @param bytes the number of verified bytes
+   * @param duration how long the verification took
+   * @param corruptedRanges the corrupted ranges, in order of the segments
+   */
+  public record VerificationResult(
+      int segments,
+      long records,
+      long bytes,
+      Duration duration,
+      List<CorruptedRange> corruptedRanges) {
+
+    public boolean isValid() {
+      return corruptedRanges.isEmpty();
+    }
+
+    public double recordsPerSecond() {
+      return perSecond(records);
+    }
+
+    public double bytesPerSecond() {
+      return perSecond(bytes);
+    }
+
+    private double perSecond(final long count) {
+      final long nanos = Math.max(duration.toNanos(), 1);
+      return count * 1_000_000_000.0 / nanos;
+    }
+  }
+
+  private record SegmentResult(long records, long bytes, List<CorruptedRange> corruptedRanges) {}
+
+  private static final class SegmentVerification extends RecursiveTask<SegmentResult> {
+
+    private final Segment segment;
+
+    private SegmentVerification(final Segment segment) {
+      this.segment = segment;
+    }
+
+    @Override
+    protected SegmentResult compute() {
+      final var segmentName = segment.file().getFileName().toString();
+      final List<CorruptedRange> corruptedRanges = new ArrayList<>();
+      long records = 0;
+
+      final var reader = segment.createReader(true, ChecksumVerification.FULL);
+      try {
+        while (reader.hasNext()) {
+          final int position = reader.getNextPosition();
+          final long expectedIndex = reader.getNextIndex();
+          try {
+            reader.next();
+            records++;
+          } catch (final RuntimeException e) {
+            // if only the index is unexpected, the record at the position is still found again
+            boolean hasNextRecord = reader.skipToNextRecord(position);
+            if (hasNextRecord
+                && reader.getNextPosition() == position
+                && reader.getNextIndex() == expectedIndex) {
+              // the frame of the record is valid, but its content can't be read
+              hasNextRecord = reader.skipToNextRecord(position + 1);
+            }
+            final long toIndex = hasNextRecord ? reader.getNextIndex() - 1 : UNKNOWN_INDEX;
+            corruptedRanges.add(
+                new CorruptedRange(segmentName, expectedIndex, toIndex, e.getMessage()));
+          }
+        }
+        return new SegmentResult(records, reader.getNextPosition(), corruptedRanges);
+      } finally {
+        reader.close();
+      }
+    }
+  }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright © 2021 Christopher Kujawa (zelldon91@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.zell.zdb.journal.file;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps track of the segments which are currently mapped into memory, in least recently used
+ * order. If more than {@code maxMappedSegments} are mapped, the least recently used segments are
+ * unmapped again. Segments which are still read are never unmapped, which means the limit can be
+ * exceeded temporarily.
+ */
+final class MappedSegments {
+
+  private final int maxMappedSegments;
+  // access ordered, the first entry is the least recently used segment
+  private final Map<Long, Segment> segments = new LinkedHashMap<>(16, 0.75f, true);
+
+  MappedSegments(final int maxMappedSegments) {
+    this.maxMappedSegments = maxMappedSegments;
+  }
+
+  /**
+   * Marks the given segment as most recently used, and unmaps the least recently used segments if
+   * there are too many mapped.
+   *
+   * @param segment the segment which has been accessed
+   */
+  synchronized void onAccess(final Segment segment) {
+    segments.put(segment.index(), segment);
+
+    final Iterator<Segment> iterator = segments.values().iterator();
+    while (segments.size() > maxMappedSegments && iterator.hasNext()) {
+      final var leastRecentlyUsed = iterator.next();
+      if (leastRecentlyUsed != segment && leastRecentlyUsed.unmapIfUnused()) {
+        iterator.remove();
+      }
+    }
+  }
+
+  /**
+   * Stops tracking the given segment, e.g. because it has been closed.
+   *
+   * @param segment the segment to remove
+   */
+  synchronized void remove(final Segment segment) {
+    segments.remove(segment.index(), segment);
+  }
+}
@@ -18,41 +18,53 @@
 package io.zell.zdb.journal.file;
 
 import com.google.common.collect.Sets;
+import io.camunda.zeebe.journal.JournalException;
+import io.zell.zdb.journal.ChecksumVerification;
 import org.agrona.IoUtil;
 
+import java.io.IOException;
 import java.nio.ByteOrder;
 import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.Set;
 
 import static com.google.common.base.MoreObjects.toStringHelper;
 import static com.google.common.base.Preconditions.checkState;
 
 /**
- * Log segment.
+ * Log segment. The segment file is only mapped into memory when the first reader is created, and
+ * might be unmapped again by the {@link MappedSegments} when it is not read anymore.
  *
  * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
  */
 final class Segment implements AutoCloseable {
 
   private static final ByteOrder ENDIANNESS = ByteOrder.LITTLE_ENDIAN;
+  private final Path file;
   private final SegmentDescriptor descriptor;
   private final JournalIndex index;
+  private final MappedSegments mappedSegments;
   private final Set<SegmentReader> readers = Sets.newConcurrentHashSet();
-  private final MappedByteBuffer buffer;
   private final long lastWrittenAsqn;
   private final long lastIndex;
+  // guarded by this, null as long as the segment is not mapped
+  private MappedByteBuffer buffer;
 
   // This needs to be volatile in case the flushing is asynchronous
   private volatile boolean open = true;
 
   Segment(
+      final Path file,
       final SegmentDescriptor descriptor,
-      final MappedByteBuffer buffer,
       final long lastWrittenAsqn,
-      final JournalIndex index) {
+      final JournalIndex index,
+      final MappedSegments mappedSegments) {
+    this.file = file;
     this.descriptor = descriptor;
-    this.buffer = buffer;
     this.index = index;
+    this.mappedSegments = mappedSegments;
     this.lastWrittenAsqn = lastWrittenAsqn;
     lastIndex = descriptor.lastIndex();
   }
@@ -83,6 +95,15 @@ final class Segment implements AutoCloseable {
     return descriptor.index();
   }
 
+  /**
+   * Returns the path of the segment file.
+   *
+   * @return The segment file.
+   */
+  Path file() {
+    return file;
+  }
+
   /**
    * Returns the segment descriptor.
    *
@@ -93,15 +114,40 @@ final class Segment implements AutoCloseable {
   }
 
   /**
-   * Creates a new segment reader.
+   * Creates a new segment reader. Maps the segment file, if it is not mapped yet.
    *
    * @return A new segment reader.
    */
   SegmentReader createReader() {
-    checkOpen();
-    final SegmentReader reader =
-        new SegmentReader(buffer.asReadOnlyBuffer().position(0).order(ENDIANNESS), this, index);
-    readers.add(reader);
+    return createReader(false, ChecksumVerification.FULL);
+  }
+
+  /**
+   * Creates a new segment reader. Maps the segment file, if it is not mapped yet.
+   *
+   * @param reuseRecords whether the reader reuses the same record for every read, see {@link
+   *     SegmentReader#next()}
+   * @param checksumVerification which records are verified against their checksum
+   * @return A new segment reader.
+   */
+  SegmentReader createReader(
+      final boolean reuseRecords, final ChecksumVerification checksumVerification) {
+    final SegmentReader reader;
+    synchronized (this) {
+      checkOpen();
+      final var mappedBuffer = map();
+      reader =
+          new SegmentReader(
+              mappedBuffer.asReadOnlyBuffer().position(0).order(ENDIANNESS),
+              this,
+              index,
+              reuseRecords,
+              checksumVerification);
+      readers.add(reader);
+    }
+
+    // outside the lock, the mapped segments might unmap other segments which requires their lock
+    mappedSegments.onAccess(this);
     return reader;
   }
 
@@ -114,6 +160,51 @@ final class Segment implements AutoCloseable {
     readers.remove(reader);
   }
 
+  /**
+   * Returns a boolean indicating whether the segment file is currently mapped into memory.
+   *
+   * @return indicates whether the segment is mapped
+   */
+  synchronized boolean isMapped() {
+    return buffer != null;
+  }
+
+  /**
+   * Unmaps the segment file, if there is no reader reading from it. The segment is mapped again on
+   * the next {@link #createReader()}.
+   *
+   * @return true if the segment is not mapped anymore, false otherwise
+   */
+  synchronized boolean unmapIfUnused() {
+    if (!readers.isEmpty()) {
+      return false;
+    }
+
+    unmap();
+    return true;
+  }
+
+  private MappedByteBuffer map() {
+    if (buffer == null) {
+      try (final var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+        // the journal is never written by zdb, map only what actually exists on disk
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        buffer.order(ENDIANNESS);
+      } catch (final IOException e) {
+        throw new JournalException(String.format("Failed to map segment %s", file), e);
+      }
+    }
+
+    return buffer;
+  }
+
+  private void unmap() {
+    if (buffer != null) {
+      IoUtil.unmap(buffer);
+      buffer = null;
+    }
+  }
+
   /** Checks whether the segment is open. */
   private void checkOpen() {
     checkState(open, "Segment not open");
@@ -133,7 +224,10 @@ final class Segment implements AutoCloseable {
   public void close() {
     open = false;
     readers.forEach(SegmentReader::close);
-    IoUtil.unmap(buffer);
+    mappedSegments.remove(this);
+    synchronized (this) {
+      unmap();
+    }
   }
 
   @Override
@@ -182,6 +182,10 @@ final class SegmentDescriptor {
             + '}';
   }
 
+  byte version() {
+    return version;
+  }
+
   int lastPosition() {
     return lastPosition;
   }
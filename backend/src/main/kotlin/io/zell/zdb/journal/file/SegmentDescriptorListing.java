@@ -0,0 +1,136 @@
+/*
+ * Copyright © 2021 Christopher Kujawa (zelldon91@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.zell.zdb.journal.file;
+
+import io.camunda.zeebe.journal.CorruptedJournalException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lists the descriptors of all segments of a journal. Only the descriptor bytes at the beginning of
+ * each segment file are read, via a positional read, such that no segment has to be mapped. Other
+ * than opening a journal, a segment which can't be read doesn't fail the listing, it is listed with
+ * the reason instead.
+ */
+public final class SegmentDescriptorListing {
+
+  private SegmentDescriptorListing() {}
+
+  /**
+   * Reads the descriptors of all segments of the journal, in order of the segment files.
+   *
+   * @param directory the directory of the journal
+   * @param journalName the name of the journal, which prefixes the segment files
+   * @return the descriptors of all segment files
+   */
+  public static List<SegmentSummary> list(final File directory, final String journalName) {
+    final var descriptorReader = new SegmentDescriptorReader();
+    final List<SegmentSummary> summaries = new ArrayList<>();
+    for (final File file : SegmentFile.getSortedSegmentFiles(directory, journalName)) {
+      summaries.add(readSummary(descriptorReader, file));
+    }
+    return summaries;
+  }
+
+  private static SegmentSummary readSummary(
+      final SegmentDescriptorReader descriptorReader, final File file) {
+    final var fileName = file.getName();
+    try (final var channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      final long fileSize = channel.size();
+      try {
+        final var descriptor = descriptorReader.readFrom(channel);
+        return new SegmentSummary(
+            fileName,
+            SegmentState.VALID,
+            descriptor.id(),
+            descriptor.index(),
+            descriptor.lastIndex(),
+            descriptor.lastPosition(),
+            descriptor.version(),
+            descriptor.maxSegmentSize(),
+            fileSize,
+            null);
+      } catch (final EmptySegmentException e) {
+        return SegmentSummary.unreadable(fileName, SegmentState.EMPTY, fileSize, null);
+      } catch (final CorruptedJournalException | IllegalStateException e) {
+        return SegmentSummary.unreadable(
+            fileName, SegmentState.CORRUPTED, fileSize, e.getMessage());
+      }
+    } catch (final IOException e) {
+      return SegmentSummary.unreadable(fileName, SegmentState.CORRUPTED, 0, e.getMessage());
+    }
+  }
+
+  public enum SegmentState {
+    /** The descriptor was read successfully. */
+    VALID,
+    /** The descriptor consists of zeros only, e.g. the segment was prepared but never written. */
+    EMPTY,
+    /** The descriptor couldn't be read. */
+    CORRUPTED
+  }
+
+  /**
+   * The descriptor of a single segment file. Other than the file name, size and state, the fields
+   * are only set for {@link SegmentState#VALID} segments.
+   *
+   * @param fileName the name of the segment file
+   * @param state whether the descriptor could be read
+   * @param id the id of the segment
+   * @param firstIndex the index of the first entry of the segment
+   * @param lastIndex the index of the last entry of the segment, 0 if the descriptor doesn't know
+   *     it, e.g. for the segment which is currently written
+   * @param lastPosition the position of the last entry in the segment file, 0 if the descriptor
+   *     doesn't know it
+   * @param version the version of the descriptor
+   * @param maxSegmentSize the maximum number of bytes of the segment
+   * @param fileSize the number of bytes of the segment file
+   * @param reason why the descriptor couldn't be read, if it is corrupted
+   */
+  public record SegmentSummary(
+      String fileName,
+      SegmentState state,
+      long id,
+      long firstIndex,
+      long lastIndex,
+      int lastPosition,
+      int version,
+      int maxSegmentSize,
+      long fileSize,
+      String reason) {
+
+    private static SegmentSummary unreadable(
+        final String fileName, final SegmentState state, final long fileSize, final String reason) {
+      return new SegmentSummary(fileName, state, 0, 0, 0, 0, 0, 0, fileSize, reason);
+    }
+
+    /**
+     * Returns how much of the segment is filled, as ratio of the position of the last entry to the
+     * maximum segment size. The length of the last entry isn't known without reading it, which is
+     * why the ratio is a lower bound. It is 0 if the descriptor doesn't know the last entry.
+     */
+    public double fillRatio() {
+      if (maxSegmentSize <= 0) {
+        return 0;
+      }
+      return (double) lastPosition / maxSegmentSize;
+    }
+  }
+}
@@ -15,7 +15,9 @@ import io.camunda.zeebe.journal.util.ChecksumGenerator;
 import org.agrona.DirectBuffer;
 import org.agrona.concurrent.UnsafeBuffer;
 
+import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 
 final class SegmentDescriptorReader {
   private final DescriptorMetadataDecoder metadataDecoder = new DescriptorMetadataDecoder();
@@ -34,6 +36,25 @@ final class SegmentDescriptorReader {
   private int encodedLength;
   private long checksum;
 
+  /**
+   * Reads the descriptor from the beginning of the given segment file, via a positional read. The
+   * segment doesn't need to be mapped for that.
+   *
+   * @param channel the channel of the segment file
+   * @return the read descriptor
+   */
+  SegmentDescriptor readFrom(final FileChannel channel) throws IOException {
+    final var buffer =
+        ByteBuffer.allocate((int) Math.min(channel.size(), SegmentDescriptor.getEncodingLength()));
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, buffer.position()) < 0) {
+        break;
+      }
+    }
+
+    return readFrom(buffer.flip());
+  }
+
   SegmentDescriptor readFrom(final ByteBuffer buffer) {
     directBuffer.wrap(buffer);
     final byte version;
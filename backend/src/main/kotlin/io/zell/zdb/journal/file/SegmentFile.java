@@ -18,6 +18,9 @@
 package io.zell.zdb.journal.file;
 
 import java.io.File;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -94,6 +97,30 @@ public final class SegmentFile {
     }
   }
 
+  /**
+   * Returns the segment files of the given journal in the directory, sorted by their file id. The
+   * returned list may be empty but not null.
+   *
+   * @param directory the directory of the journal
+   * @param journalName the name of the journal
+   * @throws IllegalStateException if the files of the directory can't be listed
+   */
+  static List<File> getSortedSegmentFiles(final File directory, final String journalName) {
+    final File[] files =
+        directory.listFiles(file -> file.isFile() && isSegmentFile(journalName, file));
+
+    if (files == null) {
+      throw new IllegalStateException(
+          String.format(
+              "Could not list files in directory '%s'. Either the path doesn't point to a directory or an I/O error occurred.",
+              directory));
+    }
+
+    Arrays.sort(files, Comparator.comparingInt(f -> getSegmentIdFromPath(f.getName())));
+
+    return Arrays.asList(files);
+  }
+
   /**
    * Returns the segment file.
    *
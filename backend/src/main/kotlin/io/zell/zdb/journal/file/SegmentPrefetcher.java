@@ -0,0 +1,165 @@
+/*
+ * Copyright © 2021 Christopher Kujawa (zelldon91@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.zell.zdb.journal.file;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads ahead of a {@link SegmentedJournalReader}, such that the pages of the segments are already
+ * in the page cache when the reader gets there. Without it, the first pages of every segment stall
+ * the reader on page faults, which is noticeable on network attached disks.
+ *
+ * <p>While the reader reads a segment, the next few MB after its position are read on a virtual
+ * thread, while the reader decodes the records. Once the read ahead window reaches the end of the
+ * written part of the segment, the start of the next {@code distance} segments is read as well.
+ * The segments are preallocated, reading them completely would mostly read the zeroes at their
+ * end. The segment files are read via positional reads into a scratch buffer, instead of touching
+ * the pages of the mapped segments. That way, the prefetching is not affected when a segment is
+ * unmapped concurrently.
+ *
+ * <p>The prefetching is best effort, if a segment can't be read it is skipped.
+ */
+final class SegmentPrefetcher implements AutoCloseable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(SegmentPrefetcher.class);
+  private static final int CHUNK_SIZE = 1024 * 1024;
+  // how far the prefetching reads ahead of the reader
+  private static final int WINDOW_SIZE = 4 * CHUNK_SIZE;
+
+  private final SegmentedReadOnlyJournal journal;
+  private final int distance;
+  private Segment prefetchedSegment;
+  // the position in the prefetched segment, after which the next window is read
+  private long nextWindowPosition;
+  private PrefetchTask task;
+
+  SegmentPrefetcher(final SegmentedReadOnlyJournal journal, final int distance) {
+    this.journal = journal;
+    this.distance = distance;
+  }
+
+  /**
+   * Starts prefetching the window after the given position of the segment, unless the reader is
+   * still in the window which is already prefetched. The previous prefetching is cancelled.
+   *
+   * @param segment the segment which is read
+   * @param position the position in the segment from which on it is read
+   */
+  void onRead(final Segment segment, final int position) {
+    if (segment == prefetchedSegment && position < nextWindowPosition) {
+      return;
+    }
+
+    cancel();
+    prefetchedSegment = segment;
+
+    final List<Range> ranges = new ArrayList<>(distance + 1);
+    final long windowEnd = (long) position + WINDOW_SIZE;
+    final long writtenEnd = writtenEnd(segment);
+    ranges.add(new Range(segment, position, Math.min(windowEnd, writtenEnd)));
+    if (windowEnd < writtenEnd) {
+      // continue with the next window, once the reader is half way through this one
+      nextWindowPosition = position + WINDOW_SIZE / 2;
+    } else {
+      // the rest of the segment is prefetched, continue with the start of the next segments
+      nextWindowPosition = Long.MAX_VALUE;
+      Segment nextSegment = segment;
+      for (int i = 0; i < distance; i++) {
+        nextSegment = journal.getNextSegment(nextSegment.index());
+        if (nextSegment == null) {
+          break;
+        }
+        ranges.add(new Range(nextSegment, 0, Math.min(WINDOW_SIZE, writtenEnd(nextSegment))));
+      }
+    }
+
+    task = new PrefetchTask(ranges);
+    Thread.ofVirtual().name("zdb-segment-prefetcher").start(task);
+  }
+
+  @Override
+  public void close() {
+    cancel();
+    prefetchedSegment = null;
+  }
+
+  private void cancel() {
+    if (task != null) {
+      task.cancelled = true;
+      task = null;
+    }
+  }
+
+  /**
+   * Returns up to which position the segment is written, as far as its descriptor knows. The last
+   * record starts at the last position of the descriptor, which is covered by one more chunk in
+   * most cases. If the descriptor doesn't know the last position, e.g. because the segment is still
+   * written, the segment is prefetched up to the end of the window.
+   */
+  private static long writtenEnd(final Segment segment) {
+    final int lastPosition = segment.descriptor().lastPosition();
+    return lastPosition > 0 ? (long) lastPosition + CHUNK_SIZE : Long.MAX_VALUE;
+  }
+
+  /** A byte range of a segment, which is prefetched. */
+  private record Range(Segment segment, long from, long to) {}
+
+  private static final class PrefetchTask implements Runnable {
+
+    private final List<Range> ranges;
+    private volatile boolean cancelled;
+
+    private PrefetchTask(final List<Range> ranges) {
+      this.ranges = ranges;
+    }
+
+    @Override
+    public void run() {
+      final var buffer = ByteBuffer.allocateDirect(CHUNK_SIZE);
+      for (final Range range : ranges) {
+        if (cancelled) {
+          return;
+        }
+
+        prefetch(range, buffer);
+      }
+    }
+
+    private void prefetch(final Range range, final ByteBuffer buffer) {
+      final var file = range.segment().file();
+      try (final var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+        long position = range.from();
+        while (!cancelled && position < range.to()) {
+          buffer.clear().limit((int) Math.min(CHUNK_SIZE, range.to() - position));
+          final int read = channel.read(buffer, position);
+          if (read <= 0) {
+            return;
+          }
+          position += read;
+        }
+      } catch (final IOException e) {
+        LOG.debug("Failed to prefetch segment {}, will skip it.", file, e);
+      }
+    }
+  }
+}
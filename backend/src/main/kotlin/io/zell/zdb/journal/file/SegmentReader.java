@@ -18,29 +18,47 @@
 package io.zell.zdb.journal.file;
 
 import com.google.common.base.Preconditions;
+import io.zell.zdb.journal.ChecksumVerification;
 import io.zell.zdb.journal.ReadOnlyJournalRecord;
 import io.zell.zdb.journal.record.JournalRecordReaderUtil;
+import io.zell.zdb.journal.record.JournalRecordView;
 import io.zell.zdb.journal.record.SBESerializer;
 
 import java.nio.ByteBuffer;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.function.ToLongFunction;
 
 /** Log segment reader. */
 final class SegmentReader implements Iterator<ReadOnlyJournalRecord> {
 
+  // below this distance the records are read linearly, instead of bisecting further
+  private static final int MIN_BISECT_LENGTH = 64 * 1024;
+  // a run of zeroes of this length is taken as the start of the unwritten part of a segment
+  private static final int ZERO_RUN_LENGTH = 64;
+
   private final ByteBuffer buffer;
   private final JournalIndex index;
   private final Segment segment;
   private long currentIndex;
   private final JournalRecordReaderUtil recordReader;
   private final int descriptorLength;
+  // null if every read creates a new record
+  private final JournalRecordView recordView;
+  private final ChecksumVerification checksumVerification;
 
-  SegmentReader(final ByteBuffer buffer, final Segment segment, final JournalIndex index) {
+  SegmentReader(
+      final ByteBuffer buffer,
+      final Segment segment,
+      final JournalIndex index,
+      final boolean reuseRecords,
+      final ChecksumVerification checksumVerification) {
     this.index = index;
     this.segment = segment;
     descriptorLength = segment.descriptor().length();
     recordReader = new JournalRecordReaderUtil(new SBESerializer());
+    recordView = reuseRecords ? new JournalRecordView() : null;
+    this.checksumVerification = checksumVerification;
     this.buffer = buffer;
     reset();
   }
@@ -57,6 +75,12 @@ final class SegmentReader implements Iterator<ReadOnlyJournalRecord> {
     return FrameUtil.hasValidVersion(buffer);
   }
 
+  /**
+   * Reads the next record. If the reader reuses records, the returned record is only valid until
+   * the next call, and has to be {@link ReadOnlyJournalRecord#copy() copied} to keep it.
+   *
+   * @return the next record
+   */
   @Override
   public ReadOnlyJournalRecord next() {
     if (!hasNext()) {
@@ -66,7 +90,12 @@ final class SegmentReader implements Iterator<ReadOnlyJournalRecord> {
     // Read version so that buffer's position is advanced.
     FrameUtil.readVersion(buffer);
 
-    final var currentEntry = recordReader.read(buffer, getNextIndex());
+    final long nextIndex = getNextIndex();
+    final boolean verifyChecksum = checksumVerification.shouldVerify(nextIndex - segment.index());
+    final var currentEntry =
+        recordView == null
+            ? recordReader.read(buffer, nextIndex, verifyChecksum)
+            : recordReader.read(buffer, nextIndex, verifyChecksum, recordView);
     // currentEntry should not be null as hasNext returns true
     currentIndex = currentEntry.index();
     return currentEntry;
@@ -104,6 +133,162 @@ final class SegmentReader implements Iterator<ReadOnlyJournalRecord> {
     }
   }
 
+  /**
+   * Positions the reader at a record, after which the record with the highest key less than or
+   * equal to the given key is found, by bisecting the byte range of the segment. Since the index of
+   * a record at an arbitrary position is not known, the start of the next record is searched for by
+   * probing the frames. The reader might end up some records before the searched one, so callers
+   * still need to read forward until they reach a greater key.
+   *
+   * @param key the key to seek to
+   * @param keyExtractor extracts the key of a record, or a negative value if it has none
+   */
+  void seekToKey(final long key, final ToLongFunction<ReadOnlyJournalRecord> keyExtractor) {
+    checkSegmentOpen();
+    reset();
+
+    // the record at low has a key less or equal to the given key, or is the first one
+    int low = descriptorLength;
+    long lowIndex = segment.index();
+    // records which start at or after high have a greater key, or there are none
+    int high = -1;
+
+    // the descriptor of a completed segment knows where its last record starts, if the key is
+    // beyond that record there is nothing to bisect
+    final int lastPosition = segment.descriptor().lastPosition();
+    if (lastPosition > low && isFrame(lastPosition)) {
+      final var record = readFrame(lastPosition);
+      final long recordKey = keyExtractor.applyAsLong(record);
+      if (recordKey >= 0 && recordKey <= key) {
+        low = lastPosition;
+        lowIndex = record.index();
+      } else {
+        high = lastPosition;
+      }
+    }
+
+    if (high < 0) {
+      // the segment is preallocated, probing the zeroes after the last record for frames would
+      // read them byte by byte
+      high = findWrittenLimit(low);
+    }
+
+    while (high - low > MIN_BISECT_LENGTH) {
+      final int middle = low + (high - low) / 2;
+      final int frame = findFrame(middle, high);
+      if (frame < 0) {
+        high = middle;
+        continue;
+      }
+
+      final var record = readFrame(frame);
+      final long recordKey = keyExtractor.applyAsLong(record);
+      if (recordKey >= 0 && recordKey <= key) {
+        low = frame;
+        lowIndex = record.index();
+      } else {
+        high = middle;
+      }
+    }
+
+    seekToPosition(low, lowIndex);
+  }
+
+  /**
+   * Positions the reader at the given position, at which the record with the given index starts.
+   *
+   * @param position the position of the record with in the segment
+   * @param index the index of the record at the position
+   */
+  void seekToPosition(final int position, final long index) {
+    checkSegmentOpen();
+    buffer.position(position);
+    currentIndex = index - 1;
+  }
+
+  /**
+   * Returns the key of the first record in this segment, which has one. The reader is reset
+   * afterwards.
+   *
+   * @param keyExtractor extracts the key of a record, or a negative value if it has none
+   * @return the first key, or -1 if no record in this segment has a key
+   */
+  long firstKey(final ToLongFunction<ReadOnlyJournalRecord> keyExtractor) {
+    reset();
+    try {
+      while (hasNext()) {
+        final long key = keyExtractor.applyAsLong(next());
+        if (key >= 0) {
+          return key;
+        }
+      }
+      return -1;
+    } finally {
+      reset();
+    }
+  }
+
+  /**
+   * Positions the reader at the last record of this segment. If the descriptor knows where the last
+   * record starts, only the records after it are read, which might have been written after the
+   * descriptor was updated. Otherwise, e.g. for older descriptor versions, the complete segment is
+   * read.
+   *
+   * @return the index of the last record, which will be returned by {@link #next()}
+   */
+  long seekToLastRecord() {
+    checkSegmentOpen();
+    reset();
+
+    final int lastPosition = segment.descriptor().lastPosition();
+    final long lastIndex = segment.descriptor().lastIndex();
+    if (lastIndex >= segment.index() && lastPosition > descriptorLength && isFrame(lastPosition)) {
+      final var record = readFrame(lastPosition);
+      if (record.index() == lastIndex) {
+        seekToPosition(lastPosition, lastIndex);
+      } else {
+        // the descriptor doesn't match the content, we can't trust it
+        reset();
+      }
+    }
+
+    int lastRecordPosition = -1;
+    long lastRecordIndex = currentIndex;
+    while (hasNext()) {
+      final int position = buffer.position();
+      next();
+      lastRecordPosition = position;
+      lastRecordIndex = currentIndex;
+    }
+
+    if (lastRecordPosition < 0) {
+      // there is no record in this segment
+      reset();
+    } else {
+      seekToPosition(lastRecordPosition, lastRecordIndex);
+    }
+    return getNextIndex();
+  }
+
+  /**
+   * Positions the reader at the next valid record, which starts at or after the given position.
+   * Used to continue reading after a corrupted record.
+   *
+   * @param fromPosition the position with in the segment, from which the next record is searched
+   * @return true if a valid record was found, false if the reader is at the end of the segment
+   */
+  boolean skipToNextRecord(final int fromPosition) {
+    checkSegmentOpen();
+    final int frame = findFrame(fromPosition, buffer.limit());
+    if (frame < 0) {
+      buffer.position(buffer.limit());
+      return false;
+    }
+
+    seekToPosition(frame, readFrame(frame).index());
+    return true;
+  }
+
   void close() {
     segment.onReaderClosed(this);
   }
@@ -112,6 +297,69 @@ final class SegmentReader implements Iterator<ReadOnlyJournalRecord> {
     return currentIndex + 1;
   }
 
+  /**
+   * Returns the position with in the segment, at which the next entry is read.
+   *
+   * @return the position of the next entry
+   */
+  int getNextPosition() {
+    return buffer.position();
+  }
+
+  /**
+   * Returns a position, after which nothing is written in this segment. The segment files are
+   * preallocated with zeroes, so the written part ends where the zeroes start, which is found by
+   * bisecting for a run of zeroes. A record which contains such a run might end the written part
+   * early. That's fine as upper bound of a bisection, since the records after it are still read
+   * linearly.
+   *
+   * @param from a position at which the segment is known to be written
+   * @return the end of the written part of the segment
+   */
+  private int findWrittenLimit(final int from) {
+    int low = from;
+    int high = buffer.limit();
+    while (high - low > ZERO_RUN_LENGTH) {
+      final int middle = low + (high - low) / 2;
+      if (isZeroed(middle)) {
+        high = middle;
+      } else {
+        low = middle;
+      }
+    }
+    return high;
+  }
+
+  private boolean isZeroed(final int offset) {
+    final int end = Math.min(offset + ZERO_RUN_LENGTH, buffer.limit());
+    for (int i = offset; i < end; i++) {
+      if (buffer.get(i) != 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Returns the start of the first frame in the given range, or -1 if there is none. */
+  private int findFrame(final int from, final int to) {
+    for (int offset = from; offset < to; offset++) {
+      if (isFrame(offset)) {
+        return offset;
+      }
+    }
+    return -1;
+  }
+
+  private boolean isFrame(final int offset) {
+    return FrameUtil.hasValidVersion(buffer, offset)
+        && recordReader.hasRecordAt(buffer, offset + FrameUtil.getLength());
+  }
+
+  private ReadOnlyJournalRecord readFrame(final int offset) {
+    buffer.position(offset + FrameUtil.getLength());
+    return recordReader.readAnyIndex(buffer);
+  }
+
   private void checkSegmentOpen() {
     Preconditions.checkState(
         segment.isOpen(), "Segment is already closed. Reader must reset to a valid index.");
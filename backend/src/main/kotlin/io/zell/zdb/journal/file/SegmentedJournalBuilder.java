@@ -17,6 +17,7 @@
  */
 package io.zell.zdb.journal.file;
 
+import io.zell.zdb.journal.ChecksumVerification;
 import java.io.File;
 
 import static com.google.common.base.Preconditions.checkArgument;
@@ -30,11 +31,19 @@ public class SegmentedJournalBuilder {
   private static final String DEFAULT_DIRECTORY = System.getProperty("user.dir");
   private static final int DEFAULT_MAX_SEGMENT_SIZE = 1024 * 1024 * 32;
   private static final int DEFAULT_JOURNAL_INDEX_DENSITY = 100;
+  private static final int DEFAULT_MAX_MAPPED_SEGMENTS = 8;
   protected String name = DEFAULT_NAME;
   protected File directory = new File(DEFAULT_DIRECTORY);
   protected int maxSegmentSize = DEFAULT_MAX_SEGMENT_SIZE;
+  protected int maxMappedSegments = DEFAULT_MAX_MAPPED_SEGMENTS;
 
   private int journalIndexDensity = DEFAULT_JOURNAL_INDEX_DENSITY;
+  private File indexCacheDirectory;
+  private boolean readLocking;
+  private boolean reuseRecords;
+  private ChecksumVerification checksumVerification = ChecksumVerification.FULL;
+  private int prefetchDistance;
+  private boolean directIo;
 
   protected SegmentedJournalBuilder() {}
 
@@ -97,15 +106,172 @@ public class SegmentedJournalBuilder {
     return this;
   }
 
+  /**
+   * Sets the maximum number of segments which are mapped into memory at the same time, returning
+   * the builder for method chaining.
+   *
+   * <p>Segments are mapped lazily when they are read the first time. If more segments are mapped,
+   * the least recently used segments, which are not read anymore, are unmapped again.
+   *
+   * <p>By default, the maximum number of mapped segments is {@code 8}.
+   *
+   * @param maxMappedSegments The maximum number of mapped segments.
+   * @return The journal builder.
+   * @throws IllegalArgumentException If the {@code maxMappedSegments} is not positive
+   */
+  public SegmentedJournalBuilder withMaxMappedSegments(final int maxMappedSegments) {
+    checkArgument(maxMappedSegments > 0, "maxMappedSegments must be positive");
+    this.maxMappedSegments = maxMappedSegments;
+    return this;
+  }
+
+  /**
+   * Sets the density of the journal index, returning the builder for method chaining.
+   *
+   * <p>Every {@code journalIndexDensity}-th index is indexed. A lower density allows faster seeks,
+   * but requires more memory.
+   *
+   * <p>By default, the journal index density is {@code 100}.
+   *
+   * @param journalIndexDensity The journal index density.
+   * @return The journal builder.
+   * @throws IllegalArgumentException If the {@code journalIndexDensity} is not positive
+   */
+  public SegmentedJournalBuilder withJournalIndexDensity(final int journalIndexDensity) {
+    checkArgument(journalIndexDensity > 0, "journalIndexDensity must be positive");
+    this.journalIndexDensity = journalIndexDensity;
+    return this;
+  }
+
+  /**
+   * Sets the directory in which the journal index is persisted, returning the builder for method
+   * chaining.
+   *
+   * <p>If set, the journal index is restored from the cache directory on open, and segments which
+   * are not cached yet are indexed and added to the cache. This allows to reuse the index across
+   * several runs. By default, no index is persisted.
+   *
+   * @param indexCacheDirectory The directory to persist the journal index in.
+   * @return The journal builder.
+   * @throws NullPointerException If the {@code indexCacheDirectory} is {@code null}
+   */
+  public SegmentedJournalBuilder withIndexCacheDirectory(final File indexCacheDirectory) {
+    this.indexCacheDirectory =
+        checkNotNull(indexCacheDirectory, "indexCacheDirectory cannot be null");
+    return this;
+  }
+
+  /**
+   * Sets whether readers take the read lock of the journal on every access, returning the builder
+   * for method chaining.
+   *
+   * <p>The journal is never written, which is why the lock is not needed to read it consistently
+   * and by default no lock is taken. Each reader has its own state, which means a single reader
+   * must still not be shared between threads.
+   *
+   * @param readLocking whether to take the read lock on every access
+   * @return The journal builder.
+   */
+  public SegmentedJournalBuilder withReadLocking(final boolean readLocking) {
+    this.readLocking = readLocking;
+    return this;
+  }
+
+  /**
+   * Sets whether readers reuse the same record for every read, returning the builder for method
+   * chaining.
+   *
+   * <p>If enabled, the record returned by {@link io.zell.zdb.journal.JournalReader#next()} is a
+   * view, which is wrapped again on the next read. This avoids several allocations per record,
+   * which matters when scanning large logs. Callers which keep records have to copy them via
+   * {@link io.zell.zdb.journal.ReadOnlyJournalRecord#copy()}. By default, records are not reused.
+   *
+   * @param reuseRecords whether readers reuse the same record for every read
+   * @return The journal builder.
+   */
+  public SegmentedJournalBuilder withRecordReuse(final boolean reuseRecords) {
+    this.reuseRecords = reuseRecords;
+    return this;
+  }
+
+  /**
+   * Sets which records are verified against their checksum when they are read, returning the
+   * builder for method chaining.
+   *
+   * <p>Computing the checksum of every record costs a significant part of the CPU time when
+   * scanning a log. If the log is known to be intact, the verification can be reduced to samples
+   * or turned off. By default, every record is verified.
+   *
+   * @param checksumVerification which records to verify
+   * @return The journal builder.
+   * @throws NullPointerException If the {@code checksumVerification} is {@code null}
+   */
+  public SegmentedJournalBuilder withChecksumVerification(
+      final ChecksumVerification checksumVerification) {
+    this.checksumVerification =
+        checkNotNull(checksumVerification, "checksumVerification cannot be null");
+    return this;
+  }
+
+  /**
+   * Sets how many segments readers prefetch ahead of the segment they currently read, returning the
+   * builder for method chaining.
+   *
+   * <p>If enabled, the next few MB after the read position are read into the page cache in the
+   * background, while the records are decoded. At the end of the current segment, the start of the
+   * next {@code prefetchDistance} segments is read as well. This overlaps the I/O with the
+   * decoding, which matters on slow or network attached disks. By default, nothing is prefetched.
+   *
+   * @param prefetchDistance the number of segments to prefetch, 0 to disable prefetching
+   * @return The journal builder.
+   * @throws IllegalArgumentException If the {@code prefetchDistance} is negative
+   */
+  public SegmentedJournalBuilder withPrefetchDistance(final int prefetchDistance) {
+    checkArgument(prefetchDistance >= 0, "prefetchDistance must not be negative");
+    this.prefetchDistance = prefetchDistance;
+    return this;
+  }
+
+  /**
+   * Sets whether readers stream the segments with direct I/O, instead of mapping them, returning
+   * the builder for method chaining.
+   *
+   * <p>Reading a log through the mapped segments fills the page cache, which evicts the pages of
+   * other processes on the same host. With direct I/O, readers bypass the page cache, only seeks
+   * still read the few records they need through the mapped segments. The {@link
+   * SegmentedReadOnlyJournal#spliterator()} always reads the mapped segments. By default, the
+   * segments are mapped.
+   *
+   * @param directIo whether readers stream the segments with direct I/O
+   * @return The journal builder.
+   */
+  public SegmentedJournalBuilder withDirectIo(final boolean directIo) {
+    this.directIo = directIo;
+    return this;
+  }
+
   public SegmentedReadOnlyJournal build() {
     final var journalIndex = new SparseJournalIndex(journalIndexDensity);
+    final var journalIndexCache =
+        indexCacheDirectory == null
+            ? null
+            : new JournalIndexCache(indexCacheDirectory, directory, name, journalIndexDensity);
     final var segmentsManager =
         new SegmentsManager(
             journalIndex,
+            journalIndexCache,
             maxSegmentSize,
+            maxMappedSegments,
             directory,
             name);
 
-    return new SegmentedReadOnlyJournal(journalIndex, segmentsManager);
+    return new SegmentedReadOnlyJournal(
+        journalIndex,
+        segmentsManager,
+        readLocking,
+        reuseRecords,
+        checksumVerification,
+        prefetchDistance,
+        directIo);
   }
 }
@@ -18,34 +18,59 @@
 package io.zell.zdb.journal.file;
 
 
+import io.zell.zdb.journal.ChecksumVerification;
 import io.zell.zdb.journal.JournalReader;
 import io.zell.zdb.journal.ReadOnlyJournalRecord;
 
+import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.function.ToLongFunction;
 
 import static io.zell.zdb.journal.file.SegmentedReadOnlyJournal.ASQN_IGNORE;
 
 class SegmentedJournalReader implements JournalReader {
 
   private final SegmentedReadOnlyJournal journal;
+  // null if the journal doesn't prefetch
+  private final SegmentPrefetcher prefetcher;
   private Segment currentSegment;
   private SegmentReader currentReader;
 
   SegmentedJournalReader(final SegmentedReadOnlyJournal journal) {
+    this(journal, journal.getPrefetchDistance());
+  }
+
+  /**
+   * @param journal the journal to read
+   * @param prefetchDistance how many segments to prefetch, 0 to disable prefetching
+   */
+  SegmentedJournalReader(final SegmentedReadOnlyJournal journal, final int prefetchDistance) {
     this.journal = journal;
+    prefetcher = prefetchDistance > 0 ? new SegmentPrefetcher(journal, prefetchDistance) : null;
     initialize();
   }
 
   /** Initializes the reader to the given index. */
   private void initialize() {
     currentSegment = journal.getFirstSegment();
-    currentReader = currentSegment.createReader();
+    currentReader =
+        currentSegment.createReader(journal.reusesRecords(), journal.getChecksumVerification());
   }
 
   public long getNextIndex() {
     return currentReader.getNextIndex();
   }
 
+  /** Returns the segment which contains the next record. */
+  Segment getCurrentSegment() {
+    return currentSegment;
+  }
+
+  /** Returns the position of the next record in the {@link #getCurrentSegment() current segment}. */
+  int getNextPosition() {
+    return currentReader.getNextPosition();
+  }
+
   @Override
   public boolean hasNext() {
     final var stamp = journal.acquireReadlock();
@@ -71,6 +96,10 @@ class SegmentedJournalReader implements JournalReader {
       throw new NoSuchElementException();
     }
 
+    if (prefetcher != null) {
+      // only started once records are read, seeking alone doesn't need the following pages
+      prefetcher.onRead(currentSegment, currentReader.getNextPosition());
+    }
     return currentReader.next();
   }
 
@@ -118,8 +147,10 @@ class SegmentedJournalReader implements JournalReader {
         final var index = journalIndex.lookupAsqn(asqn, indexUpperBound);
 
         // depending on the type of index, it's possible there is no ASQN indexed, in which case
-        // start from the beginning
-        if (index == null) {
+        // we bisect the journal, or start from the beginning if we are bound to an index
+        if (index == null && indexUpperBound >= journal.getLastIndex()) {
+          return unsafeSeekToKey(asqn, ReadOnlyJournalRecord::asqn);
+        } else if (index == null) {
           unsafeSeekToFirst();
         } else {
           unsafeSeek(index);
@@ -127,14 +158,15 @@ class SegmentedJournalReader implements JournalReader {
 
         // potential beneficiary of a peek() call, which would avoid the duplicate seek or
         // being at the second position if the first entry has a greater ASQN
-        ReadOnlyJournalRecord record = null;
+        // only the index is kept, since the reader might reuse the record on the next read
+        long recordIndex = -1;
         while (unsafeHasNext()) {
           final var currentRecord = next();
           if (currentRecord.index() > indexUpperBound) {
             break;
           }
           if (currentRecord.asqn() <= asqn && currentRecord.asqn() != ASQN_IGNORE) {
-            record = currentRecord;
+            recordIndex = currentRecord.index();
           } else if (currentRecord.asqn() >= asqn) {
             break;
           }
@@ -143,20 +175,34 @@ class SegmentedJournalReader implements JournalReader {
         // if the journal was empty, the reader will be at the beginning of the log
         // if the journal only contained entries with ASQN greater than the one requested, then seek
         // back to the beginning
-        if (record == null) {
+        if (recordIndex == -1) {
           return unsafeSeekToFirst();
         }
 
         // This is needed so that the next() returns the correct record
         // TODO: Remove the duplicate seek. https://github.com/zeebe-io/zeebe/issues/6223
-        return unsafeSeek(record.index());
+        return unsafeSeek(recordIndex);
       } finally {
         journal.releaseReadlock(stamp);
       }
   }
 
+  @Override
+  public long seekToKey(
+      final long key, final ToLongFunction<ReadOnlyJournalRecord> keyExtractor) {
+    final var stamp = journal.acquireReadlock();
+    try {
+      return unsafeSeekToKey(key, keyExtractor);
+    } finally {
+      journal.releaseReadlock(stamp);
+    }
+  }
+
   @Override
   public void close() {
+    if (prefetcher != null) {
+      prefetcher.close();
+    }
     currentReader.close();
     journal.closeReader(this);
   }
@@ -183,10 +229,74 @@ class SegmentedJournalReader implements JournalReader {
   }
 
   private long unsafeSeekToLast() {
-    replaceCurrentSegment(journal.getLastSegment());
-    unsafeSeek(journal.getLastIndex());
+    // the last segment might not contain any record yet, e.g. when it was just created
+    final List<Segment> segments = journal.getSegments();
+    for (int i = segments.size() - 1; i >= 0; i--) {
+      replaceCurrentSegment(segments.get(i));
+      final long lastIndex = currentReader.seekToLastRecord();
+      if (currentReader.hasNext()) {
+        return lastIndex;
+      }
+    }
+
+    return unsafeSeekToFirst();
+  }
+
+  private long unsafeSeekToKey(
+      final long key, final ToLongFunction<ReadOnlyJournalRecord> keyExtractor) {
+    // find the last segment which starts with a lower or equal key
+    final List<Segment> segments = journal.getSegments();
+    Segment segment = segments.get(0);
+    int low = 0;
+    int high = segments.size() - 1;
+    while (low <= high) {
+      final int middle = (low + high) >>> 1;
+      final var candidate = segments.get(middle);
+      if (firstKey(candidate, keyExtractor) <= key) {
+        segment = candidate;
+        low = middle + 1;
+      } else {
+        high = middle - 1;
+      }
+    }
+
+    replaceCurrentSegment(segment);
+    currentReader.seekToKey(key, keyExtractor);
+
+    // the bisection gets us close, the last steps are read linearly
+    Segment foundSegment = null;
+    int foundPosition = 0;
+    long foundIndex = 0;
+    while (unsafeHasNext()) {
+      final int position = currentReader.getNextPosition();
+      final var record = currentReader.next();
+      final long recordKey = keyExtractor.applyAsLong(record);
+      if (recordKey > key) {
+        break;
+      } else if (recordKey >= 0) {
+        foundSegment = currentSegment;
+        foundPosition = position;
+        foundIndex = record.index();
+      }
+    }
+
+    if (foundSegment == null) {
+      return unsafeSeekToFirst();
+    }
+
+    replaceCurrentSegment(foundSegment);
+    currentReader.seekToPosition(foundPosition, foundIndex);
+    return foundIndex;
+  }
 
-    return journal.getLastIndex();
+  private static long firstKey(
+      final Segment segment, final ToLongFunction<ReadOnlyJournalRecord> keyExtractor) {
+    final var reader = segment.createReader(true, ChecksumVerification.FULL);
+    try {
+      return reader.firstKey(keyExtractor);
+    } finally {
+      reader.close();
+    }
   }
 
   /** Rewinds the journal to the given index. */
@@ -241,6 +351,7 @@ class SegmentedJournalReader implements JournalReader {
 
     currentReader.close();
     currentSegment = nextSegment;
-    currentReader = currentSegment.createReader();
+    currentReader =
+        currentSegment.createReader(journal.reusesRecords(), journal.getChecksumVerification());
   }
 }
@@ -18,11 +18,15 @@
 package io.zell.zdb.journal.file;
 
 import com.google.common.collect.Sets;
+import io.zell.zdb.journal.ChecksumVerification;
 import io.zell.zdb.journal.JournalReader;
 import io.zell.zdb.journal.ReadOnlyJournal;
+import io.zell.zdb.journal.ReadOnlyJournalRecord;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Objects;
+import java.util.Spliterator;
 import java.util.concurrent.locks.StampedLock;
 
 import static com.google.common.base.Preconditions.checkState;
@@ -35,12 +39,28 @@ public final class SegmentedReadOnlyJournal implements ReadOnlyJournal {
   private final JournalIndex journalIndex;
   private final StampedLock rwlock = new StampedLock();
   private final SegmentsManager segments;
+  private final boolean readLocking;
+  private final boolean reuseRecords;
+  private final ChecksumVerification checksumVerification;
+  private final int prefetchDistance;
+  private final boolean directIo;
 
   SegmentedReadOnlyJournal(
       final JournalIndex journalIndex,
-      final SegmentsManager segments) {
+      final SegmentsManager segments,
+      final boolean readLocking,
+      final boolean reuseRecords,
+      final ChecksumVerification checksumVerification,
+      final int prefetchDistance,
+      final boolean directIo) {
     this.journalIndex = Objects.requireNonNull(journalIndex, "must specify a journal index");
     this.segments = Objects.requireNonNull(segments, "must specify a journal segments manager");
+    this.readLocking = readLocking;
+    this.reuseRecords = reuseRecords;
+    this.checksumVerification =
+        Objects.requireNonNull(checksumVerification, "must specify a checksum verification");
+    this.prefetchDistance = prefetchDistance;
+    this.directIo = directIo;
     this.segments.open();
   }
 
@@ -75,6 +95,13 @@ public final class SegmentedReadOnlyJournal implements ReadOnlyJournal {
   public JournalReader openReader() {
     final var stamped = acquireReadlock();
     try {
+      if (directIo) {
+        // the pages aren't read through the page cache anyway, nothing to prefetch
+        final var seekReader = new SegmentedJournalReader(this, 0);
+        readers.add(seekReader);
+        return new DirectJournalReader(this, seekReader);
+      }
+
       final var reader = new SegmentedJournalReader(this);
       readers.add(reader);
       return reader;
@@ -83,6 +110,30 @@ public final class SegmentedReadOnlyJournal implements ReadOnlyJournal {
     }
   }
 
+  @Override
+  public Spliterator<ReadOnlyJournalRecord> spliterator() {
+    final var allSegments = getSegments();
+    return new JournalSpliterator(
+        allSegments, 0, allSegments.size(), reuseRecords, checksumVerification);
+  }
+
+  /**
+   * Loads the segment files, which have been created since the journal was opened, e.g. while a
+   * broker still writes to the log. Records which are appended to a loaded segment are seen by the
+   * readers anyway, since the segments are mapped. Other than opening the journal again, the
+   * loaded segments and their mappings are kept.
+   *
+   * @return the number of loaded segments
+   */
+  public int refresh() {
+    final long stamp = rwlock.writeLock();
+    try {
+      return segments.refresh();
+    } finally {
+      rwlock.unlockWrite(stamp);
+    }
+  }
+
   @Override
   public boolean isOpen() {
     return open;
@@ -144,6 +195,16 @@ public final class SegmentedReadOnlyJournal implements ReadOnlyJournal {
     return segments.getSegment(index);
   }
 
+  /**
+   * Returns all segments of the log, ordered by their first index.
+   *
+   * @throws IllegalStateException if the segment manager is not open
+   */
+  List<Segment> getSegments() {
+    assertOpen();
+    return segments.getSegments();
+  }
+
   public void closeReader(final SegmentedJournalReader segmentedJournalReader) {
     readers.remove(segmentedJournalReader);
   }
@@ -151,11 +212,48 @@ public final class SegmentedReadOnlyJournal implements ReadOnlyJournal {
     return journalIndex;
   }
 
+  /**
+   * Returns whether the readers of this journal reuse the same record for every read.
+   *
+   * @see SegmentedJournalBuilder#withRecordReuse(boolean)
+   */
+  boolean reusesRecords() {
+    return reuseRecords;
+  }
+
+  /**
+   * Returns which records the readers of this journal verify against their checksum.
+   *
+   * @see SegmentedJournalBuilder#withChecksumVerification(ChecksumVerification)
+   */
+  ChecksumVerification getChecksumVerification() {
+    return checksumVerification;
+  }
+
+  /**
+   * Returns how many segments the readers of this journal prefetch ahead of the current one, 0 if
+   * they don't prefetch.
+   *
+   * @see SegmentedJournalBuilder#withPrefetchDistance(int)
+   */
+  int getPrefetchDistance() {
+    return prefetchDistance;
+  }
+
+  /**
+   * Acquires the read lock, if read locking is enabled. Since the journal is never written, readers
+   * don't need to lock by default, which spares the lock on every {@code hasNext()} and {@code
+   * next()}.
+   *
+   * @return the stamp to release the lock with
+   */
   long acquireReadlock() {
-    return rwlock.readLock();
+    return readLocking ? rwlock.readLock() : 0;
   }
 
   void releaseReadlock(final long stamp) {
-    rwlock.unlockRead(stamp);
+    if (readLocking) {
+      rwlock.unlockRead(stamp);
+    }
   }
 }
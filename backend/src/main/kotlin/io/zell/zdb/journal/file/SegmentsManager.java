@@ -9,17 +9,12 @@ package io.zell.zdb.journal.file;
 
 import io.camunda.zeebe.journal.CorruptedJournalException;
 import io.camunda.zeebe.journal.JournalException;
-import org.agrona.IoUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
-import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 import java.util.*;
@@ -36,6 +31,8 @@ final class SegmentsManager implements AutoCloseable {
 
   private final NavigableMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
   private final JournalIndex journalIndex;
+  private final JournalIndexCache journalIndexCache;
+  private final MappedSegments mappedSegments;
   private final int maxSegmentSize;
   private final File directory;
   private final String name;
@@ -43,11 +40,15 @@ final class SegmentsManager implements AutoCloseable {
 
   SegmentsManager(
       final JournalIndex journalIndex,
+      final JournalIndexCache journalIndexCache,
       final int maxSegmentSize,
+      final int maxMappedSegments,
       final File directory,
       final String name) {
     this.name = checkNotNull(name, "name cannot be null");
     this.journalIndex = journalIndex;
+    this.journalIndexCache = journalIndexCache;
+    mappedSegments = new MappedSegments(maxMappedSegments);
     this.maxSegmentSize = maxSegmentSize;
     this.directory = directory;
   }
@@ -84,6 +85,10 @@ final class SegmentsManager implements AutoCloseable {
     return nextSegment != null ? nextSegment.getValue() : null;
   }
 
+  List<Segment> getSegments() {
+    return List.copyOf(segments.values());
+  }
+
   Segment getSegment(final long index) {
     // Check if the current segment contains the given index first in order to prevent an
     // unnecessary map lookup.
@@ -112,6 +117,10 @@ final class SegmentsManager implements AutoCloseable {
     } else {
       throw new IllegalStateException("Expected to read segments, but there was nothing to read.");
     }
+
+    if (journalIndexCache != null) {
+      journalIndexCache.restore(segments.values(), journalIndex);
+    }
   }
 
   /**
@@ -126,7 +135,7 @@ final class SegmentsManager implements AutoCloseable {
     directory.mkdirs();
     final List<Segment> segments = new ArrayList<>();
 
-    final List<File> files = getSortedLogSegments();
+    final List<File> files = SegmentFile.getSortedSegmentFiles(directory, name);
     Segment previousSegment = null;
     for (int i = 0; i < files.size(); i++) {
       final File file = files.get(i);
@@ -153,9 +162,45 @@ final class SegmentsManager implements AutoCloseable {
     return segments;
   }
 
-  private SegmentDescriptor readDescriptor(final ByteBuffer buffer, final String fileName) {
+  /**
+   * Loads the segment files, which have been created since the segments were loaded, e.g. by a
+   * broker which still writes to the journal. The already loaded segments are kept as they are.
+   * Segments which are prepared but not written yet, are loaded by a later refresh.
+   *
+   * @return the number of loaded segments
+   */
+  int refresh() {
+    Segment lastSegment = getLastSegment();
+    final int lastFileId =
+        SegmentFile.getSegmentIdFromPath(lastSegment.file().getFileName().toString());
+
+    int loadedSegments = 0;
+    for (final File file : SegmentFile.getSortedSegmentFiles(directory, name)) {
+      if (SegmentFile.getSegmentIdFromPath(file.getName()) <= lastFileId) {
+        continue;
+      }
+
+      try {
+        final Segment segment =
+            loadExistingSegment(file.toPath(), lastSegment.getLastWrittenAsqn(), journalIndex);
+        segments.put(segment.descriptor().index(), segment);
+        lastSegment = segment;
+        loadedSegments++;
+      } catch (final EmptySegmentException | CorruptedJournalException e) {
+        // the descriptor might not be written completely yet, retry on the next refresh
+        LOG.trace("Expected to load new segment {}, but failed, will retry later.", file.getName(), e);
+        break;
+      }
+    }
+
+    currentSegment = lastSegment;
+    return loadedSegments;
+  }
+
+  private SegmentDescriptor readDescriptor(final FileChannel channel, final String fileName)
+          throws IOException {
     try {
-      return new SegmentDescriptorReader().readFrom(buffer);
+      return new SegmentDescriptorReader().readFrom(channel);
     } catch (final IndexOutOfBoundsException e) {
       throw new JournalException(
               String.format(
@@ -167,81 +212,19 @@ final class SegmentsManager implements AutoCloseable {
     }
   }
 
-  private byte readVersion(final FileChannel channel, final String fileName) throws IOException {
-    final ByteBuffer buffer = ByteBuffer.allocate(1);
-    final int readBytes = channel.read(buffer);
-
-    if (readBytes == 0) {
-      throw new JournalException(
-              String.format(
-                      "Expected to read the version byte from segment '%s' but nothing was read.",
-                      fileName));
-    } else if (readBytes == -1) {
-      throw new CorruptedJournalException(
-              String.format(
-                      "Expected to read the version byte from segment '%s' but got EOF instead.",
-                      fileName));
-    }
-
-    return buffer.get(0);
-  }
-  private static final ByteOrder ENDIANNESS = ByteOrder.LITTLE_ENDIAN;
-
-  private MappedByteBuffer mapSegment(final FileChannel channel, final long segmentSize)
-          throws IOException {
-    final var mappedSegment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
-    mappedSegment.order(ENDIANNESS);
-
-    return mappedSegment;
-  }
+  /**
+   * Loads the segment without mapping it. Only the descriptor is read from the file, the segment is
+   * mapped lazily when it is read the first time.
+   */
   Segment loadExistingSegment(
           final Path segmentFile, final long lastWrittenAsqn, final JournalIndex journalIndex) {
 
-    try (final var channel =
-                 FileChannel.open(segmentFile, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
-      MappedByteBuffer mappedSegment;
-      final var initialMappedLength = Files.size(segmentFile);
-      mappedSegment = mapSegment(channel, initialMappedLength);
-      final var descriptor = readDescriptor(mappedSegment, segmentFile.getFileName().toString());
-
-      if (descriptor.maxSegmentSize() > initialMappedLength) {
-        // remap with actual size
-        IoUtil.unmap(mappedSegment);
-        mappedSegment = mapSegment(channel, descriptor.maxSegmentSize());
-      }
-
-      return loadSegment(segmentFile, mappedSegment, descriptor, lastWrittenAsqn, journalIndex);
+    try (final var channel = FileChannel.open(segmentFile, StandardOpenOption.READ)) {
+      final var descriptor = readDescriptor(channel, segmentFile.getFileName().toString());
+      return new Segment(segmentFile, descriptor, lastWrittenAsqn, journalIndex, mappedSegments);
     } catch (final IOException e) {
       throw new JournalException(
               String.format("Failed to load existing segment %s", segmentFile), e);
     }
   }
-
-  /* ---- Internal methods ------ */
-  private Segment loadSegment(
-          final Path file,
-          final MappedByteBuffer buffer,
-          final SegmentDescriptor descriptor,
-          final long lastWrittenAsqn,
-          final JournalIndex journalIndex) {
-    return new Segment(descriptor, buffer, lastWrittenAsqn, journalIndex);
-  }
-
-
-  /** Returns an array of valid log segments sorted by their id which may be empty but not null. */
-  private List<File> getSortedLogSegments() {
-    final File[] files =
-        directory.listFiles(file -> file.isFile() && SegmentFile.isSegmentFile(name, file));
-
-    if (files == null) {
-      throw new IllegalStateException(
-          String.format(
-              "Could not list files in directory '%s'. Either the path doesn't point to a directory or an I/O error occurred.",
-              directory));
-    }
-
-    Arrays.sort(files, Comparator.comparingInt(f -> SegmentFile.getSegmentIdFromPath(f.getName())));
-
-    return Arrays.asList(files);
-  }
 }
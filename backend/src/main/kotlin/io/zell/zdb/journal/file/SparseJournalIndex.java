@@ -17,20 +17,32 @@
 package io.zell.zdb.journal.file;
 
 import io.zell.zdb.journal.ReadOnlyJournalRecord;
+import java.util.Arrays;
 
-import java.util.Map;
-import java.util.concurrent.ConcurrentNavigableMap;
-import java.util.concurrent.ConcurrentSkipListMap;
-
+/**
+ * Indexes every {@code density}-th record. The indexed records are kept in sorted primitive arrays,
+ * which are searched by binary search. Other than sorted maps, the arrays don't box the keys and
+ * values and have no per entry overhead, which matters for logs with hundreds of millions of
+ * records.
+ *
+ * <p>Records are usually indexed in order, in which case they are appended. Seeking back and forth
+ * can index records out of order, those are inserted at their place.
+ */
 final class SparseJournalIndex implements JournalIndex {
 
+  private static final int INITIAL_CAPACITY = 1024;
+
   private final int density;
-  private final ConcurrentNavigableMap<Long, Integer> indexToPosition =
-      new ConcurrentSkipListMap<>();
-  private final ConcurrentNavigableMap<Long, Long> asqnToIndex = new ConcurrentSkipListMap<>();
-  // This is added to make deleteAfter and deleteUntil easier.
-  // TODO: Check if this can be improved. https://github.com/zeebe-io/zeebe/issues/6220
-  private final ConcurrentNavigableMap<Long, Long> indexToAsqn = new ConcurrentSkipListMap<>();
+
+  // guarded by this, sorted by index
+  private long[] indexes = new long[INITIAL_CAPACITY];
+  private int[] positions = new int[INITIAL_CAPACITY];
+  private int size;
+
+  // guarded by this, only the indexed records which have an asqn, sorted by index and asqn
+  private long[] asqnIndexes = new long[INITIAL_CAPACITY];
+  private long[] asqns = new long[INITIAL_CAPACITY];
+  private int asqnSize;
 
   SparseJournalIndex(final int density) {
     this.density = density;
@@ -38,34 +50,64 @@ final class SparseJournalIndex implements JournalIndex {
 
   @Override
   public void index(final ReadOnlyJournalRecord indexedEntry, final int position) {
-    final long index = indexedEntry.index();
+    index(indexedEntry.index(), indexedEntry.asqn(), position);
+  }
+
+  @Override
+  public void index(final long index, final long asqn, final int position) {
     if (index % density == 0) {
-      indexToPosition.put(index, position);
-      final long asqn = indexedEntry.asqn();
-      if (asqn != SegmentedReadOnlyJournal.ASQN_IGNORE) {
-        asqnToIndex.put(asqn, index);
-        indexToAsqn.put(index, asqn);
+      addEntry(index, asqn, position);
+    }
+  }
+
+  private synchronized void addEntry(final long index, final long asqn, final int position) {
+    final int slot = insertionSlot(indexes, size, index);
+    if (slot < 0) {
+      // already indexed
+      return;
+    }
+
+    if (size == indexes.length) {
+      indexes = Arrays.copyOf(indexes, size * 2);
+      positions = Arrays.copyOf(positions, size * 2);
+    }
+    insert(indexes, size, slot, index);
+    System.arraycopy(positions, slot, positions, slot + 1, size - slot);
+    positions[slot] = position;
+    size++;
+
+    if (asqn != SegmentedReadOnlyJournal.ASQN_IGNORE) {
+      final int asqnSlot = insertionSlot(asqnIndexes, asqnSize, index);
+      if (asqnSize == asqnIndexes.length) {
+        asqnIndexes = Arrays.copyOf(asqnIndexes, asqnSize * 2);
+        asqns = Arrays.copyOf(asqns, asqnSize * 2);
       }
+      insert(asqnIndexes, asqnSize, asqnSlot, index);
+      insert(asqns, asqnSize, asqnSlot, asqn);
+      asqnSize++;
     }
   }
 
   @Override
-  public IndexInfo lookup(final long index) {
-    final Map.Entry<Long, Integer> entry = indexToPosition.floorEntry(index);
-    return entry != null ? new IndexInfo(entry.getKey(), entry.getValue()) : null;
+  public synchronized IndexInfo lookup(final long index) {
+    final int slot = floorSlot(indexes, size, index);
+    return slot >= 0 ? new IndexInfo(indexes[slot], positions[slot]) : null;
   }
 
   @Override
-  public Long lookupAsqn(final long asqn, final long indexUpperBound) {
-    final Map.Entry<Long, Long> entry = asqnToIndex.floorEntry(asqn);
-    if (entry != null) {
-      if (entry.getValue() <= indexUpperBound) {
-        return entry.getValue();
-      } else {
-        return indexToAsqn.floorKey(indexUpperBound);
-      }
+  public synchronized Long lookupAsqn(final long asqn, final long indexUpperBound) {
+    // the asqns increase with the indexes, which is why both arrays are sorted
+    final int slot = floorSlot(asqns, asqnSize, asqn);
+    if (slot < 0) {
+      return null;
+    }
+
+    if (asqnIndexes[slot] <= indexUpperBound) {
+      return asqnIndexes[slot];
     }
-    return null;
+
+    final int upperBoundSlot = floorSlot(asqnIndexes, asqnSize, indexUpperBound);
+    return upperBoundSlot >= 0 ? asqnIndexes[upperBoundSlot] : null;
   }
 
   @Override
@@ -77,4 +119,30 @@ final class SparseJournalIndex implements JournalIndex {
       return indexInfo.index() > index - density;
     }
   }
+
+  /** Returns the slot of the greatest value less than or equal to the given one, or -1. */
+  private static int floorSlot(final long[] values, final int size, final long value) {
+    // appended in order, so the last value is the most likely match for the latest records
+    if (size > 0 && values[size - 1] <= value) {
+      return size - 1;
+    }
+
+    final int slot = Arrays.binarySearch(values, 0, size, value);
+    return slot >= 0 ? slot : -slot - 2;
+  }
+
+  /** Returns the slot at which the value has to be inserted, or -1 if it is already contained. */
+  private static int insertionSlot(final long[] values, final int size, final long value) {
+    if (size == 0 || values[size - 1] < value) {
+      return size;
+    }
+
+    final int slot = Arrays.binarySearch(values, 0, size, value);
+    return slot >= 0 ? -1 : -slot - 1;
+  }
+
+  private static void insert(final long[] values, final int size, final int slot, final long value) {
+    System.arraycopy(values, slot, values, slot + 1, size - slot);
+    values[slot] = value;
+  }
 }
@@ -20,6 +20,9 @@ public final class JournalRecordReaderUtil {
 
   private final JournalRecordSerializer serializer;
   private final ChecksumGenerator checksumGenerator = new ChecksumGenerator();
+  private final UnsafeBuffer probeBuffer = new UnsafeBuffer(0, 0);
+  private final UnsafeBuffer recordBuffer = new UnsafeBuffer(0, 0);
+  private final JournalRecordView scratchView = new JournalRecordView();
 
   public JournalRecordReaderUtil(final JournalRecordSerializer serializer) {
     this.serializer = serializer;
@@ -30,6 +33,95 @@ public final class JournalRecordReaderUtil {
    * position of {@code buffer} will be advanced to the next record.
    */
   public ReadOnlyJournalRecord read(final ByteBuffer buffer, final long expectedIndex) {
+    return read(buffer, expectedIndex, true);
+  }
+
+  /**
+   * Same as {@link #read(ByteBuffer, long)}, but the checksum of the record is only verified if
+   * {@code verifyChecksum} is true.
+   */
+  public ReadOnlyJournalRecord read(
+      final ByteBuffer buffer, final long expectedIndex, final boolean verifyChecksum) {
+    read(buffer, expectedIndex, true, verifyChecksum, scratchView);
+    return toPersistedRecord(buffer, scratchView);
+  }
+
+  /**
+   * Same as {@link #read(ByteBuffer, long, boolean)}, but the record is read into the given view
+   * instead of allocating a new record. The view is only valid until it is used to read the next
+   * record.
+   */
+  public ReadOnlyJournalRecord read(
+      final ByteBuffer buffer,
+      final long expectedIndex,
+      final boolean verifyChecksum,
+      final JournalRecordView view) {
+    read(buffer, expectedIndex, true, verifyChecksum, view);
+    return view;
+  }
+
+  /**
+   * Same as {@link #read(ByteBuffer, long)}, but the index of the record is not validated. Useful if
+   * the index of the record at the current position is not known, e.g. when bisecting a segment.
+   */
+  public ReadOnlyJournalRecord readAnyIndex(final ByteBuffer buffer) {
+    read(buffer, 0, false, true, scratchView);
+    return toPersistedRecord(buffer, scratchView);
+  }
+
+  /**
+   * Returns true if there is a valid record at the given offset of the buffer, which is the case if
+   * the metadata header matches and the checksum of the record is valid. The position of the buffer
+   * is unchanged. Other than {@link #read(ByteBuffer, long)} this doesn't throw on invalid data,
+   * which makes it cheap to probe arbitrary offsets for the start of a record.
+   */
+  public boolean hasRecordAt(final ByteBuffer buffer, final int offset) {
+    if (offset + serializer.getMetadataLength() > buffer.limit()) {
+      return false;
+    }
+
+    probeBuffer.wrap(buffer, offset, buffer.limit() - offset);
+    if (!serializer.hasMetadata(probeBuffer, 0)) {
+      return false;
+    }
+
+    final RecordMetadata metadata = serializer.readMetadata(probeBuffer, 0);
+    final int metadataLength = serializer.getMetadataLength(probeBuffer, 0);
+    final int recordLength = metadata.length();
+    if (recordLength <= 0 || offset + metadataLength + recordLength > buffer.limit()) {
+      return false;
+    }
+
+    return checksumGenerator.compute(buffer, offset + metadataLength, recordLength)
+        == metadata.checksum();
+  }
+
+  /**
+   * Returns the number of bytes of the record at the given offset of the buffer, including its
+   * metadata, or -1 if there is no complete and valid metadata at the offset. The position of the
+   * buffer is unchanged. Useful to find out whether a buffer, which is filled incrementally,
+   * contains the complete record.
+   */
+  public int getRecordLength(final ByteBuffer buffer, final int offset) {
+    if (offset + serializer.getMetadataLength() > buffer.limit()) {
+      return -1;
+    }
+
+    probeBuffer.wrap(buffer, offset, buffer.limit() - offset);
+    if (!serializer.hasMetadata(probeBuffer, 0)) {
+      return -1;
+    }
+
+    serializer.readMetadata(probeBuffer, 0, scratchView);
+    return serializer.getMetadataLength(probeBuffer, 0) + scratchView.length();
+  }
+
+  private void read(
+      final ByteBuffer buffer,
+      final long expectedIndex,
+      final boolean validateIndex,
+      final boolean verifyChecksum,
+      final JournalRecordView view) {
     // Mark the buffer so it can be reset if necessary.
     buffer.mark();
 
@@ -41,44 +133,53 @@ public final class JournalRecordReaderUtil {
 
     final int startPosition = buffer.position();
 
-    final UnsafeBuffer directBuffer = new UnsafeBuffer(buffer.slice());
+    recordBuffer.wrap(buffer, startPosition, buffer.limit() - startPosition);
 
-    final RecordMetadata metadata = serializer.readMetadata(directBuffer, 0);
+    serializer.readMetadata(recordBuffer, 0, view);
 
-    final int metadataLength = serializer.getMetadataLength(directBuffer, 0);
-    final var recordLength = metadata.length();
+    final int metadataLength = serializer.getMetadataLength(recordBuffer, 0);
+    final var recordLength = view.length();
     if (buffer.position() + metadataLength + recordLength > buffer.limit()) {
       // There is no valid record here. This should not happen, if we have magic headers before
       // each record.
       throw new CorruptedJournalException(
           String.format(
               "Expected to read a record at position %d, with metadata %s, but reached the end of the segment.",
-              buffer.position(), metadata));
+              buffer.position(), new RecordMetadata(view.checksum(), recordLength)));
     }
 
-    // verify checksum
-    final long checksum =
-        checksumGenerator.compute(buffer, startPosition + metadataLength, recordLength);
+    if (verifyChecksum) {
+      final long checksum =
+          checksumGenerator.compute(buffer, startPosition + metadataLength, recordLength);
 
-    if (checksum != metadata.checksum()) {
-      buffer.reset();
-      throw new CorruptedJournalException(
-          "Record's checksum (%d) doesn't match checksum stored in metadata (%d)."
-              .formatted(checksum, metadata.checksum()));
+      if (checksum != view.checksum()) {
+        buffer.reset();
+        throw new CorruptedJournalException(
+            "Record's checksum (%d) doesn't match checksum stored in metadata (%d)."
+                .formatted(checksum, view.checksum()));
+      }
     }
 
     // Read record
-    final RecordData record = serializer.readData(directBuffer, metadataLength);
+    serializer.readData(recordBuffer, metadataLength, view);
 
-    if (record != null && expectedIndex != record.index()) {
+    if (validateIndex && expectedIndex != view.index()) {
       buffer.reset();
       throw new InvalidIndex(
           String.format(
               "Expected to read a record with next index %d, but found %d",
-              expectedIndex, record.index()));
+              expectedIndex, view.index()));
     }
     buffer.position(startPosition + metadataLength + recordLength);
+    view.serializedRecordBuffer().wrap(buffer, startPosition + metadataLength, recordLength);
+  }
+
+  /** Creates a record, which doesn't change when the next record is read into the view. */
+  private static PersistedJournalRecord toPersistedRecord(
+      final ByteBuffer buffer, final JournalRecordView view) {
     return new PersistedJournalRecord(
-        metadata, record, new UnsafeBuffer(buffer, startPosition + metadataLength, recordLength));
+        new RecordMetadata(view.checksum(), view.length()),
+        new RecordData(view.index(), view.asqn(), new UnsafeBuffer(view.data())),
+        new UnsafeBuffer(buffer, buffer.position() - view.length(), view.length()));
   }
 }
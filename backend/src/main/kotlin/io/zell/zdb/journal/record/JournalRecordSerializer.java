@@ -37,6 +37,27 @@ public interface JournalRecordSerializer {
    */
   RecordData readData(DirectBuffer buffer, int offset);
 
+  /**
+   * Reads the {@link RecordMetadata} from the buffer at the given offset into the view, without
+   * allocating. A valid record must exist in the buffer at this position.
+   *
+   * @param buffer to read
+   * @param offset the offset in the buffer at which the metadata will be read from
+   * @param view the view to read the metadata into
+   */
+  void readMetadata(DirectBuffer buffer, int offset, JournalRecordView view);
+
+  /**
+   * Reads the {@link RecordData} from the buffer at the given offset into the view, without
+   * allocating. The data of the view wraps the buffer. A valid record must exist in the buffer at
+   * this position.
+   *
+   * @param buffer to read
+   * @param offset the offset in the buffer at which the data will be read from
+   * @param view the view to read the data into
+   */
+  void readData(DirectBuffer buffer, int offset, JournalRecordView view);
+
   /**
    * Returns the length of the serialized {@link RecordMetadata} in the buffer.
    *
@@ -45,4 +66,13 @@ public interface JournalRecordSerializer {
    * @return the length of the metadata
    */
   int getMetadataLength(DirectBuffer buffer, int offset);
+
+  /**
+   * Returns true if the buffer contains a {@link RecordMetadata} header at the given offset.
+   *
+   * @param buffer to read
+   * @param offset the offset in the buffer at which the metadata is expected
+   * @return true if the header of the metadata matches, false otherwise
+   */
+  boolean hasMetadata(DirectBuffer buffer, int offset);
 }
@@ -0,0 +1,109 @@
+/*
+ * Copyright © 2021 Christopher Kujawa (zelldon91@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.zell.zdb.journal.record;
+
+import io.zell.zdb.journal.ReadOnlyJournalRecord;
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+
+/**
+ * A reusable view on a JournalRecord stored in a buffer. Other than {@link PersistedJournalRecord}
+ * the view is wrapped again on every read, which means it is only valid until the next record is
+ * read. Callers which need to keep the record have to {@link #copy()} it.
+ */
+public final class JournalRecordView implements ReadOnlyJournalRecord {
+
+  private final UnsafeBuffer data = new UnsafeBuffer(0, 0);
+  private final UnsafeBuffer serializedRecord = new UnsafeBuffer(0, 0);
+  private long index;
+  private long asqn;
+  private long checksum;
+  private int length;
+
+  @Override
+  public long index() {
+    return index;
+  }
+
+  @Override
+  public long asqn() {
+    return asqn;
+  }
+
+  @Override
+  public long checksum() {
+    return checksum;
+  }
+
+  @Override
+  public DirectBuffer data() {
+    return data;
+  }
+
+  @Override
+  public DirectBuffer serializedRecord() {
+    return serializedRecord;
+  }
+
+  @Override
+  public ReadOnlyJournalRecord copy() {
+    final var dataCopy = new byte[data.capacity()];
+    data.getBytes(0, dataCopy);
+    final var serializedRecordCopy = new byte[serializedRecord.capacity()];
+    serializedRecord.getBytes(0, serializedRecordCopy);
+
+    return new PersistedJournalRecord(
+        new RecordMetadata(checksum, length),
+        new RecordData(index, asqn, new UnsafeBuffer(dataCopy)),
+        new UnsafeBuffer(serializedRecordCopy));
+  }
+
+  int length() {
+    return length;
+  }
+
+  void wrapMetadata(final long checksum, final int length) {
+    this.checksum = checksum;
+    this.length = length;
+  }
+
+  void wrapData(final long index, final long asqn) {
+    this.index = index;
+    this.asqn = asqn;
+  }
+
+  UnsafeBuffer dataBuffer() {
+    return data;
+  }
+
+  UnsafeBuffer serializedRecordBuffer() {
+    return serializedRecord;
+  }
+
+  @Override
+  public String toString() {
+    return "JournalRecordView{"
+        + "index="
+        + index
+        + ", asqn="
+        + asqn
+        + ", checksum="
+        + checksum
+        + ", length="
+        + length
+        + '}';
+  }
+}
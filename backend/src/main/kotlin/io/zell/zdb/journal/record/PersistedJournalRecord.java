@@ -47,4 +47,10 @@ public record PersistedJournalRecord(
   public DirectBuffer data() {
     return record.data();
   }
+
+  @Override
+  public ReadOnlyJournalRecord copy() {
+    // a persisted record is never reused
+    return this;
+  }
 }
@@ -27,6 +27,39 @@ public final class SBESerializer implements JournalRecordSerializer {
 
   @Override
   public RecordMetadata readMetadata(final DirectBuffer buffer, final int offset) {
+    wrapMetadata(buffer, offset);
+    return new RecordMetadata(metadataDecoder.checksum(), metadataDecoder.length());
+  }
+
+  @Override
+  public RecordData readData(final DirectBuffer buffer, final int offset) {
+    wrapData(buffer, offset);
+    final DirectBuffer data = new UnsafeBuffer();
+    recordDecoder.wrapData(data);
+    return new RecordData(recordDecoder.index(), recordDecoder.asqn(), data);
+  }
+
+  @Override
+  public void readMetadata(
+      final DirectBuffer buffer, final int offset, final JournalRecordView view) {
+    wrapMetadata(buffer, offset);
+    view.wrapMetadata(metadataDecoder.checksum(), metadataDecoder.length());
+  }
+
+  @Override
+  public void readData(final DirectBuffer buffer, final int offset, final JournalRecordView view) {
+    wrapData(buffer, offset);
+    recordDecoder.wrapData(view.dataBuffer());
+    view.wrapData(recordDecoder.index(), recordDecoder.asqn());
+  }
+
+  @Override
+  public int getMetadataLength(final DirectBuffer buffer, final int offset) {
+    headerDecoder.wrap(buffer, offset);
+    return headerDecoder.encodedLength() + headerDecoder.blockLength();
+  }
+
+  private void wrapMetadata(final DirectBuffer buffer, final int offset) {
     if (!hasMetadata(buffer, offset)) {
       throw new CorruptedJournalException("Cannot read metadata. Header does not match.");
     }
@@ -35,12 +68,9 @@ public final class SBESerializer implements JournalRecordSerializer {
         offset + headerDecoder.encodedLength(),
         headerDecoder.blockLength(),
         headerDecoder.version());
-
-    return new RecordMetadata(metadataDecoder.checksum(), metadataDecoder.length());
   }
 
-  @Override
-  public RecordData readData(final DirectBuffer buffer, final int offset) {
+  private void wrapData(final DirectBuffer buffer, final int offset) {
     headerDecoder.wrap(buffer, offset);
     if (headerDecoder.schemaId() != recordDecoder.sbeSchemaId()
         || headerDecoder.templateId() != recordDecoder.sbeTemplateId()) {
@@ -51,19 +81,10 @@ public final class SBESerializer implements JournalRecordSerializer {
         offset + headerDecoder.encodedLength(),
         headerDecoder.blockLength(),
         headerDecoder.version());
-
-    final DirectBuffer data = new UnsafeBuffer();
-    recordDecoder.wrapData(data);
-    return new RecordData(recordDecoder.index(), recordDecoder.asqn(), data);
   }
 
   @Override
-  public int getMetadataLength(final DirectBuffer buffer, final int offset) {
-    headerDecoder.wrap(buffer, offset);
-    return headerDecoder.encodedLength() + headerDecoder.blockLength();
-  }
-
-  private boolean hasMetadata(final DirectBuffer buffer, final int offset) {
+  public boolean hasMetadata(final DirectBuffer buffer, final int offset) {
     headerDecoder.wrap(buffer, offset);
     return (headerDecoder.schemaId() == metadataDecoder.sbeSchemaId()
         && headerDecoder.templateId() == metadataDecoder.sbeTemplateId());
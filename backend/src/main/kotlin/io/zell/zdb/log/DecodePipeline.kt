@@ -0,0 +1,119 @@
+/*
+ * Copyright © 2021 Christopher Kujawa (zelldon91@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.zell.zdb.log
+
+import java.util.concurrent.ArrayBlockingQueue
+import java.util.concurrent.BlockingQueue
+import java.util.concurrent.Callable
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+import java.util.concurrent.RejectedExecutionException
+
+private const val PENDING_ENTRIES_PER_THREAD = 64
+
+/**
+ * Decodes the entries of a log on several cores, while keeping their order. The pipeline has three
+ * stages:
+ *
+ * - a reader thread, which reads the entries one after another and hands them to the workers
+ * - a pool of workers, which decode the entries in parallel
+ * - the consumer, which takes the decoded entries in the order they were read
+ *
+ * The futures of the decoded entries are queued in read order, which sequences the output. Since
+ * the queue is bounded, the reader is blocked when the consumer falls behind.
+ *
+ * @param read reads the next entry on the reader thread, or returns null at the end of the log.
+ *     The entry must not be reused by the next read, since it is decoded concurrently.
+ * @param decode decodes an entry on a worker, or returns null if it is filtered out
+ */
+internal class DecodePipeline<I : Any, O : Any>(
+    threads: Int,
+    private val read: () -> I?,
+    private val decode: (I) -> O?
+) : AutoCloseable {
+
+    private val workers = Executors.newFixedThreadPool(
+        threads, Thread.ofPlatform().daemon().name("zdb-log-decoder-", 0).factory())
+    private val decoded: BlockingQueue<Future<O?>> = ArrayBlockingQueue(threads * PENDING_ENTRIES_PER_THREAD)
+    // marks the end of the log in the queue
+    private val end: Future<O?> = CompletableFuture.completedFuture(null)
+    @Volatile private var closed = false
+    private var finished = false
+    private val reader = Thread.ofVirtual().name("zdb-log-entry-reader").start { readEntries() }
+
+    private fun readEntries() {
+        try {
+            while (!closed) {
+                val entry = read() ?: break
+                decoded.put(workers.submit(Callable { decode(entry) }))
+            }
+            decoded.put(end)
+        } catch (e: InterruptedException) {
+            // closed before all entries were consumed
+        } catch (e: RejectedExecutionException) {
+            // closed before all entries were consumed
+        } catch (e: Throwable) {
+            try {
+                decoded.put(CompletableFuture.failedFuture(e))
+                // the reader stopped, which ends the log for the consumer after the failure
+                decoded.put(end)
+            } catch (interrupted: InterruptedException) {
+                // closed before the failure was consumed
+            }
+        }
+    }
+
+    /**
+     * Returns the next decoded entry, in the order in which the entries were read. Waits until the
+     * entry is decoded.
+     *
+     * @return the next decoded entry, or null if all entries are consumed
+     */
+    fun take(): O? {
+        while (!finished) {
+            val future = decoded.take()
+            if (future === end) {
+                finished = true
+                break
+            }
+
+            val output = try {
+                future.get()
+            } catch (e: ExecutionException) {
+                val cause = e.cause
+                throw cause as? RuntimeException ?: IllegalStateException("Failed to decode the log", cause)
+            }
+            if (output != null) {
+                return output
+            }
+        }
+        return null
+    }
+
+    /**
+     * Stops the pipeline. Waits until the reader thread stopped, such that the log can be read or
+     * closed by the caller afterwards.
+     */
+    override fun close() {
+        closed = true
+        reader.interrupt()
+        reader.join()
+        workers.shutdownNow()
+        decoded.clear()
+    }
+}
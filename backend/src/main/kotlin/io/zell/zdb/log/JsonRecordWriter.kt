@@ -0,0 +1,302 @@
+/*
+ * Copyright © 2021 Christopher Kujawa (zelldon91@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.zell.zdb.log
+
+import io.camunda.zeebe.msgpack.spec.MsgPackReader
+import io.camunda.zeebe.msgpack.spec.MsgPackType
+import io.camunda.zeebe.protocol.record.RejectionType
+import io.zell.zdb.log.records.ApplicationRecord
+import io.zell.zdb.log.records.PersistedRecord
+import io.zell.zdb.log.records.Record
+import org.agrona.DirectBuffer
+import org.agrona.concurrent.UnsafeBuffer
+import java.io.Flushable
+import java.io.OutputStream
+import java.util.Base64
+
+private const val DEFAULT_BUFFER_SIZE = 1024 * 1024
+private val HEX_DIGITS = "0123456789abcdef".toByteArray()
+
+/**
+ * Writes records as JSON into a reusable buffer, which is flushed to the output stream when it is
+ * full. The output is the same as of the `toString` methods of the records, but the records are
+ * written field by field, and their values are transcoded straight from MsgPack. No intermediate
+ * strings are created per record, which matters when dumping logs of several GB.
+ *
+ * The writer is not thread safe, and it has to be flushed after the last record.
+ */
+class JsonRecordWriter @JvmOverloads constructor(
+    private val out: OutputStream,
+    bufferSize: Int = DEFAULT_BUFFER_SIZE
+) : Flushable {
+
+    private val buffer = ByteArray(bufferSize)
+    private var position = 0
+    private val msgPackReader = MsgPackReader()
+    private val valueBuffer = UnsafeBuffer(0, 0)
+
+    fun write(record: PersistedRecord) {
+        if (record is ApplicationRecord) {
+            writeApplicationRecord(record)
+        } else {
+            // raft records have only an index and a term
+            writeAscii("""{"index":""")
+            writeLong(record.index())
+            writeAscii(""","term":""")
+            writeLong(record.term())
+            writeByte('}')
+        }
+    }
+
+    fun write(record: PartitionRecord) {
+        writeAscii("""{"partition":""")
+        writeLong(record.partitionId.toLong())
+        writeAscii(""","index":""")
+        writeLong(record.entry.index)
+        writeAscii(""","term":""")
+        writeLong(record.entry.term)
+        writeAscii(""","record":""")
+        writeRecord(record.record)
+        writeByte('}')
+    }
+
+    /**
+     * Writes the given ASCII text as is, e.g. separators between the records.
+     */
+    fun writeAscii(text: String) {
+        for (i in text.indices) {
+            writeByte(text[i].code)
+        }
+    }
+
+    override fun flush() {
+        out.write(buffer, 0, position)
+        position = 0
+        out.flush()
+    }
+
+    private fun writeApplicationRecord(record: ApplicationRecord) {
+        writeAscii("""{"index":""")
+        writeLong(record.index)
+        writeAscii(""", "term":""")
+        writeLong(record.term)
+        writeAscii(""","highestPosition":""")
+        writeLong(record.highestPosition)
+        writeAscii(""","lowestPosition":""")
+        writeLong(record.lowestPosition)
+        writeAscii(""","entries":[""")
+        for (i in record.entries.indices) {
+            if (i > 0) {
+                writeAscii(", ")
+            }
+            writeRecord(record.entries[i])
+        }
+        writeAscii("]}")
+    }
+
+    /**
+     * Writes the record like the serializer of [Record], which omits the properties that have their
+     * default value.
+     */
+    private fun writeRecord(record: Record) {
+        writeAscii("""{"position":""")
+        writeLong(record.position)
+        writeAscii(""","sourceRecordPosition":""")
+        writeLong(record.sourceRecordPosition)
+        writeAscii(""","timestamp":""")
+        writeLong(record.timestamp)
+        writeAscii(""","key":""")
+        writeLong(record.key)
+        writeAscii(""","recordType":""")
+        writeQuotedAscii(record.recordType.name)
+        writeAscii(""","valueType":""")
+        writeQuotedAscii(record.valueType.name)
+        writeAscii(""","intent":""")
+        writeQuotedAscii(record.intent.name())
+        if (record.rejectionType != RejectionType.NULL_VAL) {
+            writeAscii(""","rejectionType":""")
+            record.rejectionType?.let { writeQuotedAscii(it.name) } ?: writeAscii("null")
+        }
+        if (record.rejectionReason != "") {
+            writeAscii(""","rejectionReason":""")
+            writeNullableString(record.rejectionReason)
+        }
+        if (record.requestId != 0L) {
+            writeAscii(""","requestId":""")
+            record.requestId?.let { writeLong(it) } ?: writeAscii("null")
+        }
+        if (record.requestStreamId != 0) {
+            writeAscii(""","requestStreamId":""")
+            writeLong(record.requestStreamId.toLong())
+        }
+        writeAscii(""","protocolVersion":""")
+        writeLong(record.protocolVersion.toLong())
+        writeAscii(""","brokerVersion":""")
+        writeNullableString(record.brokerVersion)
+        if (record.recordVersion != 0) {
+            writeAscii(""","recordVersion":""")
+            record.recordVersion?.let { writeLong(it.toLong()) } ?: writeAscii("null")
+        }
+        if (record.authData != "") {
+            writeAscii(""","authData":""")
+            writeNullableString(record.authData)
+        }
+        writeAscii(""","recordValue":""")
+        record.recordValue.wrapMsgPack(valueBuffer)
+        msgPackReader.wrap(valueBuffer, 0, valueBuffer.capacity())
+        transcodeValue()
+        writeByte('}')
+    }
+
+    /**
+     * Transcodes the next MsgPack value of the reader to JSON. Binary values are written as Base64
+     * strings, like the MsgPack to JSON converter of Zeebe does.
+     */
+    private fun transcodeValue() {
+        val token = msgPackReader.readToken()
+        when (token.type) {
+            MsgPackType.NIL -> writeAscii("null")
+            MsgPackType.BOOLEAN -> writeAscii(if (token.booleanValue) "true" else "false")
+            MsgPackType.INTEGER -> writeLong(token.integerValue)
+            MsgPackType.FLOAT -> writeAscii(token.floatValue.toString())
+            MsgPackType.STRING -> writeQuotedUtf8(token.valueBuffer)
+            MsgPackType.BINARY -> {
+                val bytes = ByteArray(token.valueBuffer.capacity())
+                token.valueBuffer.getBytes(0, bytes)
+                writeByte('"')
+                writeAscii(Base64.getEncoder().encodeToString(bytes))
+                writeByte('"')
+            }
+            MsgPackType.ARRAY -> {
+                val size = token.size
+                writeByte('[')
+                for (i in 0 until size) {
+                    if (i > 0) {
+                        writeByte(',')
+                    }
+                    transcodeValue()
+                }
+                writeByte(']')
+            }
+            MsgPackType.MAP -> {
+                val size = token.size
+                writeByte('{')
+                for (i in 0 until size) {
+                    if (i > 0) {
+                        writeByte(',')
+                    }
+                    // the keys of the records values are always strings
+                    transcodeValue()
+                    writeByte(':')
+                    transcodeValue()
+                }
+                writeByte('}')
+            }
+            else -> throw IllegalStateException("Can't convert MsgPack value of type ${token.type} to JSON")
+        }
+    }
+
+    private fun writeNullableString(value: String?) {
+        if (value == null) {
+            writeAscii("null")
+            return
+        }
+
+        writeByte('"')
+        if (value.all { it.code < 0x80 }) {
+            for (i in value.indices) {
+                writeEscaped(value[i].code)
+            }
+        } else {
+            // rare, only for free text like rejection reasons
+            for (byte in value.toByteArray()) {
+                writeEscaped(byte.toInt() and 0xFF)
+            }
+        }
+        writeByte('"')
+    }
+
+    private fun writeQuotedAscii(value: String) {
+        writeByte('"')
+        writeAscii(value)
+        writeByte('"')
+    }
+
+    private fun writeQuotedUtf8(value: DirectBuffer) {
+        writeByte('"')
+        for (i in 0 until value.capacity()) {
+            // multi byte characters consist of bytes >= 0x80, which are never escaped
+            writeEscaped(value.getByte(i).toInt() and 0xFF)
+        }
+        writeByte('"')
+    }
+
+    /**
+     * Writes the byte escaped like the JSON encoder of kotlinx.serialization does.
+     */
+    private fun writeEscaped(byte: Int) {
+        when {
+            byte == '"'.code -> writeAscii("\\\"")
+            byte == '\\'.code -> writeAscii("\\\\")
+            byte == '\n'.code -> writeAscii("\\n")
+            byte == '\r'.code -> writeAscii("\\r")
+            byte == '\t'.code -> writeAscii("\\t")
+            byte == '\b'.code -> writeAscii("\\b")
+            byte == 0x0C -> writeAscii("\\f")
+            byte < 0x20 -> {
+                writeAscii("\\u00")
+                writeByte(HEX_DIGITS[byte shr 4].toInt())
+                writeByte(HEX_DIGITS[byte and 0xF].toInt())
+            }
+            else -> writeByte(byte)
+        }
+    }
+
+    private fun writeLong(value: Long) {
+        if (value == Long.MIN_VALUE) {
+            writeAscii(value.toString())
+            return
+        }
+
+        var remaining = value
+        if (remaining < 0) {
+            writeByte('-')
+            remaining = -remaining
+        }
+
+        var divisor = 1L
+        while (remaining / divisor >= 10) {
+            divisor *= 10
+        }
+        while (divisor > 0) {
+            writeByte('0'.code + (remaining / divisor).toInt())
+            remaining %= divisor
+            divisor /= 10
+        }
+    }
+
+    private fun writeByte(char: Char) {
+        writeByte(char.code)
+    }
+
+    private fun writeByte(byte: Int) {
+        if (position == buffer.size) {
+            out.write(buffer, 0, position)
+            position = 0
+        }
+        buffer[position++] = byte.toByte()
+    }
+}
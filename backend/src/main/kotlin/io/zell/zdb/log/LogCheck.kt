@@ -0,0 +1,238 @@
+/*
+ * Copyright © 2021 Christopher Kujawa (zelldon91@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.zell.zdb.log
+
+import io.atomix.raft.storage.log.entry.SerializedApplicationEntry
+import io.atomix.raft.storage.serializer.RaftEntrySBESerializer
+import io.camunda.zeebe.logstreams.impl.log.LoggedEventImpl
+import io.zell.zdb.journal.ReadOnlyJournalRecord
+import java.nio.file.Path
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.ForkJoinPool
+import java.util.stream.StreamSupport
+
+private const val MAX_REPORTED_INCONSISTENCIES = 1000
+private const val NO_POSITION = -1L
+
+/**
+ * Checks the semantic consistency of the log:
+ *
+ * - the indexes of the entries are contiguous,
+ * - the terms never decrease,
+ * - the position ranges of the application entries are contiguous and don't overlap,
+ * - the records of an application entry have the positions of its range,
+ * - the source record position of every record points backwards.
+ *
+ * The segments are checked in parallel, each split of the journal checks its own entries. The
+ * results are merged in order of the log, whereby the boundaries between the splits are checked.
+ */
+class LogCheck @JvmOverloads constructor(
+    private val logPath: Path,
+    private val options: LogOptions = LogOptions()
+) {
+
+    @JvmOverloads
+    fun check(pool: ForkJoinPool = ForkJoinPool.commonPool()): LogCheckDetails {
+        val startNanos = System.nanoTime()
+        val journal = LogFactory.newJournal(logPath, options)
+        val collector = try {
+            // a parallel stream runs on the pool of the task which executes it
+            pool.submit(Callable {
+                StreamSupport.stream(journal.spliterator(), true)
+                    .collect(
+                        { LogCheckCollector() },
+                        { collector, record -> collector.accept(record) },
+                        { collector, other -> collector.merge(other) })
+            }).get()
+        } catch (e: ExecutionException) {
+            throw e.cause ?: e
+        } finally {
+            journal.close()
+        }
+
+        val checkDetails = LogCheckDetails()
+        checkDetails.entries = collector.entries
+        checkDetails.durationMillis = (System.nanoTime() - startNanos) / 1_000_000
+        checkDetails.inconsistencyCount = collector.inconsistencyCount
+        checkDetails.inconsistencies = collector.inconsistencies
+        return checkDetails
+    }
+
+    /**
+     * Checks a contiguous part of the log. Not thread safe, every split has its own collector.
+     */
+    private class LogCheckCollector {
+        private val serializer = RaftEntrySBESerializer()
+        private val loggedEvent = LoggedEventImpl()
+
+        var entries = 0L
+        var inconsistencyCount = 0L
+        val inconsistencies = mutableListOf<LogInconsistency>()
+
+        private var firstIndex = 0L
+        private var lastIndex = 0L
+        private var firstTerm = 0L
+        private var lastTerm = 0L
+        // the range of positions, which are covered by the application entries
+        private var firstApplicationIndex = 0L
+        private var firstLowestPosition = NO_POSITION
+        private var lastHighestPosition = NO_POSITION
+
+        fun accept(record: ReadOnlyJournalRecord) {
+            val index = record.index()
+            val entry = serializer.readRaftLogEntry(record.data())
+            val term = entry.term()
+
+            if (entries == 0L) {
+                firstIndex = index
+                firstTerm = term
+            } else {
+                checkContinuation(index, term)
+            }
+            lastIndex = index
+            lastTerm = term
+            entries++
+
+            val applicationEntry = entry.entry()
+            if (applicationEntry is SerializedApplicationEntry) {
+                acceptApplicationEntry(index, applicationEntry)
+            }
+        }
+
+        private fun checkContinuation(index: Long, term: Long) {
+            if (index != lastIndex + 1) {
+                report(
+                    index, InconsistencyType.NON_CONTIGUOUS_INDEX,
+                    "Expected the entry after index $lastIndex to have index ${lastIndex + 1}, but found $index."
+                )
+            }
+            if (term < lastTerm) {
+                report(
+                    index, InconsistencyType.DECREASING_TERM,
+                    "Expected the term to be at least $lastTerm, as of the entry at index $lastIndex, but found $term."
+                )
+            }
+        }
+
+        private fun checkPositionContinuation(index: Long, lowestPosition: Long) {
+            if (lastHighestPosition != NO_POSITION && lowestPosition != lastHighestPosition + 1) {
+                report(
+                    index, InconsistencyType.NON_CONTIGUOUS_POSITIONS,
+                    "Expected the positions to continue at ${lastHighestPosition + 1}, but the entry starts at $lowestPosition."
+                )
+            }
+        }
+
+        private fun acceptApplicationEntry(index: Long, applicationEntry: SerializedApplicationEntry) {
+            val lowestPosition = applicationEntry.lowestPosition()
+            val highestPosition = applicationEntry.highestPosition()
+            if (highestPosition < lowestPosition) {
+                report(
+                    index, InconsistencyType.INVALID_POSITION_RANGE,
+                    "Expected the highest position $highestPosition to be at least the lowest position $lowestPosition."
+                )
+            }
+
+            if (firstLowestPosition == NO_POSITION) {
+                firstApplicationIndex = index
+                firstLowestPosition = lowestPosition
+            } else {
+                checkPositionContinuation(index, lowestPosition)
+            }
+            lastHighestPosition = highestPosition
+
+            checkRecords(index, applicationEntry)
+        }
+
+        private fun checkRecords(index: Long, applicationEntry: SerializedApplicationEntry) {
+            val data = applicationEntry.data()
+            var expectedPosition = applicationEntry.lowestPosition()
+            var offset = 0
+            while (offset < data.capacity()) {
+                loggedEvent.wrap(data, offset)
+                val position = loggedEvent.position
+                val sourcePosition = loggedEvent.sourceEventPosition
+
+                if (position != expectedPosition) {
+                    report(
+                        index, InconsistencyType.RECORD_POSITION_MISMATCH,
+                        "Expected the record to have position $expectedPosition, but found $position."
+                    )
+                }
+                if (sourcePosition >= position) {
+                    report(
+                        index, InconsistencyType.SOURCE_POSITION_NOT_BACKWARDS,
+                        "Expected the source record position $sourcePosition of the record at position $position to point backwards."
+                    )
+                }
+
+                expectedPosition = position + 1
+                offset += loggedEvent.length
+            }
+
+            if (expectedPosition - 1 != applicationEntry.highestPosition()) {
+                report(
+                    index, InconsistencyType.RECORD_POSITION_MISMATCH,
+                    "Expected the last record to have the highest position ${applicationEntry.highestPosition()}, but found ${expectedPosition - 1}."
+                )
+            }
+        }
+
+        /**
+         * Merges the following part of the log into this one, and checks whether the other part
+         * continues this one.
+         */
+        fun merge(other: LogCheckCollector) {
+            if (other.entries == 0L) {
+                return
+            }
+
+            if (entries == 0L) {
+                firstIndex = other.firstIndex
+                firstTerm = other.firstTerm
+            } else {
+                checkContinuation(other.firstIndex, other.firstTerm)
+            }
+
+            if (other.firstLowestPosition != NO_POSITION) {
+                if (firstLowestPosition == NO_POSITION) {
+                    firstApplicationIndex = other.firstApplicationIndex
+                    firstLowestPosition = other.firstLowestPosition
+                } else {
+                    checkPositionContinuation(other.firstApplicationIndex, other.firstLowestPosition)
+                }
+                lastHighestPosition = other.lastHighestPosition
+            }
+
+            lastIndex = other.lastIndex
+            lastTerm = other.lastTerm
+            entries += other.entries
+
+            inconsistencyCount += other.inconsistencyCount
+            other.inconsistencies
+                .take(MAX_REPORTED_INCONSISTENCIES - inconsistencies.size)
+                .forEach { inconsistencies.add(it) }
+        }
+
+        private fun report(index: Long, type: InconsistencyType, message: String) {
+            inconsistencyCount++
+            if (inconsistencies.size < MAX_REPORTED_INCONSISTENCIES) {
+                inconsistencies.add(LogInconsistency(index, type, message))
+            }
+        }
+    }
+}
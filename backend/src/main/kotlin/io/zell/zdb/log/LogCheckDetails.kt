@@ -0,0 +1,63 @@
+/*
+ * Copyright © 2021 Christopher Kujawa (zelldon91@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.zell.zdb.log
+
+import kotlinx.serialization.Serializable
+import kotlinx.serialization.encodeToString
+import kotlinx.serialization.json.Json
+
+// an empty list of inconsistencies is part of the result as well
+private val json = Json { encodeDefaults = true }
+
+@Serializable
+class LogCheckDetails constructor() {
+    var entries = 0L
+    var durationMillis = 0L
+    /**
+     * The number of all found inconsistencies, of which only the first ones are listed in
+     * [inconsistencies].
+     */
+    var inconsistencyCount = 0L
+    var inconsistencies: List<LogInconsistency> = emptyList()
+
+    fun isConsistent(): Boolean {
+        return inconsistencyCount == 0L
+    }
+
+    override fun toString(): String {
+        return json.encodeToString(this)
+    }
+}
+
+@Serializable
+enum class InconsistencyType {
+    NON_CONTIGUOUS_INDEX,
+    DECREASING_TERM,
+    INVALID_POSITION_RANGE,
+    NON_CONTIGUOUS_POSITIONS,
+    RECORD_POSITION_MISMATCH,
+    SOURCE_POSITION_NOT_BACKWARDS
+}
+
+/**
+ * An inconsistency, which was found at the entry with the given [index].
+ */
+@Serializable
+data class LogInconsistency(
+    val index: Long,
+    val type: InconsistencyType,
+    val message: String
+)
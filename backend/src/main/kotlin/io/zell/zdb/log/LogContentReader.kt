@@ -16,77 +16,245 @@
 package io.zell.zdb.log
 
 import io.atomix.raft.storage.log.entry.SerializedApplicationEntry
+import io.atomix.raft.storage.serializer.RaftEntrySBESerializer
 import io.camunda.zeebe.logstreams.impl.log.LoggedEventImpl
-import io.camunda.zeebe.protocol.impl.encoding.MsgPackConverter
 import io.camunda.zeebe.protocol.impl.record.RecordMetadata
 import io.camunda.zeebe.protocol.record.RecordType
+import io.camunda.zeebe.protocol.record.RejectionType
+import io.camunda.zeebe.protocol.record.ValueType
+import io.camunda.zeebe.protocol.record.intent.Intent
+import io.zell.zdb.journal.ReadOnlyJournalRecord
 import io.zell.zdb.log.records.*
 import io.zell.zdb.log.records.old.RecordMetadataBefore83
+import io.zell.zdb.raft.RaftEntryHeader
+import io.zell.zdb.raft.RaftEntryHeaderReader
 import io.zell.zdb.raft.RaftLogReader
-import kotlinx.serialization.json.Json
-import kotlinx.serialization.json.JsonElement
+import io.zell.zdb.raft.RaftLogUncommittedReader
+import org.agrona.DirectBuffer
+import org.agrona.collections.LongHashSet
 import org.agrona.concurrent.UnsafeBuffer
 import java.nio.file.Path
-import kotlin.streams.asStream
+import java.nio.file.StandardWatchEventKinds
+import java.nio.file.WatchService
+import java.time.Duration
+import java.util.Arrays
+import java.util.concurrent.TimeUnit
 
 private const val PROTOCOL_VERSION_83 = 4
 
-class LogContentReader(logPath: Path) : Iterator<PersistedRecord> {
+/**
+ * Reads the records of a partition log. The reader keeps the log open until it is closed, which
+ * releases the mapped segments of the log.
+ */
+class LogContentReader @JvmOverloads constructor(
+    private val logPath: Path,
+    options: LogOptions = LogOptions()
+) : Iterator<PersistedRecord>, AutoCloseable {
 
-    private val json = Json { ignoreUnknownKeys = true }
-    private val reader: RaftLogReader = LogFactory.newReader(logPath)
-    private var isInLimit: (PersistedRecord) -> Boolean = { true }
+    private val journal = LogFactory.newJournal(logPath, options)
+    private val reader: RaftLogReader = RaftLogUncommittedReader(journal.openReader(), journal)
+    // created on the first wait for new entries
+    private var watchService: WatchService? = null
+    private var toPosition = Long.MAX_VALUE
+    // applied on the serialized entries, before their records are decoded
+    private var entryFilter: ((SerializedApplicationEntry) -> Boolean)? = null
     private var applicationRecordFilter: ((ApplicationRecord) -> Boolean)? = null
+    // applied on the metadata of every record, before its value is decoded
+    private var recordFilter: RecordFilter? = null
+    // the sorted indexes of the only entries to read, and the next one of them
+    private var entryIndexes: LongArray? = null
+    private var nextEntryIndex = 0
+    private var decodeThreads = 1
+    // created when the entries are decoded in parallel, and stopped when the reader is positioned
+    private var pipeline: DecodePipeline<ReadOnlyJournalRecord, PersistedRecord>? = null
+    private val serializer = ThreadLocal.withInitial { RaftEntrySBESerializer() }
+    // reads the headers on the reader thread of the pipeline
+    private val headerReader = RaftEntryHeaderReader()
     private lateinit var next: PersistedRecord
 
+    // whether an entry was read which starts after the limit, no further entries are read then
+    @Volatile
+    private var pastLimit = false
+    // whether the last read application entry ends at or after the limit
+    @Volatile
+    private var lastEntryReachesLimit = false
+
+    /**
+     * Whether the [limitToPosition] limit has been reached, such that no further records before the
+     * limit can be read, until the reader is positioned again.
+     */
+    val limitReached: Boolean
+        get() = pastLimit || lastEntryReachesLimit
+
     override fun hasNext(): Boolean {
-        val hasNext = reader.hasNext()
+        if (decodeThreads > 1) {
+            return hasNextDecodedInParallel()
+        }
 
-        if (!hasNext) {
-            return false
+        while (true) {
+            val entry = nextEntry() ?: return false
+            next = decode(entry) ?: continue
+            return true
         }
+    }
+
+    private fun hasNextDecodedInParallel(): Boolean {
+        val pipeline = this.pipeline ?: DecodePipeline(
+            decodeThreads,
+            // the journal reuses its records, which is why they are copied for the workers
+            { nextEntryRecord()?.copy() },
+            { record -> decodeEntryRecord(record) }
+        ).also { this.pipeline = it }
 
-        next = convertToPersistedRecord(reader.next())
-        if (!isInLimit(next)) {
+        val decoded = try {
+            pipeline.take()
+        } catch (e: RuntimeException) {
+            // the pipeline ended with the failure, the next call starts a new one
+            stopPipeline()
+            throw e
+        }
+        if (decoded == null) {
+            stopPipeline()
             return false
         }
+        next = decoded
+        return true
+    }
 
-        if (applicationRecordFilter == null) {
-            return true
+    /**
+     * Reads the next entry, which is within the limit and passes the entry filter.
+     *
+     * @return the next entry, or null if there is none
+     */
+    private fun nextEntry(): IndexedRaftLogEntryImpl? {
+        while (!pastLimit && seekToNextIndexedEntry() && reader.hasNext()) {
+            val entry = reader.next()
+            if (entry.isApplicationEntry) {
+                val applicationEntry = entry.applicationEntry
+                if (!checkLimit(applicationEntry.lowestPosition(), applicationEntry.highestPosition())) {
+                    return null
+                }
+            }
+
+            if (matchesEntryFilter(entry)) {
+                return entry
+            }
+            // skipped without decoding its records
+        }
+        return null
+    }
+
+    /**
+     * Reads the journal record of the next entry which is within the limit, like [nextEntry]. Only
+     * the header of the entry is decoded, such that the entry is decoded once, by a worker of the
+     * pipeline. The entry filter is applied by the worker as well, see [decodeEntryRecord].
+     *
+     * @return the journal record of the next entry, or null if there is none
+     */
+    private fun nextEntryRecord(): ReadOnlyJournalRecord? {
+        if (pastLimit || !seekToNextIndexedEntry() || !reader.hasNext()) {
+            return null
         }
 
-        return applyFiltering()
+        val record = reader.nextRecord()
+        val header = headerReader.read(record)
+        if (header.applicationEntry() && !checkLimit(header.lowestPosition(), header.highestPosition())) {
+            return null
+        }
+        return record
     }
 
-    private fun applyFiltering(): Boolean {
-        // when application record filter is given, we don't want to see RaftLogRecords
-        // they are filtered out implicitly here as well
-        val filterMatches = next is ApplicationRecord && applicationRecordFilter!!(next as ApplicationRecord)
+    /**
+     * Checks the positions of an application entry against the limit.
+     *
+     * @return false if the entry starts after the limit, no further entries are read then
+     */
+    private fun checkLimit(lowestPosition: Long, highestPosition: Long): Boolean {
+        if (lowestPosition >= toPosition) {
+            pastLimit = true
+            return false
+        }
+        // the following application entries start after the limit
+        lastEntryReachesLimit = highestPosition >= toPosition
+        return true
+    }
 
-        if (filterMatches) {
-            return true
+    /**
+     * If only certain entries are read, positions the reader at the next one of them. Entries in
+     * between are skipped via a seek, without reading them.
+     *
+     * @return false if all of the entries have been read
+     */
+    private fun seekToNextIndexedEntry(): Boolean {
+        val indexes = entryIndexes ?: return true
+        if (nextEntryIndex >= indexes.size) {
+            return false
         }
 
-        // we want to skip this record, since it doesn't apply to our filter
-        // we need to find the next matching record
-        var foundNext = false
-        while (!foundNext && reader.hasNext()) {
-            next = convertToPersistedRecord(reader.next())
-            if (!isInLimit(next)) {
-                break
-            }
+        val index = indexes[nextEntryIndex++]
+        if (nextEntryIndex == 1 || indexes[nextEntryIndex - 2] + 1 != index) {
+            reader.seek(index)
+        }
+        return true
+    }
 
-            if (next is ApplicationRecord) {
-                foundNext = applicationRecordFilter!!(next as ApplicationRecord)
-            }
+    private fun readEntry(record: ReadOnlyJournalRecord): IndexedRaftLogEntryImpl {
+        val entry = serializer.get().readRaftLogEntry(record.data())
+        return IndexedRaftLogEntryImpl(entry.term(), entry.entry(), record)
+    }
+
+    /**
+     * Decodes the entry of the journal record on a worker of the pipeline, and applies the entry
+     * and record filters.
+     *
+     * @return the decoded entry, or null if it is filtered out
+     */
+    private fun decodeEntryRecord(record: ReadOnlyJournalRecord): PersistedRecord? {
+        val entry = readEntry(record)
+        return if (matchesEntryFilter(entry)) decode(entry) else null
+    }
+
+    /**
+     * Decodes the records of the entry and applies the record filters. Called concurrently, if the
+     * entries are decoded in parallel.
+     *
+     * @return the decoded entry, or null if it is filtered out
+     */
+    private fun decode(entry: IndexedRaftLogEntryImpl): PersistedRecord? {
+        val record = convertToPersistedRecord(entry)
+        if (recordFilter != null && (record !is ApplicationRecord || record.entries.isEmpty())) {
+            // none of the records matched, RaftLogRecords are filtered out as well
+            return null
         }
-        return foundNext;
+
+        val filter = applicationRecordFilter ?: return record
+
+        // when application record filter is given, we don't want to see RaftLogRecords
+        // they are filtered out implicitly here as well
+        return if (record is ApplicationRecord && filter(record)) record else null
+    }
+
+    private fun matchesEntryFilter(entry: IndexedRaftLogEntryImpl): Boolean {
+        val filter = entryFilter ?: return true
+        // like the application record filter, RaftLogRecords are filtered out as well
+        return entry.isApplicationEntry && filter(entry.applicationEntry as SerializedApplicationEntry)
     }
 
     override fun next(): PersistedRecord {
         return next
     }
 
+    /**
+     * Reads only the header of the next entry, without decoding its records. The limit and filters
+     * are not applied.
+     *
+     * @return the header of the next entry, or null if the end of the log is reached
+     */
+    fun nextHeader(): RaftEntryHeader? {
+        stopPipeline()
+        return if (reader.hasNext()) reader.nextHeader() else null
+    }
+
 
     private fun convertToPersistedRecord(
         entry: IndexedRaftLogEntryImpl,
@@ -97,6 +265,7 @@ class LogContentReader(logPath: Path) : Iterator<PersistedRecord> {
                 applicationEntry.highestPosition, applicationEntry.lowestPosition)
 
             val readBuffer = UnsafeBuffer(applicationEntry.data());
+            val metadataView = recordFilter?.let { LoggedEventMetadataView() }
 
             var offset = 0;
             do {
@@ -107,8 +276,10 @@ class LogContentReader(logPath: Path) : Iterator<PersistedRecord> {
                 loggedEvent.wrap(readBuffer, offset)
                 loggedEvent.readMetadata(metadata)
 
-                val parsedRecord: Record = readRecord(loggedEvent, metadata)
-                applicationRecord.entries.add(parsedRecord)
+                if (metadataView == null || recordFilter!!.test(metadataView.wrap(entry.index(), entry.term(), loggedEvent, metadata))) {
+                    val parsedRecord: Record = readRecord(loggedEvent, metadata)
+                    applicationRecord.entries.add(parsedRecord)
+                }
 
                 offset += loggedEvent.getLength();
             } while (offset < readBuffer.capacity());
@@ -122,13 +293,8 @@ class LogContentReader(logPath: Path) : Iterator<PersistedRecord> {
         loggedEvent: LoggedEventImpl,
         metadata: RecordMetadata
     ): Record {
-        val valueJson = MsgPackConverter.convertToJson(
-            UnsafeBuffer(loggedEvent.valueBuffer, loggedEvent.valueOffset, loggedEvent.valueLength)
-        )
-        val recordValue: JsonElement =
-            Json.decodeFromString(valueJson)
-        val pInstanceRelatedValue =
-            json.decodeFromString<ProcessInstanceRelatedValue>(valueJson)
+        // the value is converted to JSON only when it is needed
+        val recordValue = RecordValue.copyOf(loggedEvent.valueBuffer, loggedEvent.valueOffset, loggedEvent.valueLength)
 
         val parsedRecord: Record;
         if (metadata.protocolVersion >= PROTOCOL_VERSION_83) {
@@ -148,8 +314,7 @@ class LogContentReader(logPath: Path) : Iterator<PersistedRecord> {
                 metadata.brokerVersion.toString(),
                 metadata.recordVersion,
                 metadata.authorization.authData.toString(),
-                recordValue,
-                pInstanceRelatedValue
+                recordValue
             )
         } else {
             val recordMetadataBefore83 = RecordMetadataBefore83()
@@ -171,13 +336,46 @@ class LogContentReader(logPath: Path) : Iterator<PersistedRecord> {
                 recordMetadataBefore83.brokerVersion.toString(),
                 0,
                 "",
-                recordValue,
-                pInstanceRelatedValue
+                recordValue
             )
         }
         return parsedRecord
     }
 
+    /**
+     * Scans the records, without materializing them. Other than [hasNext], the consumer sees a view
+     * on every record which is within the limit and passes the entry and record filters. RaftLogRecords
+     * are skipped, the filter for rejections is not applied.
+     *
+     * @param consumer consumes the view on every record, which is only valid during the call. Returns
+     *     false to stop the scan.
+     */
+    fun scan(consumer: (RecordView) -> Boolean) {
+        stopPipeline()
+        val loggedEvent = LoggedEventImpl()
+        val metadata = RecordMetadata()
+        val view = LoggedEventMetadataView()
+        while (true) {
+            val entry = nextEntry() ?: return
+            if (!entry.isApplicationEntry) {
+                continue
+            }
+
+            val data = (entry.applicationEntry as SerializedApplicationEntry).data()
+            var offset = 0
+            while (offset < data.capacity()) {
+                loggedEvent.wrap(data, offset)
+                metadata.reset()
+                loggedEvent.readMetadata(metadata)
+                view.wrap(entry.index(), entry.term(), loggedEvent, metadata)
+                if (recordFilter?.test(view) != false && !consumer(view)) {
+                    return
+                }
+                offset += loggedEvent.length
+            }
+        }
+    }
+
     fun readAll(): LogContent {
         val logContent = LogContent()
         this.forEach {
@@ -187,33 +385,133 @@ class LogContentReader(logPath: Path) : Iterator<PersistedRecord> {
     }
 
     fun seekToPosition(position: Long) {
+        stopPipeline()
+        resetLimit()
         reader.seekToAsqn(position);
     }
 
+    fun seekToTimestamp(timestamp: Long) {
+        stopPipeline()
+        resetLimit()
+        reader.seekToTimestamp(timestamp)
+    }
+
     fun seekToIndex(index: Long) {
+        stopPipeline()
+        resetLimit()
         reader.seek(index)
     }
 
-    fun limitToPosition(toPosition: Long) {
-        isInLimit = { record: PersistedRecord ->
-            record is RaftRecord || (record is ApplicationRecord && record.lowestPosition < toPosition)
+    /**
+     * Seeks such that the last [count] entries of the log are read next.
+     */
+    fun seekToLastEntries(count: Long) {
+        stopPipeline()
+        resetLimit()
+        val lastIndex = reader.seekToLast()
+        if (!reader.hasNext()) {
+            return
+        }
+        reader.seek(maxOf(lastIndex - count + 1, 0))
+    }
+
+    /**
+     * Waits until a new entry is written to the log, or the timeout elapsed. Segment files which are
+     * created in the meantime are loaded into the open journal, instead of opening it again.
+     *
+     * The partition directory is watched for new and modified segment files. Since entries are
+     * written to mapped segments, which doesn't necessarily emit events, the log is checked after
+     * the timeout as well.
+     *
+     * @return true if a new entry can be read
+     */
+    fun awaitNext(timeout: Duration): Boolean {
+        stopPipeline()
+        if (reader.hasNext()) {
+            return true
+        }
+
+        val watchKey = getWatchService().poll(timeout.toMillis(), TimeUnit.MILLISECONDS)
+        if (watchKey != null) {
+            watchKey.pollEvents()
+            watchKey.reset()
         }
+
+        journal.refresh()
+        return reader.hasNext()
+    }
+
+    private fun getWatchService(): WatchService {
+        return watchService ?: logPath.fileSystem.newWatchService().also {
+            logPath.register(it, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY)
+            watchService = it
+        }
+    }
+
+    fun limitToPosition(toPosition: Long) {
+        this.toPosition = toPosition
+        resetLimit()
+    }
+
+    private fun resetLimit() {
+        pastLimit = false
+        lastEntryReachesLimit = false
     }
 
     fun filterForProcessInstance(instanceKey : Long) {
-        applicationRecordFilter = {
-            record : ApplicationRecord ->
-                record.entries.asSequence()
-                    .map { it.piRelatedValue }
-                    .filter { it != null }
-                    .map { it!! }
-                    .filter { it.processInstanceKey != null }
-                    .asStream()
-                    .map { it.processInstanceKey }
-                    .anyMatch(instanceKey::equals)
+        filterForProcessInstances(LongHashSet().apply { add(instanceKey) })
+    }
+
+    /**
+     * Filters for entries which contain at least one record of the given process instances. The
+     * process instance keys are read from the MsgPack values directly, such that the records of
+     * the skipped entries are never decoded.
+     */
+    fun filterForProcessInstances(instanceKeys : LongHashSet) {
+        // the filter is applied by the workers, if the entries are decoded in parallel
+        val loggedEvents = ThreadLocal.withInitial { LoggedEventImpl() }
+        val fieldReaders = ThreadLocal.withInitial { ProcessInstanceFieldReader() }
+        entryFilter = {
+            entry : SerializedApplicationEntry ->
+                val loggedEvent = loggedEvents.get()
+                val fieldReader = fieldReaders.get()
+                val data = entry.data()
+                var offset = 0
+                var matches = false
+                while (!matches && offset < data.capacity()) {
+                    loggedEvent.wrap(data, offset)
+                    fieldReader.read(loggedEvent.valueBuffer, loggedEvent.valueOffset, loggedEvent.valueLength)
+                    matches = fieldReader.hasProcessInstanceKey()
+                            && instanceKeys.contains(fieldReader.processInstanceKey())
+                    offset += loggedEvent.length
+                }
+                matches
         }
     }
 
+    /**
+     * Filters the records by their metadata. Records which don't match are skipped before their
+     * values are decoded, entries without any matching record are skipped completely.
+     */
+    fun filterRecords(filter: RecordFilter) {
+        recordFilter = filter
+    }
+
+    /**
+     * Reads only the records at the given positions, e.g. the records which matched in the
+     * [io.zell.zdb.log.index.MetadataIndex]. Only the entries which contain them are read, the
+     * reader seeks over all other entries. Other seeks of the reader are not supported afterwards.
+     *
+     * @param entryIndexes the distinct indexes of the entries which contain the records, ascending
+     * @param positions the positions of the records, ascending
+     */
+    fun filterForPositions(entryIndexes: LongArray, positions: LongArray) {
+        stopPipeline()
+        this.entryIndexes = entryIndexes
+        nextEntryIndex = 0
+        recordFilter = RecordFilter { Arrays.binarySearch(positions, it.position()) >= 0 }
+    }
+
     fun filterForRejections() {
         applicationRecordFilter = {
                 record : ApplicationRecord ->
@@ -223,4 +521,67 @@ class LogContentReader(logPath: Path) : Iterator<PersistedRecord> {
         }
     }
 
+    /**
+     * Decodes the entries on the given number of threads, while another thread reads the entries
+     * ahead. The entries are returned in the same order as without. Useful to print a complete log,
+     * which is otherwise bound by a single core.
+     */
+    fun decodeInParallel(threads: Int) {
+        stopPipeline()
+        decodeThreads = threads
+    }
+
+    private fun stopPipeline() {
+        // the pipeline reads ahead, which is why it is only stopped before the reader is positioned
+        // again, or after the end of the log was reached
+        pipeline?.close()
+        pipeline = null
+    }
+
+    override fun close() {
+        stopPipeline()
+        watchService?.close()
+        reader.close()
+    }
+}
+
+/**
+ * Exposes a logged event to a [RecordFilter] or a scan. Records written before 8.3 have their
+ * metadata in an older layout, which is read in addition.
+ */
+private class LoggedEventMetadataView : RecordView {
+    private val metadataBefore83 = RecordMetadataBefore83()
+    private lateinit var loggedEvent: LoggedEventImpl
+    private lateinit var metadata: RecordMetadata
+    private var index = 0L
+    private var term = 0L
+    private var before83 = false
+
+    fun wrap(index: Long, term: Long, loggedEvent: LoggedEventImpl, metadata: RecordMetadata): LoggedEventMetadataView {
+        this.index = index
+        this.term = term
+        this.loggedEvent = loggedEvent
+        this.metadata = metadata
+        before83 = metadata.protocolVersion < PROTOCOL_VERSION_83
+        if (before83) {
+            metadataBefore83.reset()
+            loggedEvent.readMetadata(metadataBefore83)
+        }
+        return this
+    }
+
+    override fun index(): Long = index
+    override fun term(): Long = term
+    override fun position(): Long = loggedEvent.position
+    override fun sourceRecordPosition(): Long = loggedEvent.sourceEventPosition
+    override fun timestamp(): Long = loggedEvent.timestamp
+    override fun key(): Long = loggedEvent.key
+    override fun recordType(): RecordType = if (before83) metadataBefore83.recordType else metadata.recordType
+    override fun valueType(): ValueType = if (before83) metadataBefore83.valueType else metadata.valueType
+    override fun intent(): Intent = if (before83) metadataBefore83.intent else metadata.intent
+    override fun rejectionType(): RejectionType =
+        if (before83) metadataBefore83.rejectionType else metadata.rejectionType
+    override fun valueBuffer(): DirectBuffer = loggedEvent.valueBuffer
+    override fun valueOffset(): Int = loggedEvent.valueOffset
+    override fun valueLength(): Int = loggedEvent.valueLength
 }
@@ -30,20 +30,36 @@ class LogFactory {
         private const val PARTITION_NAME_FORMAT = "raft-partition-partition-%d"
         private const val MAX_SEGMENT_SIZE = 128 * 1024 * 1024
 
-        fun newReader(logPath: Path): RaftLogReader {
+        /**
+         * Opens the journal of the given partition log and returns a reader for it. The reader owns
+         * the journal, closing the reader closes the journal and unmaps its segments.
+         */
+        @JvmOverloads
+        fun newReader(logPath: Path, options: LogOptions = LogOptions()): RaftLogReader {
+            val readOnlyJournal = newJournal(logPath, options)
+            return RaftLogUncommittedReader(readOnlyJournal.openReader(), readOnlyJournal)
+        }
+
+        @JvmOverloads
+        fun newJournal(logPath: Path, options: LogOptions = LogOptions()): SegmentedReadOnlyJournal {
             val partitionName = extractPartitionNameFromPath(logPath)
 
             val builder = SegmentedReadOnlyJournal.builder()
-            val readOnlyJournal = builder
                 .withDirectory(logPath.toFile())
                 .withName(partitionName)
                 .withMaxSegmentSize(MAX_SEGMENT_SIZE)
-                .build()
-
-            return RaftLogUncommittedReader(readOnlyJournal.openReader());
+                .withMaxMappedSegments(options.maxMappedSegments)
+                .withChecksumVerification(options.checksumVerification)
+                .withPrefetchDistance(options.prefetchDistance)
+                .withDirectIo(options.directIo)
+                .withJournalIndexDensity(options.indexDensity)
+                // every raft entry is decoded right away, so there is no need to allocate a record per read
+                .withRecordReuse(true)
+            options.indexCacheDirectory?.let { builder.withIndexCacheDirectory(it.toFile()) }
+            return builder.build()
         }
 
-        private fun extractPartitionNameFromPath(logPath: Path): String {
+        internal fun extractPartitionNameFromPath(logPath: Path): String {
             return try {
                 val partitionId = logPath.fileName.toString().toInt()
                 String.format(PARTITION_NAME_FORMAT, partitionId)
@@ -0,0 +1,87 @@
+/*
+ * Copyright © 2021 Christopher Kujawa (zelldon91@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.zell.zdb.log
+
+import io.zell.zdb.log.index.MetadataIndex
+import org.agrona.collections.LongHashSet
+
+/**
+ * The bounds and filters of the printed records, which are either applied while the log is read,
+ * or on the [MetadataIndex] of the log. Both ways select the same records. Since the records are
+ * written in batches, the bounds and the process instance filter select complete entries, only
+ * the record filter selects single records of the entries.
+ *
+ * @param fromPosition the reader seeks to the entry which contains the position, if positive
+ * @param fromTimestamp the reader seeks to the entry written at the timestamp, if positive. Takes
+ *     precedence over the [fromPosition].
+ * @param toPosition entries which start at or after the position are not read
+ * @param tail the reader seeks to the last entries, if positive. Takes precedence over the other
+ *     seeks.
+ * @param instanceKeys selects the entries which contain a record of the process instances, all
+ *     entries if empty
+ * @param recordFilter selects the records of the entries, all records if null
+ */
+class LogFilter(
+    val fromPosition: Long,
+    val fromTimestamp: Long,
+    val toPosition: Long,
+    val tail: Long,
+    val instanceKeys: LongHashSet,
+    val recordFilter: RecordFilter?
+) {
+
+    /** Whether records are filtered, otherwise reading the index doesn't spare anything. */
+    val filtersRecords: Boolean
+        get() = recordFilter != null || !instanceKeys.isEmpty()
+
+    /** Positions the reader and sets the filters, which are applied while the log is read. */
+    fun applyTo(reader: LogContentReader) {
+        seek(reader)
+        reader.limitToPosition(toPosition)
+        recordFilter?.let(reader::filterRecords)
+        if (!instanceKeys.isEmpty()) {
+            reader.filterForProcessInstances(instanceKeys)
+        }
+    }
+
+    /**
+     * Applies the bounds and filters on the index, such that the reader only reads the matching
+     * records. The reader is still positioned via a seek, to start at the same entry as without
+     * the index.
+     *
+     * @param index the up-to-date index of the log of the reader
+     */
+    fun applyTo(reader: LogContentReader, index: MetadataIndex) {
+        seek(reader)
+        val fromIndex = reader.nextHeader()?.index()
+        val matches = if (fromIndex == null) {
+            MetadataIndex.Matches(LongArray(0), LongArray(0))
+        } else {
+            index.matchEntries(fromIndex, toPosition, instanceKeys, recordFilter)
+        }
+        reader.filterForPositions(matches.entryIndexes, matches.positions)
+    }
+
+    private fun seek(reader: LogContentReader) {
+        if (tail > 0) {
+            reader.seekToLastEntries(tail)
+        } else if (fromTimestamp > 0) {
+            reader.seekToTimestamp(fromTimestamp)
+        } else if (fromPosition > 0) {
+            reader.seekToPosition(fromPosition)
+        }
+    }
+}
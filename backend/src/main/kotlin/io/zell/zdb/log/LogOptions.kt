@@ -0,0 +1,84 @@
+/*
+ * Copyright © 2021 Christopher Kujawa (zelldon91@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.zell.zdb.log
+
+import io.zell.zdb.journal.ChecksumVerification
+import java.nio.file.Path
+
+/**
+ * Options which tune how the partition log is read.
+ */
+data class LogOptions(
+    /**
+     * The maximum number of segments which are mapped into memory at the same time.
+     */
+    val maxMappedSegments: Int = DEFAULT_MAX_MAPPED_SEGMENTS,
+    /**
+     * The directory in which the journal index is persisted and reused across runs,
+     * or null if the index should not be persisted.
+     */
+    val indexCacheDirectory: Path? = null,
+    /**
+     * Which records are verified against their checksum, when they are read.
+     */
+    val checksumVerification: ChecksumVerification = ChecksumVerification.FULL,
+    /**
+     * How many segments are read into the page cache ahead of the segment which is currently read,
+     * 0 disables the prefetching. Only the next few MB after the read position, and the start of the
+     * following segments are read, see [io.zell.zdb.journal.file.SegmentedJournalBuilder.withPrefetchDistance].
+     */
+    val prefetchDistance: Int = DEFAULT_PREFETCH_DISTANCE,
+    /**
+     * Whether the log is streamed with direct I/O instead of mapping it, which bypasses the page cache.
+     */
+    val directIo: Boolean = false,
+    /**
+     * Every how many entries the journal index stores a position, a lower density allows faster seeks
+     * but needs more memory.
+     */
+    val indexDensity: Int = DEFAULT_INDEX_DENSITY
+) {
+
+    fun withMaxMappedSegments(maxMappedSegments: Int): LogOptions {
+        return copy(maxMappedSegments = maxMappedSegments)
+    }
+
+    fun withIndexCacheDirectory(indexCacheDirectory: Path?): LogOptions {
+        return copy(indexCacheDirectory = indexCacheDirectory)
+    }
+
+    fun withChecksumVerification(checksumVerification: ChecksumVerification): LogOptions {
+        return copy(checksumVerification = checksumVerification)
+    }
+
+    fun withPrefetchDistance(prefetchDistance: Int): LogOptions {
+        return copy(prefetchDistance = prefetchDistance)
+    }
+
+    fun withDirectIo(directIo: Boolean): LogOptions {
+        return copy(directIo = directIo)
+    }
+
+    fun withIndexDensity(indexDensity: Int): LogOptions {
+        return copy(indexDensity = indexDensity)
+    }
+
+    companion object {
+        const val DEFAULT_MAX_MAPPED_SEGMENTS = 8
+        const val DEFAULT_PREFETCH_DISTANCE = 0
+        const val DEFAULT_INDEX_DENSITY = 100
+    }
+}
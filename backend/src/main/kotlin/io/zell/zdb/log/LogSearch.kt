@@ -20,10 +20,11 @@ import io.zell.zdb.log.records.PersistedRecord
 import io.zell.zdb.log.records.Record
 import java.nio.file.Path
 
-class LogSearch(logPath: Path) {
+class LogSearch @JvmOverloads constructor(logPath: Path, options: LogOptions = LogOptions()) :
+    AutoCloseable {
 
 
-    private val reader: LogContentReader = LogContentReader(logPath)
+    private val reader: LogContentReader = LogContentReader(logPath, options)
 
     fun searchPosition(position: Long): Record? {
         if (position <= 0) {
@@ -32,29 +33,26 @@ class LogSearch(logPath: Path) {
 
         reader.seekToPosition(position);
 
-        while (reader.hasNext()) {
-            val entry = reader.next()
+        // only the headers are read, until the entry which contains the position is found
+        while (true) {
+            val header = reader.nextHeader() ?: return null
+
+            if (!header.applicationEntry() || header.highestPosition() < position) {
+                // nothing in this batch will match with the search position, check the next
+                continue
+            } else if (header.lowestPosition() > position) {
+                // nothing can be found in this entry and the entries afterwards
+                return null
+            }
 
-            if (entry is ApplicationRecord) {
-                if (entry.lowestPosition > position) {
-                    // nothing can be found in this entry and the entries afterwards
-                    return null;
-                } else if (entry.highestPosition < position) {
-                    // nothing in this batch will match with the search position, check the next
-                    continue
-                } else {
-                    // here there might be the position
-                    entry.entries.forEach {
-                        if (it.position == position) {
-                            // found!
-                            return it;
-                        }
-                    }
-                }
+            // here there might be the position
+            reader.seekToIndex(header.index())
+            if (!reader.hasNext()) {
+                return null
             }
+            val entry = reader.next() as? ApplicationRecord ?: return null
+            return entry.entries.find { it.position == position }
         }
-        // nothing found too bad
-        return null
     }
 
     fun searchIndex(index: Long): PersistedRecord? {
@@ -75,4 +73,7 @@ class LogSearch(logPath: Path) {
         return null
     }
 
+    override fun close() {
+        reader.close()
+    }
 }
@@ -0,0 +1,81 @@
+/*
+ * Copyright © 2021 Christopher Kujawa (zelldon91@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.zell.zdb.log
+
+import io.zell.zdb.ZeebePaths
+import io.zell.zdb.journal.file.SegmentDescriptorListing
+import io.zell.zdb.journal.file.SegmentDescriptorListing.SegmentState
+import java.nio.file.Path
+
+/**
+ * Lists the segments of a partition log, by reading only the descriptors of the segment files.
+ *
+ * The path either points to a partition log, which ends with the partition id, or to the data
+ * directory of a broker. For a data directory, the segments of all its partitions are listed,
+ * whereby the partitions are read in parallel.
+ */
+class LogSegments(private val path: Path) {
+
+    fun segments(): List<LogSegmentDetails> {
+        val partitionPaths = ZeebePaths.getPartitionLogPaths(path)
+        if (partitionPaths.isEmpty()) {
+            return readPartition(path)
+        }
+
+        return partitionPaths.parallelStream()
+            .map { readPartition(it) }
+            .toList()
+            .flatten()
+    }
+
+    private fun readPartition(logPath: Path): List<LogSegmentDetails> {
+        val journalName = LogFactory.extractPartitionNameFromPath(logPath)
+        val partitionId = logPath.fileName.toString().toInt()
+        return SegmentDescriptorListing.list(logPath.toFile(), journalName).map {
+            LogSegmentDetails(
+                partitionId,
+                it.fileName(),
+                it.state(),
+                it.id(),
+                it.firstIndex(),
+                it.lastIndex(),
+                it.lastPosition(),
+                it.version(),
+                it.fileSize(),
+                it.fillRatio(),
+                it.reason()
+            )
+        }
+    }
+}
+
+/**
+ * The descriptor of a segment file. The [lastIndex] and [lastPosition] are 0, if the descriptor
+ * doesn't know the last entry, which is usually the case for the segment which is currently written.
+ */
+data class LogSegmentDetails(
+    val partition: Int,
+    val fileName: String,
+    val state: SegmentState,
+    val id: Long,
+    val firstIndex: Long,
+    val lastIndex: Long,
+    val lastPosition: Int,
+    val version: Int,
+    val fileSize: Long,
+    val fillRatio: Double,
+    val reason: String?
+)
@@ -15,25 +15,113 @@
  */
 package io.zell.zdb.log
 
-import io.zell.zdb.raft.RaftLogReader
+import io.zell.zdb.journal.ReadOnlyJournal
+import io.zell.zdb.journal.ReadOnlyJournalRecord
+import io.zell.zdb.journal.file.SegmentedReadOnlyJournal
+import io.zell.zdb.raft.RaftEntryHeaderReader
 import java.nio.file.Path
+import java.util.stream.StreamSupport
 
 
-class LogStatus(logPath: Path) {
+/**
+ * Reads the status of a partition log. The log is kept open until the status is closed, which
+ * releases the mapped segments of the log.
+ */
+class LogStatus @JvmOverloads constructor(logPath: Path, options: LogOptions = LogOptions()) :
+    AutoCloseable {
 
-    private val reader: RaftLogReader = LogFactory.newReader(logPath)
+    private val journal: ReadOnlyJournal = LogFactory.newJournal(logPath, options)
 
     fun status(): LogStatusDetails {
+        return readStatusFromBoundaries() ?: scanStatus()
+    }
+
+    override fun close() {
+        journal.close()
+    }
+
+    /**
+     * Reads the status only from the entries at the boundaries of the log, since indexes, terms and
+     * positions are increasing. The segment descriptors know where the last entry of a segment
+     * starts, such that this doesn't depend on the size of the log.
+     *
+     * Returns null if the status can't be determined this way, e.g. when there is no application
+     * entry at all.
+     */
+    private fun readStatusFromBoundaries(): LogStatusDetails? {
+        val headerReader = RaftEntryHeaderReader()
+        journal.openReader().use { reader ->
+            reader.seekToFirst()
+            if (!reader.hasNext()) {
+                return null
+            }
+
+            val logStatusDetails = LogStatusDetails()
+            val firstRecord = reader.next()
+            logStatusDetails.lowestIndex = firstRecord.index()
+
+            // the asqn of an application entry is its lowest position
+            var lowestPosition = firstRecord.asqn()
+            while (lowestPosition == SegmentedReadOnlyJournal.ASQN_IGNORE && reader.hasNext()) {
+                lowestPosition = reader.next().asqn()
+            }
+            if (lowestPosition == SegmentedReadOnlyJournal.ASQN_IGNORE) {
+                return null
+            }
+            logStatusDetails.lowestRecordPosition = lowestPosition
+
+            reader.seekToLast()
+            if (!reader.hasNext()) {
+                return null
+            }
+            val lastRecord = reader.next()
+            logStatusDetails.highestIndex = lastRecord.index()
+            logStatusDetails.highestTerm = headerReader.read(lastRecord).term()
+
+            // the last entry might be a raft entry, we need the last application entry
+            reader.seekToAsqn(Long.MAX_VALUE)
+            if (!reader.hasNext()) {
+                return null
+            }
+            val lastApplicationEntry = headerReader.read(reader.next())
+            if (!lastApplicationEntry.applicationEntry()) {
+                return null
+            }
+            logStatusDetails.highestRecordPosition = lastApplicationEntry.highestPosition()
+
+            return logStatusDetails
+        }
+    }
+
+    /**
+     * Collects the status by reading the complete log. The segments are read in parallel, each
+     * split of the journal collects its own status, which are merged afterwards.
+     */
+    private fun scanStatus(): LogStatusDetails {
+        return StreamSupport.stream(journal.spliterator(), true)
+            .collect(
+                { LogStatusCollector() },
+                { collector, record -> collector.accept(record) },
+                { collector, other -> collector.merge(other) })
+            .logStatusDetails
+    }
+
+    /**
+     * Collects the status of a part of the log. Only the headers of the entries are read, the records
+     * are not decoded. Not thread safe, every split has its own collector.
+     */
+    private class LogStatusCollector {
+        private val headerReader = RaftEntryHeaderReader()
         val logStatusDetails = LogStatusDetails()
 
-        reader.forEachRemaining {
-            val persistedRaftRecord = it.persistedRaftRecord
+        fun accept(record: ReadOnlyJournalRecord) {
+            val header = headerReader.read(record)
 
-            if (logStatusDetails.highestTerm < persistedRaftRecord.term()) {
-                logStatusDetails.highestTerm = persistedRaftRecord.term()
+            if (logStatusDetails.highestTerm < header.term()) {
+                logStatusDetails.highestTerm = header.term()
             }
 
-            val currentEntryIndex = persistedRaftRecord.index()
+            val currentEntryIndex = record.index()
             if (logStatusDetails.highestIndex < currentEntryIndex) {
                 logStatusDetails.highestIndex = currentEntryIndex
             }
@@ -42,20 +130,26 @@ class LogStatus(logPath: Path) {
                 logStatusDetails.lowestIndex = currentEntryIndex
             }
 
-            if (it.isApplicationEntry) {
-                val applicationEntry = it.applicationEntry
-                if (logStatusDetails.highestRecordPosition < applicationEntry.highestPosition()) {
-                    logStatusDetails.highestRecordPosition = applicationEntry.highestPosition()
+            if (header.applicationEntry()) {
+                if (logStatusDetails.highestRecordPosition < header.highestPosition()) {
+                    logStatusDetails.highestRecordPosition = header.highestPosition()
                 }
 
-                if (logStatusDetails.lowestRecordPosition > applicationEntry.lowestPosition()) {
-                    logStatusDetails.lowestRecordPosition = applicationEntry.lowestPosition()
+                if (logStatusDetails.lowestRecordPosition > header.lowestPosition()) {
+                    logStatusDetails.lowestRecordPosition = header.lowestPosition()
                 }
             }
         }
 
-        return logStatusDetails
+        fun merge(other: LogStatusCollector) {
+            val otherDetails = other.logStatusDetails
+            logStatusDetails.highestTerm = maxOf(logStatusDetails.highestTerm, otherDetails.highestTerm)
+            logStatusDetails.highestIndex = maxOf(logStatusDetails.highestIndex, otherDetails.highestIndex)
+            logStatusDetails.lowestIndex = minOf(logStatusDetails.lowestIndex, otherDetails.lowestIndex)
+            logStatusDetails.highestRecordPosition =
+                maxOf(logStatusDetails.highestRecordPosition, otherDetails.highestRecordPosition)
+            logStatusDetails.lowestRecordPosition =
+                minOf(logStatusDetails.lowestRecordPosition, otherDetails.lowestRecordPosition)
+        }
     }
-
-
 }
@@ -0,0 +1,54 @@
+/*
+ * Copyright © 2021 Christopher Kujawa (zelldon91@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.zell.zdb.log
+
+import kotlinx.serialization.Serializable
+import kotlinx.serialization.encodeToString
+import kotlinx.serialization.json.Json
+
+// an empty list of corrupted ranges is part of the result as well
+private val json = Json { encodeDefaults = true }
+
+@Serializable
+class LogVerificationDetails constructor() {
+    var segments = 0
+    var records = 0L
+    var bytes = 0L
+    var durationMillis = 0L
+    var recordsPerSecond = 0L
+    var megabytesPerSecond = 0.0
+    var corruptedRanges: List<CorruptedIndexRange> = emptyList()
+
+    fun isValid(): Boolean {
+        return corruptedRanges.isEmpty()
+    }
+
+    override fun toString(): String {
+        return json.encodeToString(this)
+    }
+}
+
+/**
+ * A range of indexes in a segment, which couldn't be read. The [toIndex] is -1, if the range
+ * extends to the end of the segment.
+ */
+@Serializable
+data class CorruptedIndexRange(
+    val segment: String,
+    val fromIndex: Long,
+    val toIndex: Long,
+    val reason: String?
+)
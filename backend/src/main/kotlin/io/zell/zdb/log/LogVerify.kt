@@ -0,0 +1,52 @@
+/*
+ * Copyright © 2021 Christopher Kujawa (zelldon91@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.zell.zdb.log
+
+import io.zell.zdb.journal.file.JournalVerifier
+import java.nio.file.Path
+import java.util.concurrent.ForkJoinPool
+
+/**
+ * Verifies the checksums of all records in the log. The segments are verified in parallel, every
+ * segment on its own task of the given fork join pool.
+ */
+class LogVerify @JvmOverloads constructor(
+    private val logPath: Path,
+    private val options: LogOptions = LogOptions()
+) {
+
+    @JvmOverloads
+    fun verify(pool: ForkJoinPool = ForkJoinPool.commonPool()): LogVerificationDetails {
+        val journal = LogFactory.newJournal(logPath, options)
+        val result = try {
+            JournalVerifier(journal).verify(pool)
+        } finally {
+            journal.close()
+        }
+
+        val verificationDetails = LogVerificationDetails()
+        verificationDetails.segments = result.segments()
+        verificationDetails.records = result.records()
+        verificationDetails.bytes = result.bytes()
+        verificationDetails.durationMillis = result.duration().toMillis()
+        verificationDetails.recordsPerSecond = result.recordsPerSecond().toLong()
+        verificationDetails.megabytesPerSecond = result.bytesPerSecond() / (1024 * 1024)
+        verificationDetails.corruptedRanges = result.corruptedRanges().map {
+            CorruptedIndexRange(it.segment(), it.fromIndex(), it.toIndex(), it.reason())
+        }
+        return verificationDetails
+    }
+}
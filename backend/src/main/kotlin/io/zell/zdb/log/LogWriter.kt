@@ -16,8 +16,10 @@
 package io.zell.zdb.log
 
 import io.zell.zdb.log.records.PersistedRecord
+import java.io.Flushable
 import java.io.OutputStream
 import java.io.PrintWriter
+import java.time.Duration
 
 class LogWriter(val out: OutputStream, val reader: LogContentReader) {
 
@@ -37,4 +39,59 @@ class LogWriter(val out: OutputStream, val reader: LogContentReader) {
         }
         printWriter.flush();
     }
+
+    /**
+     * Writes the records as JSON array. The records are streamed into the output by a
+     * [JsonRecordWriter], without creating a string per record.
+     */
+    fun writeAsJson() {
+        val jsonWriter = JsonRecordWriter(out)
+        jsonWriter.writeAscii("[" + System.lineSeparator())
+        var separator = ""
+        while (reader.hasNext()) {
+            jsonWriter.writeAscii(separator)
+            jsonWriter.write(reader.next())
+            separator = ","
+        }
+        jsonWriter.writeAscii("]" + System.lineSeparator())
+        jsonWriter.flush()
+    }
+
+    /**
+     * Writes the records as table, like [writeAsTable], but doesn't stop at the end of the log.
+     * New records are written as they are appended to the log, until the thread is interrupted or
+     * the limit of the reader is reached.
+     */
+    fun followAsTable(pollInterval: Duration) {
+        val printWriter = PrintWriter(out, true)
+        printWriter.println(COLUMN_TITLE)
+        follow(printWriter, pollInterval) { printWriter.print(it.asColumnString()) }
+    }
+
+    /**
+     * Writes every record as JSON object on its own line, and new records as they are appended to
+     * the log, until the thread is interrupted or the limit of the reader is reached. Other than a
+     * JSON array, this doesn't need to be closed at the end.
+     */
+    fun followAsJsonLines(pollInterval: Duration) {
+        val jsonWriter = JsonRecordWriter(out)
+        follow(jsonWriter, pollInterval) {
+            jsonWriter.write(it)
+            jsonWriter.writeAscii(System.lineSeparator())
+        }
+    }
+
+    private fun follow(output: Flushable, pollInterval: Duration, write: (PersistedRecord) -> Unit) {
+        while (!Thread.currentThread().isInterrupted) {
+            while (reader.hasNext()) {
+                write(reader.next())
+            }
+            output.flush()
+            if (reader.limitReached) {
+                // no more records are printed before the limit
+                return
+            }
+            reader.awaitNext(pollInterval)
+        }
+    }
 }
@@ -0,0 +1,185 @@
+/*
+ * Copyright © 2021 Christopher Kujawa (zelldon91@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.zell.zdb.log
+
+import io.zell.zdb.ZeebePaths
+import io.zell.zdb.log.records.ApplicationRecord
+import io.zell.zdb.log.records.Record
+import java.nio.file.Path
+import java.util.PriorityQueue
+import java.util.concurrent.ArrayBlockingQueue
+import java.util.concurrent.BlockingQueue
+import java.util.function.Consumer
+
+private const val BATCHES_PER_PARTITION = 64
+
+/**
+ * Reads the logs of all partitions of a broker data directory, and merges their records into one
+ * stream, ordered by the record timestamp. Records with the same timestamp are ordered by
+ * partition and position.
+ *
+ * Every partition is read by its own thread, which decodes the entries of the partition ahead of
+ * the merge, into a bounded queue. The merge keeps the next record of every partition in a heap,
+ * such that every record costs a heap operation over the number of partitions.
+ *
+ * The timestamps are written by different brokers, which is why the merged order is only as exact
+ * as their clocks are synchronized. Raft entries without records, e.g. the initial entry of a term,
+ * are skipped.
+ */
+class MergedLogReader @JvmOverloads constructor(
+    dataPath: Path,
+    options: LogOptions = LogOptions(),
+    /**
+     * Configures the reader of every partition before it is read, e.g. to seek or filter.
+     */
+    configure: Consumer<LogContentReader> = Consumer {}
+) : Iterator<PartitionRecord>, AutoCloseable {
+
+    private val partitions: List<PartitionCursor>
+    private val heads = PriorityQueue(
+        compareBy<PartitionCursor> { it.current().record.timestamp }
+            .thenBy { it.partitionId }
+            .thenBy { it.current().record.position })
+    private var started = false
+
+    init {
+        val logPaths = ZeebePaths.getPartitionLogPaths(dataPath)
+        require(logPaths.isNotEmpty()) {
+            "Expected a data directory with partitions, but found none in $dataPath"
+        }
+
+        partitions = logPaths.map { PartitionCursor(it, options, configure) }
+        partitions.forEach { it.start() }
+    }
+
+    override fun hasNext(): Boolean {
+        if (!started) {
+            started = true
+            partitions.filter { it.advance() }.forEach { heads.add(it) }
+        }
+        return heads.isNotEmpty()
+    }
+
+    override fun next(): PartitionRecord {
+        if (!hasNext()) {
+            throw NoSuchElementException()
+        }
+
+        val partition = heads.poll()
+        val next = partition.current()
+        if (partition.advance()) {
+            heads.add(partition)
+        }
+        return next
+    }
+
+    override fun close() {
+        partitions.forEach { it.close() }
+        heads.clear()
+    }
+
+    private class PartitionCursor(
+        private val logPath: Path,
+        private val options: LogOptions,
+        private val configure: Consumer<LogContentReader>
+    ) {
+        val partitionId = logPath.fileName.toString().toInt()
+        // an empty batch marks the end of the partition
+        private val batches: BlockingQueue<List<PartitionRecord>> = ArrayBlockingQueue(BATCHES_PER_PARTITION)
+        private lateinit var thread: Thread
+        @Volatile private var failure: Throwable? = null
+        private var batch: List<PartitionRecord> = emptyList()
+        private var offset = 0
+        private var ended = false
+
+        fun start() {
+            thread = Thread.ofVirtual().name("zdb-partition-reader-$partitionId").start { read() }
+        }
+
+        private fun read() {
+            try {
+                LogContentReader(logPath, options).use { reader ->
+                    configure.accept(reader)
+                    while (reader.hasNext()) {
+                        val entry = reader.next()
+                        if (entry is ApplicationRecord && entry.entries.isNotEmpty()) {
+                            batches.put(entry.entries.map { PartitionRecord(partitionId, entry, it) })
+                        }
+                    }
+                }
+            } catch (e: InterruptedException) {
+                // closed while the merge still reads
+                return
+            } catch (e: Throwable) {
+                failure = e
+            }
+
+            try {
+                batches.put(emptyList())
+            } catch (e: InterruptedException) {
+                // closed while the merge still reads
+            }
+        }
+
+        fun current(): PartitionRecord = batch[offset]
+
+        /**
+         * Moves to the next record of the partition, and waits for it if it is not decoded yet.
+         *
+         * @return false if the partition has no more records
+         */
+        fun advance(): Boolean {
+            if (ended) {
+                return false
+            }
+
+            offset++
+            if (offset < batch.size) {
+                return true
+            }
+
+            batch = batches.take()
+            offset = 0
+            if (batch.isEmpty()) {
+                ended = true
+                failure?.let { throw IllegalStateException("Failed to read the log of partition $partitionId", it) }
+                return false
+            }
+            return true
+        }
+
+        fun close() {
+            ended = true
+            thread.interrupt()
+            // waits until the reader closed the log, such that it can be read or deleted afterwards
+            thread.join()
+        }
+    }
+}
+
+/**
+ * A record of a partition log, tagged with the partition and the raft entry it was written with.
+ */
+class PartitionRecord(val partitionId: Int, val entry: ApplicationRecord, val record: Record) {
+
+    override fun toString(): String {
+        return """{"partition":$partitionId,"index":${entry.index},"term":${entry.term},"record":$record}"""
+    }
+
+    fun asColumnString(): String {
+        return """$partitionId ${entry.index} ${entry.term} ${entry.entryAsColumn(record)}"""
+    }
+}
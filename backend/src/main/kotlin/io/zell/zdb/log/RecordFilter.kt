@@ -0,0 +1,166 @@
+/*
+ * Copyright © 2021 Christopher Kujawa (zelldon91@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.zell.zdb.log
+
+import io.camunda.zeebe.protocol.record.RecordType
+import io.camunda.zeebe.protocol.record.RejectionType
+import io.camunda.zeebe.protocol.record.ValueType
+import io.camunda.zeebe.protocol.record.intent.Intent
+import org.agrona.DirectBuffer
+
+/**
+ * The metadata of a record, which a [RecordFilter] is checked against before the value of the
+ * record is decoded. Implementations are usually flyweights over the serialized record.
+ */
+interface RecordMetadataView {
+    fun position(): Long
+    fun sourceRecordPosition(): Long
+    fun timestamp(): Long
+    fun key(): Long
+    fun recordType(): RecordType
+    fun valueType(): ValueType
+    fun intent(): Intent
+    fun rejectionType(): RejectionType
+}
+
+/**
+ * A view on a record while the log is scanned, which gives access to the raw MsgPack value next to
+ * the metadata. The view is only valid until the next record is scanned.
+ */
+interface RecordView : RecordMetadataView {
+    /** The index of the raft entry, which contains the record. */
+    fun index(): Long
+    /** The term of the raft entry, which contains the record. */
+    fun term(): Long
+    fun valueBuffer(): DirectBuffer
+    fun valueOffset(): Int
+    fun valueLength(): Int
+}
+
+/**
+ * Filters records by their metadata, without decoding their values.
+ */
+fun interface RecordFilter {
+
+    fun test(record: RecordMetadataView): Boolean
+
+    companion object {
+        private val CONDITION = Regex("""^(\w+)\s*(!=|<=|>=|=|<|>)\s*(\S+)$""")
+        private val AND = Regex("""\s+and\s+""", RegexOption.IGNORE_CASE)
+
+        /** The names of the intents of all value types, to validate the intents of a filter. */
+        private val INTENT_NAMES: Set<String> by lazy {
+            Intent.INTENT_CLASSES
+                .flatMap { intents -> intents.enumConstants?.map { it.name() } ?: emptyList() }
+                .toSortedSet()
+        }
+
+        /**
+         * Compiles a filter expression, like `valueType=JOB and intent=TIMED_OUT`. The expression is
+         * a conjunction of conditions, which are joined by `and`. A condition compares a field of the
+         * metadata with a value:
+         *
+         * - `recordType`, `valueType`, `intent` and `rejectionType` support `=` and `!=`, several
+         *   values can be separated by `|`, e.g. `intent=CREATED|COMPLETED`
+         * - `position`, `sourceRecordPosition`, `timestamp` and `key` support `=`, `!=`, `<`, `<=`,
+         *   `>` and `>=`
+         *
+         * @throws IllegalArgumentException if the expression is invalid
+         */
+        @JvmStatic
+        fun parse(expression: String): RecordFilter {
+            val conditions = expression.trim().split(AND)
+                .map { parseCondition(it.trim()) }
+                .toTypedArray()
+
+            return RecordFilter { record -> conditions.all { it.test(record) } }
+        }
+
+        private fun parseCondition(condition: String): RecordFilter {
+            val match = CONDITION.matchEntire(condition)
+                ?: throw IllegalArgumentException("Expected a condition like 'valueType=JOB', but got '$condition'")
+            val (field, operator, value) = match.destructured
+
+            return when (field) {
+                "recordType" -> enumCondition(field, operator, value, RecordType.entries) { it.recordType() }
+                "valueType" -> enumCondition(field, operator, value, ValueType.entries) { it.valueType() }
+                "rejectionType" -> enumCondition(field, operator, value, RejectionType.entries) { it.rejectionType() }
+                "intent" -> intentCondition(operator, value)
+                "position" -> numberCondition(field, operator, value) { it.position() }
+                "sourceRecordPosition" -> numberCondition(field, operator, value) { it.sourceRecordPosition() }
+                "timestamp" -> numberCondition(field, operator, value) { it.timestamp() }
+                "key" -> numberCondition(field, operator, value) { it.key() }
+                else -> throw IllegalArgumentException(
+                    "Unknown field '$field', expected one of: recordType, valueType, intent, rejectionType, " +
+                            "position, sourceRecordPosition, timestamp, key")
+            }
+        }
+
+        private fun <T : Enum<T>> enumCondition(
+            field: String,
+            operator: String,
+            value: String,
+            constants: List<T>,
+            extractor: (RecordMetadataView) -> T
+        ): RecordFilter {
+            val expected = value.split("|").map { name ->
+                constants.find { it.name.equals(name, ignoreCase = true) }
+                    ?: throw IllegalArgumentException(
+                        "Unknown $field '$name', expected one of: ${constants.joinToString()}")
+            }.toSet()
+
+            return when (operator) {
+                "=" -> RecordFilter { expected.contains(extractor(it)) }
+                "!=" -> RecordFilter { !expected.contains(extractor(it)) }
+                else -> throw IllegalArgumentException("The $field can only be compared with = or !=, but got '$operator'")
+            }
+        }
+
+        private fun intentCondition(operator: String, value: String): RecordFilter {
+            // the intents are enums per value type, which is why they are compared by name
+            val expected = value.split("|").map { name ->
+                name.uppercase().takeIf { INTENT_NAMES.contains(it) }
+                    ?: throw IllegalArgumentException(
+                        "Unknown intent '$name', expected one of: ${INTENT_NAMES.joinToString()}")
+            }.toSet()
+
+            return when (operator) {
+                "=" -> RecordFilter { expected.contains(it.intent().name()) }
+                "!=" -> RecordFilter { !expected.contains(it.intent().name()) }
+                else -> throw IllegalArgumentException("The intent can only be compared with = or !=, but got '$operator'")
+            }
+        }
+
+        private fun numberCondition(
+            field: String,
+            operator: String,
+            value: String,
+            extractor: (RecordMetadataView) -> Long
+        ): RecordFilter {
+            val expected = value.toLongOrNull()
+                ?: throw IllegalArgumentException("Expected a number for $field, but got '$value'")
+
+            return when (operator) {
+                "=" -> RecordFilter { extractor(it) == expected }
+                "!=" -> RecordFilter { extractor(it) != expected }
+                "<" -> RecordFilter { extractor(it) < expected }
+                "<=" -> RecordFilter { extractor(it) <= expected }
+                ">" -> RecordFilter { extractor(it) > expected }
+                else -> RecordFilter { extractor(it) >= expected }
+            }
+        }
+    }
+}
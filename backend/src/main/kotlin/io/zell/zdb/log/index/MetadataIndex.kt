@@ -0,0 +1,391 @@
+/*
+ * Copyright © 2021 Christopher Kujawa (zelldon91@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.zell.zdb.log.index
+
+import io.camunda.zeebe.protocol.record.RecordType
+import io.camunda.zeebe.protocol.record.RejectionType
+import io.camunda.zeebe.protocol.record.ValueType
+import io.camunda.zeebe.protocol.record.intent.Intent
+import io.zell.zdb.journal.file.SegmentFile
+import io.zell.zdb.log.LogFactory
+import io.zell.zdb.log.RecordFilter
+import io.zell.zdb.log.RecordMetadataView
+import org.agrona.IoUtil
+import org.agrona.collections.LongArrayList
+import org.agrona.collections.LongHashSet
+import org.slf4j.LoggerFactory
+import java.io.IOException
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+import java.nio.MappedByteBuffer
+import java.nio.channels.FileChannel
+import java.nio.charset.StandardCharsets
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.StandardOpenOption
+import java.util.function.Predicate
+import kotlin.io.path.isRegularFile
+import kotlin.io.path.listDirectoryEntries
+
+/**
+ * A columnar copy of the metadata of all records of a partition log, which is built once via
+ * [MetadataIndexWriter.build]. Filters and statistics over the metadata can then be answered from
+ * the index, without decoding the log again. Only the matching records need to be read from the
+ * log, see [match].
+ *
+ * The file holds every column as contiguous array, in the order of the log, and is mapped into
+ * memory. The enums are dictionary encoded, the dictionaries are part of the file. The layout is
+ * (little endian):
+ *
+ * ```
+ * header:     magic (int) | version (int) | header length (int) | record count (long)
+ *             | segment count (int) | segments | record types | value types | rejection types
+ *             | intents | padding to 8 bytes
+ * segment:    name length (short) | name (bytes) | file size (long) | last modified (long)
+ * dictionary: entry count (short) | entries of name length (short) | name (bytes)
+ * intents:    entry count (short) | entries of value type name length (short) | value type name
+ *             | intent value (short)
+ * columns:    index | position | source record position | timestamp | key | process instance key
+ *             (long each) | intent (short) | record type | value type | rejection type (byte each)
+ * ```
+ *
+ * The segments identify the state of the log the index was built from. If the log has changed
+ * since, e.g. it was appended to or compacted, the index is outdated and not opened.
+ */
+class MetadataIndex private constructor(
+    val recordCount: Long,
+    private val recordTypes: Array<RecordType>,
+    private val valueTypes: Array<ValueType>,
+    private val rejectionTypes: Array<RejectionType>,
+    private val intents: Array<Intent>,
+    private val columns: List<MappedColumn>
+) : AutoCloseable {
+
+    private val indexes = columns[0]
+    private val positions = columns[1]
+    private val sourceRecordPositions = columns[2]
+    private val timestamps = columns[3]
+    private val keys = columns[4]
+    private val processInstanceKeys = columns[5]
+    private val intentCodes = columns[6]
+    private val recordTypeCodes = columns[7]
+    private val valueTypeCodes = columns[8]
+    private val rejectionTypeCodes = columns[9]
+
+    /** Returns a cursor, which is positioned before the first record. */
+    fun cursor(): Cursor {
+        return Cursor()
+    }
+
+    /**
+     * Finds the records which match the predicate. The result contains the positions of the
+     * matching records, and the indexes of the entries which contain them, such that a reader only
+     * needs to read these entries.
+     *
+     * @param predicate tested with the cursor at every record
+     */
+    fun match(predicate: Predicate<Cursor>): Matches {
+        val entryIndexes = LongArrayList()
+        val matchingPositions = LongArrayList()
+        val cursor = Cursor()
+        while (cursor.next()) {
+            if (predicate.test(cursor)) {
+                val index = cursor.index()
+                if (entryIndexes.isEmpty() || entryIndexes.getLong(entryIndexes.size - 1) != index) {
+                    entryIndexes.addLong(index)
+                }
+                matchingPositions.addLong(cursor.position())
+            }
+        }
+        return Matches(entryIndexes.toLongArray(), matchingPositions.toLongArray())
+    }
+
+    /**
+     * Finds the records which a [io.zell.zdb.log.LogContentReader] reads with the given bounds and
+     * filters. Like the reader, the bounds and the process instance filter select complete entries,
+     * the record filter selects the records within them.
+     *
+     * @param fromIndex the index of the first entry to read, e.g. at which a seek positioned the
+     *     reader
+     * @param toPosition entries which start at or after the position are not read
+     * @param instanceKeys selects the entries which contain a record of the process instances, all
+     *     entries if empty
+     * @param recordFilter selects the records of the entries, all records if null
+     */
+    fun matchEntries(
+        fromIndex: Long,
+        toPosition: Long,
+        instanceKeys: LongHashSet,
+        recordFilter: RecordFilter?
+    ): Matches {
+        val entryIndexes = LongArrayList()
+        val matchingPositions = LongArrayList()
+        val entryPositions = LongArrayList()
+        val cursor = Cursor()
+        var hasNext = cursor.next()
+        while (hasNext) {
+            val index = cursor.index()
+            // the records of an entry are in order, the first one has the lowest position
+            if (index >= fromIndex && cursor.position() >= toPosition) {
+                break
+            }
+
+            var containsInstance = instanceKeys.isEmpty()
+            entryPositions.clear()
+            do {
+                containsInstance = containsInstance
+                        || (cursor.hasProcessInstanceKey() && instanceKeys.contains(cursor.processInstanceKey()))
+                if (recordFilter?.test(cursor) != false) {
+                    entryPositions.addLong(cursor.position())
+                }
+                hasNext = cursor.next()
+            } while (hasNext && cursor.index() == index)
+
+            if (index >= fromIndex && containsInstance && entryPositions.isNotEmpty()) {
+                entryIndexes.addLong(index)
+                for (i in 0 until entryPositions.size) {
+                    matchingPositions.addLong(entryPositions.getLong(i))
+                }
+            }
+        }
+        return Matches(entryIndexes.toLongArray(), matchingPositions.toLongArray())
+    }
+
+    override fun close() {
+        columns.forEach { it.close() }
+    }
+
+    /**
+     * The records which matched, in the order of the log.
+     *
+     * @param entryIndexes the distinct indexes of the entries, which contain the records
+     * @param positions the positions of the records
+     */
+    class Matches(val entryIndexes: LongArray, val positions: LongArray)
+
+    /** Iterates over the records of the index. The metadata is read from the current record. */
+    inner class Cursor internal constructor() : RecordMetadataView {
+        private var row = -1L
+
+        /**
+         * Moves the cursor to the next record.
+         *
+         * @return false if there is no next record
+         */
+        fun next(): Boolean {
+            if (row + 1 >= recordCount) {
+                return false
+            }
+            row++
+            return true
+        }
+
+        /** The index of the raft entry, which contains the record. */
+        fun index(): Long = indexes.getLong(row)
+
+        /** The process instance key of the value, or [NO_PROCESS_INSTANCE_KEY] if the value has none. */
+        fun processInstanceKey(): Long = processInstanceKeys.getLong(row)
+
+        /** Whether the value has a process instance key, which can be -1 as well. */
+        fun hasProcessInstanceKey(): Boolean = processInstanceKey() != NO_PROCESS_INSTANCE_KEY
+
+        override fun position(): Long = positions.getLong(row)
+        override fun sourceRecordPosition(): Long = sourceRecordPositions.getLong(row)
+        override fun timestamp(): Long = timestamps.getLong(row)
+        override fun key(): Long = keys.getLong(row)
+        override fun recordType(): RecordType = recordTypes[recordTypeCodes.getCode(row)]
+        override fun valueType(): ValueType = valueTypes[valueTypeCodes.getCode(row)]
+        override fun intent(): Intent = intents[intentCodes.getCode(row)]
+        override fun rejectionType(): RejectionType = rejectionTypes[rejectionTypeCodes.getCode(row)]
+    }
+
+    companion object {
+        private val LOG = LoggerFactory.getLogger(MetadataIndex::class.java)
+        internal val ENDIANNESS: ByteOrder = ByteOrder.LITTLE_ENDIAN
+        internal const val MAGIC = 0x5A44424D // ZDBM
+        internal const val VERSION = 2
+        internal const val PREFIX_LENGTH = Int.SIZE_BYTES * 3 + Long.SIZE_BYTES
+        internal val COLUMN_WIDTHS = intArrayOf(8, 8, 8, 8, 8, 8, 2, 1, 1, 1)
+        private const val FILE_EXTENSION = ".meta"
+
+        /**
+         * Marks records without process instance key. Values store -1 as key as well, which is why
+         * -1 can't be used.
+         */
+        const val NO_PROCESS_INSTANCE_KEY = Long.MIN_VALUE
+
+        /**
+         * Returns the file of the index of the given partition log. Like the persisted journal
+         * index, different copies of the same partition don't share their index.
+         */
+        @JvmStatic
+        fun file(logPath: Path, cacheDirectory: Path): Path {
+            val directoryHash = Integer.toHexString(logPath.toAbsolutePath().normalize().hashCode())
+            val partitionName = LogFactory.extractPartitionNameFromPath(logPath)
+            return cacheDirectory.resolve("$partitionName-$directoryHash$FILE_EXTENSION")
+        }
+
+        /**
+         * Opens the index of the given partition log.
+         *
+         * @return the index, or null if there is none or it is outdated
+         */
+        @JvmStatic
+        fun open(logPath: Path, cacheDirectory: Path): MetadataIndex? {
+            val file = file(logPath, cacheDirectory)
+            if (!file.isRegularFile()) {
+                return null
+            }
+
+            return try {
+                FileChannel.open(file, StandardOpenOption.READ).use { channel -> open(channel, logPath) }
+            } catch (e: IOException) {
+                LOG.debug("Failed to read the metadata index {}, will read the log instead.", file, e)
+                null
+            } catch (e: RuntimeException) {
+                LOG.debug("Failed to read the metadata index {}, will read the log instead.", file, e)
+                null
+            }
+        }
+
+        private fun open(channel: FileChannel, logPath: Path): MetadataIndex? {
+            val prefix = readFully(channel, 0, PREFIX_LENGTH)
+            if (prefix.getInt() != MAGIC || prefix.getInt() != VERSION) {
+                return null
+            }
+            val headerLength = prefix.getInt()
+            val recordCount = prefix.getLong()
+
+            val header = readFully(channel, PREFIX_LENGTH.toLong(), headerLength - PREFIX_LENGTH)
+            val segments = List(header.getInt()) {
+                SegmentKey(readString(header), header.getLong(), header.getLong())
+            }
+            if (segments != SegmentKey.list(logPath)) {
+                LOG.debug("The metadata index of {} is outdated, will read the log instead.", logPath)
+                return null
+            }
+
+            val recordTypes = readDictionary(header).map { RecordType.valueOf(it) }.toTypedArray()
+            val valueTypes = readDictionary(header).map { ValueType.valueOf(it) }.toTypedArray()
+            val rejectionTypes = readDictionary(header).map { RejectionType.valueOf(it) }.toTypedArray()
+            val intents = Array(header.getShort().toInt() and 0xFFFF) {
+                Intent.fromProtocolValue(ValueType.valueOf(readString(header)), header.getShort())
+            }
+
+            if (channel.size() < headerLength + COLUMN_WIDTHS.sum() * recordCount) {
+                // the file was truncated, e.g. by a full disk
+                return null
+            }
+
+            val columns = mutableListOf<MappedColumn>()
+            var offset = headerLength.toLong()
+            try {
+                for (width in COLUMN_WIDTHS) {
+                    columns.add(MappedColumn(channel, offset, recordCount, width))
+                    offset += width * recordCount
+                }
+            } catch (e: IOException) {
+                columns.forEach { it.close() }
+                throw e
+            }
+            return MetadataIndex(recordCount, recordTypes, valueTypes, rejectionTypes, intents, columns)
+        }
+
+        private fun readFully(channel: FileChannel, position: Long, length: Int): ByteBuffer {
+            val buffer = ByteBuffer.allocate(length).order(ENDIANNESS)
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0) {
+                    throw IOException("Expected $length bytes at $position, but the file ended")
+                }
+            }
+            return buffer.flip()
+        }
+
+        private fun readDictionary(buffer: ByteBuffer): List<String> {
+            return List(buffer.getShort().toInt() and 0xFFFF) { readString(buffer) }
+        }
+
+        private fun readString(buffer: ByteBuffer): String {
+            val bytes = ByteArray(buffer.getShort().toInt() and 0xFFFF)
+            buffer.get(bytes)
+            return String(bytes, StandardCharsets.UTF_8)
+        }
+    }
+}
+
+/** Identifies a segment file of the log, if one of the attributes changes the index is outdated. */
+internal data class SegmentKey(val name: String, val size: Long, val lastModified: Long) {
+
+    companion object {
+        /** Lists the segment files of the partition log, in order of their names. */
+        fun list(logPath: Path): List<SegmentKey> {
+            val partitionName = LogFactory.extractPartitionNameFromPath(logPath)
+            return logPath.listDirectoryEntries()
+                .filter { SegmentFile.isSegmentFile(partitionName, it.fileName.toString()) }
+                .sortedBy { it.fileName.toString() }
+                .map {
+                    SegmentKey(
+                        it.fileName.toString(),
+                        Files.size(it),
+                        Files.getLastModifiedTime(it).toMillis()
+                    )
+                }
+        }
+    }
+}
+
+/**
+ * A column of the index, which is mapped in chunks, since a single mapping is limited to 2 GiB.
+ */
+internal class MappedColumn(channel: FileChannel, offset: Long, count: Long, private val width: Int) {
+    private val valuesPerChunk = CHUNK_SIZE / width
+    private val chunks: Array<MappedByteBuffer>
+
+    init {
+        val chunkCount = ((count + valuesPerChunk - 1) / valuesPerChunk).toInt()
+        val mapped = mutableListOf<MappedByteBuffer>()
+        try {
+            for (chunk in 0 until chunkCount) {
+                val start = chunk.toLong() * valuesPerChunk
+                val length = minOf(valuesPerChunk.toLong(), count - start) * width
+                mapped.add(channel.map(FileChannel.MapMode.READ_ONLY, offset + start * width, length))
+            }
+        } catch (e: IOException) {
+            mapped.forEach { IoUtil.unmap(it) }
+            throw e
+        }
+        chunks = mapped.onEach { it.order(MetadataIndex.ENDIANNESS) }.toTypedArray()
+    }
+
+    fun getLong(row: Long): Long {
+        return chunks[(row / valuesPerChunk).toInt()].getLong((row % valuesPerChunk).toInt() * width)
+    }
+
+    /** Reads an unsigned dictionary code of a byte or short column. */
+    fun getCode(row: Long): Int {
+        val chunk = chunks[(row / valuesPerChunk).toInt()]
+        val offset = (row % valuesPerChunk).toInt() * width
+        return if (width == 1) chunk.get(offset).toInt() and 0xFF else chunk.getShort(offset).toInt() and 0xFFFF
+    }
+
+    fun close() {
+        chunks.forEach { IoUtil.unmap(it) }
+    }
+
+    companion object {
+        private const val CHUNK_SIZE = 1 shl 30
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright © 2021 Christopher Kujawa (zelldon91@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.zell.zdb.log.index
+
+import io.camunda.zeebe.protocol.record.RecordType
+import io.camunda.zeebe.protocol.record.RejectionType
+import io.camunda.zeebe.protocol.record.ValueType
+import io.camunda.zeebe.protocol.record.intent.Intent
+import io.zell.zdb.log.LogContentReader
+import io.zell.zdb.log.LogOptions
+import io.zell.zdb.log.RecordMetadataView
+import io.zell.zdb.log.records.ProcessInstanceFieldReader
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+import java.nio.charset.StandardCharsets
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.StandardCopyOption
+import java.nio.file.StandardOpenOption
+import kotlin.io.path.deleteIfExists
+
+/**
+ * Writes a [MetadataIndex] file. The length of the columns is only known at the end, which is why
+ * every column is spooled into a temporary file first. When the writer is finished, the header and
+ * the columns are copied into a temporary file, which replaces the previous index atomically. The
+ * temporary files have unique names, such that concurrent builds of the same index don't clash.
+ */
+class MetadataIndexWriter internal constructor(
+    private val file: Path,
+    private val segments: List<SegmentKey>
+) : AutoCloseable {
+
+    init {
+        // before the spools are created in the same directory
+        Files.createDirectories(file.parent)
+    }
+
+    private val spools = MetadataIndex.COLUMN_WIDTHS.mapIndexed { column, width ->
+        Spool(Files.createTempFile(file.parent, "${file.fileName}.$column.", ".tmp"), width)
+    }
+    private val recordTypes = Dictionary<RecordType>(0xFF)
+    private val valueTypes = Dictionary<ValueType>(0xFF)
+    private val rejectionTypes = Dictionary<RejectionType>(0xFF)
+    // the intents are enums per value type, which is why the value type is kept next to them
+    private val intents = Dictionary<Intent>(0xFFFF)
+    private val intentValueTypes = mutableListOf<ValueType>()
+
+    var recordCount = 0L
+        private set
+
+    /**
+     * Appends the metadata of the next record of the log.
+     *
+     * @param index the index of the entry, which contains the record
+     * @param processInstanceKey the process instance key of the value, or
+     *   [MetadataIndex.NO_PROCESS_INSTANCE_KEY] if it has none
+     */
+    fun add(index: Long, record: RecordMetadataView, processInstanceKey: Long) {
+        spools[0].putLong(index)
+        spools[1].putLong(record.position())
+        spools[2].putLong(record.sourceRecordPosition())
+        spools[3].putLong(record.timestamp())
+        spools[4].putLong(record.key())
+        spools[5].putLong(processInstanceKey)
+        spools[6].putShort(intents.code(record.intent()) { intentValueTypes.add(record.valueType()) })
+        spools[7].putByte(recordTypes.code(record.recordType()))
+        spools[8].putByte(valueTypes.code(record.valueType()))
+        spools[9].putByte(rejectionTypes.code(record.rejectionType()))
+        recordCount++
+    }
+
+    /** Writes the index file, after all records were added. */
+    fun finish() {
+        val tmpFile = Files.createTempFile(file.parent, "${file.fileName}.", ".tmp")
+        try {
+            FileChannel.open(tmpFile, StandardOpenOption.WRITE).use { channel ->
+                writeFully(channel, header())
+                for (spool in spools) {
+                    spool.copyTo(channel)
+                }
+                channel.force(true)
+            }
+            Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE)
+        } finally {
+            // only left if the index couldn't be written
+            tmpFile.deleteIfExists()
+        }
+    }
+
+    private fun header(): ByteBuffer {
+        val names = mutableListOf<ByteArray>()
+        segments.forEach { names.add(it.name.toByteArray(StandardCharsets.UTF_8)) }
+        val dictionaries = listOf(recordTypes, valueTypes, rejectionTypes)
+            .map { dictionary -> dictionary.values.map { it.name.toByteArray(StandardCharsets.UTF_8) } }
+        val intentValueTypeNames = intentValueTypes.map { it.name.toByteArray(StandardCharsets.UTF_8) }
+
+        val length = MetadataIndex.PREFIX_LENGTH + Int.SIZE_BYTES +
+                names.sumOf { Short.SIZE_BYTES + it.size + Long.SIZE_BYTES * 2 } +
+                dictionaries.sumOf { dictionary -> Short.SIZE_BYTES + dictionary.sumOf { Short.SIZE_BYTES + it.size } } +
+                Short.SIZE_BYTES + intentValueTypeNames.sumOf { Short.SIZE_BYTES + it.size + Short.SIZE_BYTES }
+        // the columns start 8 byte aligned, such that the long values are read aligned
+        val paddedLength = (length + Long.SIZE_BYTES - 1) / Long.SIZE_BYTES * Long.SIZE_BYTES
+
+        val header = ByteBuffer.allocate(paddedLength).order(MetadataIndex.ENDIANNESS)
+        header.putInt(MetadataIndex.MAGIC).putInt(MetadataIndex.VERSION).putInt(paddedLength).putLong(recordCount)
+        header.putInt(segments.size)
+        segments.forEachIndexed { i, segment ->
+            header.putShort(names[i].size.toShort()).put(names[i])
+            header.putLong(segment.size).putLong(segment.lastModified)
+        }
+        for (dictionary in dictionaries) {
+            header.putShort(dictionary.size.toShort())
+            dictionary.forEach { header.putShort(it.size.toShort()).put(it) }
+        }
+        header.putShort(intentValueTypeNames.size.toShort())
+        intents.values.forEachIndexed { i, intent ->
+            header.putShort(intentValueTypeNames[i].size.toShort()).put(intentValueTypeNames[i])
+            header.putShort(intent.value())
+        }
+        // the padding is left zeroed
+        return header.clear()
+    }
+
+    override fun close() {
+        spools.forEach { it.close() }
+    }
+
+    /** Assigns the codes of an enum column, in the order the values appear in the log. */
+    private class Dictionary<T>(private val maxCode: Int) {
+        private val codes = HashMap<T, Int>()
+        val values = mutableListOf<T>()
+
+        fun code(value: T, onNewValue: () -> Unit = {}): Int {
+            return codes.getOrPut(value) {
+                if (values.size > maxCode) {
+                    throw IllegalStateException("Expected at most ${maxCode + 1} distinct values, but got more")
+                }
+                values.add(value)
+                onNewValue()
+                values.size - 1
+            }
+        }
+    }
+
+    /** Buffers the values of a column, and writes them to a temporary file. */
+    private class Spool(private val file: Path, width: Int) : AutoCloseable {
+        private val channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)
+        private val buffer = ByteBuffer.allocateDirect(BUFFER_VALUES * width).order(MetadataIndex.ENDIANNESS)
+
+        fun putLong(value: Long) {
+            ensureRemaining()
+            buffer.putLong(value)
+        }
+
+        fun putShort(code: Int) {
+            ensureRemaining()
+            buffer.putShort(code.toShort())
+        }
+
+        fun putByte(code: Int) {
+            ensureRemaining()
+            buffer.put(code.toByte())
+        }
+
+        fun copyTo(target: FileChannel) {
+            flush()
+            var position = 0L
+            val size = channel.size()
+            while (position < size) {
+                position += channel.transferTo(position, size - position, target)
+            }
+        }
+
+        private fun ensureRemaining() {
+            if (!buffer.hasRemaining()) {
+                flush()
+            }
+        }
+
+        private fun flush() {
+            writeFully(channel, buffer.flip())
+            buffer.clear()
+        }
+
+        override fun close() {
+            channel.close()
+            file.deleteIfExists()
+        }
+    }
+
+    companion object {
+        private const val BUFFER_VALUES = 128 * 1024
+
+        /**
+         * Builds the index of the given partition log, which replaces the previous one. The log is
+         * scanned once, the values are only read for their process instance key.
+         *
+         * @param logPath the path of the partition log
+         * @param options the options to read the log with
+         * @param cacheDirectory the directory in which the index file is written
+         * @return the number of indexed records
+         */
+        @JvmStatic
+        fun build(logPath: Path, options: LogOptions, cacheDirectory: Path): Long {
+            // the state of the log before it is read, such that changes while reading outdate the index
+            val segments = SegmentKey.list(logPath)
+            MetadataIndexWriter(MetadataIndex.file(logPath, cacheDirectory), segments).use { writer ->
+                LogContentReader(logPath, options).use { reader ->
+                    val fields = ProcessInstanceFieldReader()
+                    reader.scan { record ->
+                        fields.read(record.valueBuffer(), record.valueOffset(), record.valueLength())
+                        val processInstanceKey =
+                            if (fields.hasProcessInstanceKey()) fields.processInstanceKey()
+                            else MetadataIndex.NO_PROCESS_INSTANCE_KEY
+                        writer.add(record.index(), record, processInstanceKey)
+                        true
+                    }
+                }
+                writer.finish()
+                return writer.recordCount
+            }
+        }
+
+        private fun writeFully(channel: FileChannel, buffer: ByteBuffer) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer)
+            }
+        }
+    }
+}
@@ -0,0 +1,344 @@
+/*
+ * Copyright © 2021 Christopher Kujawa (zelldon91@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.zell.zdb.log.query
+
+import io.zell.zdb.log.LogContentReader
+import io.zell.zdb.log.RecordFilter
+import io.zell.zdb.log.RecordView
+import io.zell.zdb.log.index.MetadataIndex
+import io.zell.zdb.log.records.ProcessInstanceFieldReader
+import java.util.function.Consumer
+
+/**
+ * A parsed query over the `records` of a partition log, see [LogQueryParser].
+ *
+ * The query is executed on a single scan of the log, without materializing the records:
+ *
+ *  * conditions on the metadata are pushed down to the reader as a [RecordFilter], such that the
+ *    other records are skipped before their values are looked at
+ *  * conditions on the position narrow the range of the log which is scanned
+ *  * the value columns are only read if the query references one, via a [ProcessInstanceFieldReader]
+ *  * without aggregation and ordering the rows are streamed, and the scan stops at the limit
+ *
+ * If the query only refers to indexed columns, it can be executed on a [MetadataIndex] instead.
+ */
+class LogQuery(
+    val select: List<SelectItem>,
+    val where: List<Condition>,
+    val groupBy: List<QueryColumn>,
+    val orderBy: List<OrderItem>,
+    val limit: Long?
+) {
+
+    val isAggregated: Boolean
+        get() = groupBy.isNotEmpty() || select.any { it is AggregateItem }
+
+    private val residual = where.filterNot { it.canPushDown() }
+
+    // parsed eagerly, such that an invalid condition fails the parsing of the query
+    private val pushedDownFilter = where.filter { it.canPushDown() }
+        .takeIf { it.isNotEmpty() }
+        ?.let { conditions -> RecordFilter.parse(conditions.joinToString(" and ") { it.toFilterExpression() }) }
+
+    fun labels(): List<String> {
+        return select.map { it.label }
+    }
+
+    /** Whether the query only refers to columns of the [MetadataIndex], see [execute]. */
+    fun canUseIndex(): Boolean {
+        return select.all { it.column?.indexed != false }
+                && where.all { it.column.indexed }
+                && groupBy.all { it.indexed }
+    }
+
+    /**
+     * Executes the query on the records of the reader.
+     *
+     * @param reader the reader to scan, the pushed down conditions are set as its record filter
+     * @param output consumes the rows, a row contains a [Long], [String] or null per select item
+     */
+    fun execute(reader: LogContentReader, output: Consumer<List<Any?>>) {
+        if (limit == 0L) {
+            return
+        }
+
+        pushedDownFilter?.let(reader::filterRecords)
+        limitPositions(reader)
+
+        val readsValue = select.any { it.column?.readsValue == true }
+                || where.any { it.column.readsValue }
+                || groupBy.any { it.readsValue }
+        val fields = ProcessInstanceFieldReader()
+        lateinit var record: RecordView
+        val columns = ColumnReader { column -> column.read(record, fields) }
+
+        evaluate(output) { consumer ->
+            reader.scan { scanned ->
+                record = scanned
+                if (readsValue) {
+                    fields.read(record.valueBuffer(), record.valueOffset(), record.valueLength())
+                }
+                consumer(columns)
+            }
+        }
+    }
+
+    /**
+     * Executes the query on the columns of the metadata index, without reading the log. The index
+     * is scanned completely, which is still much faster than scanning the log.
+     *
+     * @param index the index of the log, has to contain all columns of the query, see [canUseIndex]
+     * @param output consumes the rows, a row contains a [Long], [String] or null per select item
+     */
+    fun execute(index: MetadataIndex, output: Consumer<List<Any?>>) {
+        if (!canUseIndex()) {
+            throw IllegalArgumentException("The query refers to columns which are not part of the index")
+        }
+        if (limit == 0L) {
+            return
+        }
+
+        val cursor = index.cursor()
+        val columns = ColumnReader { column -> column.read(cursor) }
+        evaluate(output) { consumer ->
+            while (cursor.next()) {
+                if (pushedDownFilter?.test(cursor) != false && !consumer(columns)) {
+                    return@evaluate
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs the query on a scan, which passes every record to the consumer until it returns false.
+     * The conditions which are not pushed down are checked here.
+     */
+    private fun evaluate(output: Consumer<List<Any?>>, scan: ((ColumnReader) -> Boolean) -> Unit) {
+        val matches: (ColumnReader) -> Boolean = { columns ->
+            residual.all { it.matches(columns.read(it.column)) }
+        }
+
+        if (!isAggregated && orderBy.isEmpty()) {
+            var remaining = limit ?: Long.MAX_VALUE
+            scan { columns ->
+                if (matches(columns)) {
+                    output.accept(select.map { columns.read(it.column!!) })
+                    remaining--
+                }
+                remaining > 0
+            }
+            return
+        }
+
+        val rows = if (isAggregated) {
+            aggregate(scan, matches)
+        } else {
+            val rows = mutableListOf<List<Any?>>()
+            scan { columns ->
+                if (matches(columns)) {
+                    rows.add(select.map { columns.read(it.column!!) })
+                }
+                true
+            }
+            rows
+        }
+
+        if (orderBy.isNotEmpty()) {
+            rows.sortWith(rowComparator())
+        }
+        rows.asSequence().take(limit?.coerceAtMost(Int.MAX_VALUE.toLong())?.toInt() ?: Int.MAX_VALUE)
+            .forEach(output::accept)
+    }
+
+    /**
+     * Narrows the scanned entries by the bounds of the position conditions. The bounds are on best
+     * effort basis, since the records are written in batches, which is why the conditions are still
+     * checked per record.
+     */
+    private fun limitPositions(reader: LogContentReader) {
+        var from = 0L
+        var to = Long.MAX_VALUE
+        where.filter { it.column == QueryColumn.POSITION }.forEach { condition ->
+            val position = condition.value as Long
+            when (condition.operator) {
+                "=" -> {
+                    from = maxOf(from, position)
+                    to = minOf(to, position + 1)
+                }
+                ">" -> from = maxOf(from, position + 1)
+                ">=" -> from = maxOf(from, position)
+                "<" -> to = minOf(to, position)
+                "<=" -> to = minOf(to, position + 1)
+            }
+        }
+
+        if (from > 0) {
+            reader.seekToPosition(from)
+        }
+        reader.limitToPosition(to)
+    }
+
+    private fun aggregate(
+        scan: ((ColumnReader) -> Boolean) -> Unit,
+        matches: (ColumnReader) -> Boolean
+    ): MutableList<List<Any?>> {
+        val aggregates = select.filterIsInstance<AggregateItem>()
+        val groups = LinkedHashMap<List<Any?>, Array<Accumulator>>()
+        scan { columns ->
+            if (matches(columns)) {
+                val groupKey = groupBy.map { columns.read(it) }
+                val accumulators = groups.getOrPut(groupKey) {
+                    Array(aggregates.size) { Accumulator(aggregates[it]) }
+                }
+                aggregates.forEachIndexed { i, aggregate ->
+                    accumulators[i].add(aggregate.column?.let { columns.read(it) })
+                }
+            }
+            true
+        }
+
+        if (groups.isEmpty() && groupBy.isEmpty()) {
+            // like in SQL, an aggregation without groups returns a single row, e.g. a count of 0
+            groups[emptyList()] = Array(aggregates.size) { Accumulator(aggregates[it]) }
+        }
+
+        return groups.mapTo(mutableListOf()) { (groupKey, accumulators) ->
+            var nextAggregate = 0
+            select.map { item ->
+                when (item) {
+                    is ColumnItem -> groupKey[groupBy.indexOf(item.column)]
+                    is AggregateItem -> accumulators[nextAggregate++].result()
+                }
+            }
+        }
+    }
+
+    private fun rowComparator(): Comparator<List<Any?>> {
+        return orderBy.map { order ->
+            val comparator = Comparator<List<Any?>> { a, b -> compareNullable(a[order.item], b[order.item]) }
+            if (order.descending) comparator.reversed() else comparator
+        }.reduce { first, second -> first.thenComparing(second) }
+    }
+}
+
+/** Reads the columns of the record, at which a scan currently is. */
+private fun interface ColumnReader {
+    fun read(column: QueryColumn): Any?
+}
+
+/** An item of the select clause, which labels a column of the result. */
+sealed interface SelectItem {
+    val label: String
+
+    /** The column which is selected or aggregated, or null for `count(*)`. */
+    val column: QueryColumn?
+}
+
+data class ColumnItem(override val column: QueryColumn) : SelectItem {
+    override val label: String
+        get() = column.columnName
+}
+
+data class AggregateItem(val function: AggregateFunction, override val column: QueryColumn?) : SelectItem {
+    override val label: String
+        get() = "${function.name.lowercase()}(${column?.columnName ?: "*"})"
+}
+
+enum class AggregateFunction {
+    COUNT, MIN, MAX, SUM
+}
+
+/**
+ * A condition of the where clause, which compares a column with a literal. Records for which the
+ * column has no value don't match, as in SQL.
+ *
+ * @param operator one of `=`, `!=`, `<`, `<=`, `>` and `>=`
+ * @param value the literal, a [Long] for numeric columns or a [String] otherwise
+ */
+data class Condition(val column: QueryColumn, val operator: String, val value: Any) {
+
+    fun matches(actual: Any?): Boolean {
+        if (actual == null) {
+            return false
+        }
+
+        val comparison = if (actual is Long) {
+            actual.compareTo(value as Long)
+        } else {
+            (actual as String).compareTo(value as String, ignoreCase = column != QueryColumn.ELEMENT_ID)
+        }
+        return when (operator) {
+            "=" -> comparison == 0
+            "!=" -> comparison != 0
+            "<" -> comparison < 0
+            "<=" -> comparison <= 0
+            ">" -> comparison > 0
+            ">=" -> comparison >= 0
+            else -> throw IllegalStateException("Unexpected operator '$operator'")
+        }
+    }
+
+    internal fun canPushDown(): Boolean {
+        if (!column.filterable) {
+            return false
+        }
+        // the record filter compares the enum columns by equality only, and splits alternatives at '|'
+        return column.numeric || (operator == "=" || operator == "!=")
+                && (value as String).none { it.isWhitespace() || it == '|' }
+    }
+
+    internal fun toFilterExpression(): String {
+        return "${column.columnName}$operator$value"
+    }
+}
+
+/** An item of the order by clause, which refers to the column of the result at [item]. */
+data class OrderItem(val item: Int, val descending: Boolean)
+
+private class Accumulator(private val aggregate: AggregateItem) {
+    private var count = 0L
+    private var value: Any? = null
+
+    fun add(columnValue: Any?) {
+        if (aggregate.function == AggregateFunction.COUNT) {
+            // count(*) has no column and counts every record
+            if (aggregate.column == null || columnValue != null) {
+                count++
+            }
+            return
+        }
+        if (columnValue == null) {
+            return
+        }
+
+        value = when (aggregate.function) {
+            AggregateFunction.SUM -> (value as Long? ?: 0L) + columnValue as Long
+            AggregateFunction.MIN -> if (value == null || compareNullable(columnValue, value) < 0) columnValue else value
+            AggregateFunction.MAX -> if (value == null || compareNullable(columnValue, value) > 0) columnValue else value
+            AggregateFunction.COUNT -> throw IllegalStateException()
+        }
+    }
+
+    fun result(): Any? {
+        return if (aggregate.function == AggregateFunction.COUNT) count else value
+    }
+}
+
+/** Compares two values of the same column, null values are ordered first. */
+@Suppress("UNCHECKED_CAST")
+private fun compareNullable(a: Any?, b: Any?): Int {
+    return compareValues(a as Comparable<Any>?, b as Comparable<Any>?)
+}
@@ -0,0 +1,273 @@
+/*
+ * Copyright © 2021 Christopher Kujawa (zelldon91@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.zell.zdb.log.query
+
+/**
+ * Parses the small subset of SQL, which [LogQuery] supports:
+ *
+ * ```
+ * SELECT item [, item]* FROM records
+ *   [WHERE column operator literal [AND column operator literal]*]
+ *   [GROUP BY column [, column]*]
+ *   [ORDER BY column [ASC|DESC] [, column [ASC|DESC]]*]
+ *   [LIMIT number]
+ * ```
+ *
+ * An item is a column of [QueryColumn] or one of the aggregations `count(*)`, `count(column)`,
+ * `min(column)`, `max(column)` and `sum(column)`. The group by and order by clauses can also refer
+ * to the items by their 1-based ordinal, the order by clause sorts by the items of the result.
+ * Keywords and column names are case-insensitive, literals are numbers, `'quoted strings'` or plain
+ * words like `JOB`.
+ */
+class LogQueryParser private constructor(private val tokens: List<Token>) {
+
+    private var next = 0
+
+    companion object {
+        private val TOKEN = Regex("""\s*(?:(-?\d+)|'([^']*)'|([A-Za-z_][A-Za-z0-9_]*)|(<>|!=|<=|>=|[=<>(),*]))""")
+        private val OPERATORS = setOf("=", "!=", "<>", "<", "<=", ">", ">=")
+
+        /**
+         * Parses the query.
+         *
+         * @throws IllegalArgumentException if the query is invalid or not supported
+         */
+        @JvmStatic
+        fun parse(sql: String): LogQuery {
+            return LogQueryParser(tokenize(sql)).parseQuery()
+        }
+
+        private fun tokenize(query: String): List<Token> {
+            val sql = query.trim().removeSuffix(";").trimEnd()
+            val tokens = mutableListOf<Token>()
+            var offset = 0
+            while (offset < sql.length) {
+                val match = TOKEN.matchAt(sql, offset)
+                    ?: throw IllegalArgumentException("Unexpected character '${sql[offset]}' at offset $offset")
+                val (number, string, word, symbol) = match.destructured
+                tokens += when {
+                    number.isNotEmpty() -> Token(TokenType.NUMBER, number)
+                    match.groups[2] != null -> Token(TokenType.STRING, string)
+                    word.isNotEmpty() -> Token(TokenType.WORD, word)
+                    else -> Token(TokenType.SYMBOL, symbol)
+                }
+                offset = match.range.last + 1
+            }
+            return tokens
+        }
+    }
+
+    private fun parseQuery(): LogQuery {
+        expectKeyword("SELECT")
+        val select = parseList { parseSelectItem() }
+        expectKeyword("FROM")
+        val table = expect(TokenType.WORD, "a table").text
+        if (!table.equals("records", ignoreCase = true)) {
+            throw IllegalArgumentException("Unknown table '$table', expected 'records'")
+        }
+
+        val where = mutableListOf<Condition>()
+        if (acceptKeyword("WHERE")) {
+            do {
+                where += parseCondition()
+            } while (acceptKeyword("AND"))
+        }
+
+        var groupBy = emptyList<QueryColumn>()
+        if (acceptKeyword("GROUP")) {
+            expectKeyword("BY")
+            groupBy = parseList { parseGroupByColumn(select) }
+        }
+
+        var orderBy = emptyList<OrderItem>()
+        if (acceptKeyword("ORDER")) {
+            expectKeyword("BY")
+            orderBy = parseList { parseOrderItem(select) }
+        }
+
+        var limit: Long? = null
+        if (acceptKeyword("LIMIT")) {
+            limit = expect(TokenType.NUMBER, "a number").text.toLong()
+            if (limit < 0) {
+                throw IllegalArgumentException("The limit must not be negative, but was $limit")
+            }
+        }
+
+        if (next < tokens.size) {
+            throw IllegalArgumentException("Unexpected '${tokens[next].text}' at the end of the query")
+        }
+
+        val query = LogQuery(select, where, groupBy, orderBy, limit)
+        if (query.isAggregated) {
+            select.filterIsInstance<ColumnItem>()
+                .find { !groupBy.contains(it.column) }
+                ?.let { throw IllegalArgumentException("The column '${it.label}' must be grouped or aggregated") }
+        }
+        return query
+    }
+
+    private fun parseSelectItem(): SelectItem {
+        val name = expect(TokenType.WORD, "a column or aggregation").text
+        val function = AggregateFunction.entries.find { it.name.equals(name, ignoreCase = true) }
+        if (function == null || !acceptSymbol("(")) {
+            return ColumnItem(column(name))
+        }
+
+        val column = if (function == AggregateFunction.COUNT && acceptSymbol("*")) {
+            null
+        } else {
+            column(expect(TokenType.WORD, "a column").text)
+        }
+        expectSymbol(")")
+
+        if (function == AggregateFunction.SUM && column?.numeric == false) {
+            throw IllegalArgumentException("Only numeric columns can be summed, but got '${column.columnName}'")
+        }
+        return AggregateItem(function, column)
+    }
+
+    private fun parseCondition(): Condition {
+        val column = column(expect(TokenType.WORD, "a column").text)
+        val operatorToken = expect(TokenType.SYMBOL, "an operator")
+        if (!OPERATORS.contains(operatorToken.text)) {
+            throw IllegalArgumentException("Expected an operator, but got '${operatorToken.text}'")
+        }
+        val operator = if (operatorToken.text == "<>") "!=" else operatorToken.text
+
+        val literal = nextToken("a value")
+        val value: Any = if (column.numeric) {
+            if (literal.type != TokenType.NUMBER) {
+                throw IllegalArgumentException("The column '${column.columnName}' must be compared with a number, but got '${literal.text}'")
+            }
+            literal.text.toLong()
+        } else {
+            if (literal.type == TokenType.SYMBOL) {
+                throw IllegalArgumentException("Expected a value, but got '${literal.text}'")
+            }
+            literal.text
+        }
+        return Condition(column, operator, value)
+    }
+
+    private fun parseGroupByColumn(select: List<SelectItem>): QueryColumn {
+        val token = nextToken("a column")
+        if (token.type == TokenType.NUMBER) {
+            val item = selectItem(select, token.text)
+            return (item as? ColumnItem)?.column
+                ?: throw IllegalArgumentException("Can't group by the aggregation '${item.label}'")
+        }
+        if (token.type != TokenType.WORD) {
+            throw IllegalArgumentException("Expected a column, but got '${token.text}'")
+        }
+        return column(token.text)
+    }
+
+    private fun parseOrderItem(select: List<SelectItem>): OrderItem {
+        val token = nextToken("a column")
+        val item = when (token.type) {
+            TokenType.NUMBER -> select.indexOf(selectItem(select, token.text))
+            TokenType.WORD -> {
+                // aggregations are referenced by their label, e.g. count(*)
+                val label = if (acceptSymbol("(")) {
+                    val argument = if (acceptSymbol("*")) "*" else expect(TokenType.WORD, "a column").text
+                    expectSymbol(")")
+                    "${token.text}($argument)"
+                } else {
+                    token.text
+                }
+                select.indexOfFirst { it.label.equals(label, ignoreCase = true) }
+                    .takeIf { it >= 0 }
+                    ?: throw IllegalArgumentException("Can only order by the selected items, but '$label' is not selected")
+            }
+            else -> throw IllegalArgumentException("Expected a column, but got '${token.text}'")
+        }
+
+        val descending = acceptKeyword("DESC")
+        if (!descending) {
+            acceptKeyword("ASC")
+        }
+        return OrderItem(item, descending)
+    }
+
+    private fun selectItem(select: List<SelectItem>, ordinal: String): SelectItem {
+        return select.getOrNull(ordinal.toInt() - 1)
+            ?: throw IllegalArgumentException("The ordinal $ordinal is out of range, there are ${select.size} items selected")
+    }
+
+    private fun column(name: String): QueryColumn {
+        return QueryColumn.byName(name)
+            ?: throw IllegalArgumentException(
+                "Unknown column '$name', expected one of: ${QueryColumn.entries.joinToString { it.columnName }}")
+    }
+
+    private fun <T> parseList(parseItem: () -> T): List<T> {
+        val items = mutableListOf(parseItem())
+        while (acceptSymbol(",")) {
+            items += parseItem()
+        }
+        return items
+    }
+
+    private fun nextToken(expected: String): Token {
+        if (next >= tokens.size) {
+            throw IllegalArgumentException("Expected $expected, but the query ended")
+        }
+        return tokens[next++]
+    }
+
+    private fun expect(type: TokenType, expected: String): Token {
+        val token = nextToken(expected)
+        if (token.type != type) {
+            throw IllegalArgumentException("Expected $expected, but got '${token.text}'")
+        }
+        return token
+    }
+
+    private fun expectKeyword(keyword: String) {
+        if (!acceptKeyword(keyword)) {
+            val actual = tokens.getOrNull(next)?.let { "'${it.text}'" } ?: "the end of the query"
+            throw IllegalArgumentException("Expected $keyword, but got $actual")
+        }
+    }
+
+    private fun expectSymbol(symbol: String) {
+        if (!acceptSymbol(symbol)) {
+            val actual = tokens.getOrNull(next)?.let { "'${it.text}'" } ?: "the end of the query"
+            throw IllegalArgumentException("Expected '$symbol', but got $actual")
+        }
+    }
+
+    private fun acceptKeyword(keyword: String): Boolean {
+        return accept { it.type == TokenType.WORD && it.text.equals(keyword, ignoreCase = true) }
+    }
+
+    private fun acceptSymbol(symbol: String): Boolean {
+        return accept { it.type == TokenType.SYMBOL && it.text == symbol }
+    }
+
+    private inline fun accept(predicate: (Token) -> Boolean): Boolean {
+        val token = tokens.getOrNull(next)
+        if (token != null && predicate(token)) {
+            next++
+            return true
+        }
+        return false
+    }
+
+    private enum class TokenType { NUMBER, STRING, WORD, SYMBOL }
+
+    private data class Token(val type: TokenType, val text: String)
+}
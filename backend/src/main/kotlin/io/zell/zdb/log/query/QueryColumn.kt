@@ -0,0 +1,98 @@
+/*
+ * Copyright © 2021 Christopher Kujawa (zelldon91@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.zell.zdb.log.query
+
+import io.zell.zdb.log.RecordView
+import io.zell.zdb.log.index.MetadataIndex
+import io.zell.zdb.log.records.ProcessInstanceFieldReader
+
+/**
+ * The columns of the `records` table, which a [LogQuery] selects from. Most columns are part of the
+ * metadata of a record. Only the columns which [readsValue] need the MsgPack value, from which they
+ * are read without converting it to JSON.
+ */
+enum class QueryColumn(
+    val columnName: String,
+    val numeric: Boolean,
+    /** Whether the column is read from the value of the record. */
+    val readsValue: Boolean,
+    /** Whether conditions on the column can be checked by a [io.zell.zdb.log.RecordFilter]. */
+    val filterable: Boolean,
+    private val reader: (RecordView, ProcessInstanceFieldReader) -> Any?
+) {
+    INDEX("index", true, false, false, { record, _ -> record.index() }),
+    TERM("term", true, false, false, { record, _ -> record.term() }),
+    POSITION("position", true, false, true, { record, _ -> record.position() }),
+    SOURCE_RECORD_POSITION("sourceRecordPosition", true, false, true, { record, _ -> record.sourceRecordPosition() }),
+    TIMESTAMP("timestamp", true, false, true, { record, _ -> record.timestamp() }),
+    KEY("key", true, false, true, { record, _ -> record.key() }),
+    RECORD_TYPE("recordType", false, false, true, { record, _ -> record.recordType().name }),
+    VALUE_TYPE("valueType", false, false, true, { record, _ -> record.valueType().name }),
+    INTENT("intent", false, false, true, { record, _ -> record.intent().name() }),
+    REJECTION_TYPE("rejectionType", false, false, true, { record, _ -> record.rejectionType().name }),
+    PROCESS_INSTANCE_KEY("processInstanceKey", true, true, false, { _, value ->
+        if (value.hasProcessInstanceKey()) value.processInstanceKey() else null
+    }),
+    PROCESS_DEFINITION_KEY("processDefinitionKey", true, true, false, { _, value ->
+        if (value.hasProcessDefinitionKey()) value.processDefinitionKey() else null
+    }),
+    BPMN_ELEMENT_TYPE("bpmnElementType", false, true, false, { _, value -> value.bpmnElementType()?.name }),
+    ELEMENT_ID("elementId", false, true, false, { _, value -> value.elementId() });
+
+    /** Whether the column is part of the [MetadataIndex]. */
+    val indexed: Boolean
+        get() = when (this) {
+            TERM, PROCESS_DEFINITION_KEY, BPMN_ELEMENT_TYPE, ELEMENT_ID -> false
+            else -> true
+        }
+
+    /**
+     * Reads the column of the record. The value columns are read from the given field reader, which
+     * has to be positioned on the value of the record.
+     *
+     * @return a [Long] for numeric columns, a [String] otherwise, or null if the record has no value
+     */
+    fun read(record: RecordView, value: ProcessInstanceFieldReader): Any? {
+        return reader(record, value)
+    }
+
+    /**
+     * Reads the column of the record, at which the cursor of the index is.
+     *
+     * @throws IllegalStateException if the column is not [indexed]
+     */
+    fun read(cursor: MetadataIndex.Cursor): Any? {
+        return when (this) {
+            INDEX -> cursor.index()
+            POSITION -> cursor.position()
+            SOURCE_RECORD_POSITION -> cursor.sourceRecordPosition()
+            TIMESTAMP -> cursor.timestamp()
+            KEY -> cursor.key()
+            RECORD_TYPE -> cursor.recordType().name
+            VALUE_TYPE -> cursor.valueType().name
+            INTENT -> cursor.intent().name()
+            REJECTION_TYPE -> cursor.rejectionType().name
+            PROCESS_INSTANCE_KEY -> if (cursor.hasProcessInstanceKey()) cursor.processInstanceKey() else null
+            else -> throw IllegalStateException("The column '$columnName' is not part of the index")
+        }
+    }
+
+    companion object {
+        fun byName(name: String): QueryColumn? {
+            return entries.find { it.columnName.equals(name, ignoreCase = true) }
+        }
+    }
+}
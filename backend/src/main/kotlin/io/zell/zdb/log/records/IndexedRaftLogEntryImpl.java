@@ -22,7 +22,10 @@ import io.atomix.raft.storage.log.entry.ApplicationEntry;
 import io.atomix.raft.storage.log.entry.RaftEntry;
 import io.zell.zdb.journal.ReadOnlyJournalRecord;
 
-/** Indexed journal entry. */
+/**
+ * Indexed journal entry. The journal record might be reused by the reader on the next read, it
+ * has to be {@link ReadOnlyJournalRecord#copy() copied} if the entry is kept.
+ */
 public record IndexedRaftLogEntryImpl(long index, long term, RaftEntry entry, ReadOnlyJournalRecord record)
          {
     public IndexedRaftLogEntryImpl(final long term, final RaftEntry entry, final ReadOnlyJournalRecord record) {
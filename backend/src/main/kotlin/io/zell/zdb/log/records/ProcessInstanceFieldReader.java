@@ -0,0 +1,189 @@
+/*
+ * Copyright © 2021 Christopher Kujawa (zelldon91@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.zell.zdb.log.records;
+
+import io.camunda.zeebe.msgpack.spec.MsgPackReader;
+import io.camunda.zeebe.msgpack.spec.MsgPackToken;
+import io.camunda.zeebe.msgpack.spec.MsgPackType;
+import io.camunda.zeebe.protocol.record.value.BpmnElementType;
+import java.nio.charset.StandardCharsets;
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+
+/**
+ * Reads the process instance related fields straight from the MsgPack value of a record, without
+ * converting it to JSON. Only the top level of the value is walked, every other field is skipped.
+ *
+ * <p>The reader and the read fields are reused, such that reading doesn't allocate. The element id
+ * is a view on the read value, it is only valid until the value buffer is changed. Not thread safe.
+ */
+public final class ProcessInstanceFieldReader {
+
+    public static final long NO_KEY = -1;
+
+    private static final DirectBuffer PROCESS_INSTANCE_KEY = utf8("processInstanceKey");
+    private static final DirectBuffer PROCESS_DEFINITION_KEY = utf8("processDefinitionKey");
+    private static final DirectBuffer BPMN_ELEMENT_TYPE = utf8("bpmnElementType");
+    private static final DirectBuffer ELEMENT_ID = utf8("elementId");
+    private static final BpmnElementType[] ELEMENT_TYPES = BpmnElementType.values();
+    private static final DirectBuffer[] ELEMENT_TYPE_NAMES = new DirectBuffer[ELEMENT_TYPES.length];
+
+    static {
+        for (int i = 0; i < ELEMENT_TYPES.length; i++) {
+            ELEMENT_TYPE_NAMES[i] = utf8(ELEMENT_TYPES[i].name());
+        }
+    }
+
+    private final MsgPackReader reader = new MsgPackReader();
+    private final UnsafeBuffer elementId = new UnsafeBuffer(0, 0);
+    private long processInstanceKey;
+    private boolean hasProcessInstanceKey;
+    private long processDefinitionKey;
+    private boolean hasProcessDefinitionKey;
+    private BpmnElementType bpmnElementType;
+    private boolean hasElementId;
+
+    /**
+     * Reads the fields of the given MsgPack value. Fields which are not part of the value are reset.
+     *
+     * @param buffer the buffer which contains the value
+     * @param offset the offset of the value in the buffer
+     * @param length the length of the value
+     * @return this reader, to access the read fields
+     */
+    public ProcessInstanceFieldReader read(
+            final DirectBuffer buffer, final int offset, final int length) {
+        processInstanceKey = NO_KEY;
+        hasProcessInstanceKey = false;
+        processDefinitionKey = NO_KEY;
+        hasProcessDefinitionKey = false;
+        bpmnElementType = null;
+        hasElementId = false;
+
+        reader.wrap(buffer, offset, length);
+        final int fields = reader.readMapHeader();
+        for (int i = 0; i < fields; i++) {
+            final var key = reader.readToken();
+            if (key.getType() != MsgPackType.STRING) {
+                reader.skipValue();
+                continue;
+            }
+
+            final var name = key.getValueBuffer();
+            if (name.equals(PROCESS_INSTANCE_KEY)) {
+                final var value = readValue();
+                hasProcessInstanceKey = value.getType() == MsgPackType.INTEGER;
+                processInstanceKey = hasProcessInstanceKey ? value.getIntegerValue() : NO_KEY;
+            } else if (name.equals(PROCESS_DEFINITION_KEY)) {
+                final var value = readValue();
+                hasProcessDefinitionKey = value.getType() == MsgPackType.INTEGER;
+                processDefinitionKey = hasProcessDefinitionKey ? value.getIntegerValue() : NO_KEY;
+            } else if (name.equals(BPMN_ELEMENT_TYPE)) {
+                final var value = readValue();
+                bpmnElementType =
+                        value.getType() == MsgPackType.STRING
+                                ? toElementType(value.getValueBuffer())
+                                : null;
+            } else if (name.equals(ELEMENT_ID)) {
+                final var value = readValue();
+                hasElementId = value.getType() == MsgPackType.STRING;
+                if (hasElementId) {
+                    final var valueBuffer = value.getValueBuffer();
+                    elementId.wrap(valueBuffer, 0, valueBuffer.capacity());
+                }
+            } else {
+                reader.skipValue();
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Returns the process instance key, or {@link #NO_KEY} if the value has none. Values can store
+     * -1 as key as well, use {@link #hasProcessInstanceKey()} to tell them apart.
+     */
+    public long processInstanceKey() {
+        return processInstanceKey;
+    }
+
+    /** Returns whether the value has a process instance key. */
+    public boolean hasProcessInstanceKey() {
+        return hasProcessInstanceKey;
+    }
+
+    /**
+     * Returns the process definition key, or {@link #NO_KEY} if the value has none. Values can
+     * store -1 as key as well, use {@link #hasProcessDefinitionKey()} to tell them apart.
+     */
+    public long processDefinitionKey() {
+        return processDefinitionKey;
+    }
+
+    /** Returns whether the value has a process definition key. */
+    public boolean hasProcessDefinitionKey() {
+        return hasProcessDefinitionKey;
+    }
+
+    /** Returns the BPMN element type, or null if the value has none. */
+    public BpmnElementType bpmnElementType() {
+        return bpmnElementType;
+    }
+
+    /** Returns a view on the element id, or null if the value has none. */
+    public DirectBuffer elementIdBuffer() {
+        return hasElementId ? elementId : null;
+    }
+
+    /** Returns the element id, or null if the value has none. Other than the buffer, it allocates. */
+    public String elementId() {
+        return hasElementId ? elementId.getStringWithoutLengthUtf8(0, elementId.capacity()) : null;
+    }
+
+    /**
+     * Returns the read fields as {@link ProcessInstanceRelatedValue}, which is used by the record
+     * representations. The keys are null if the value has none.
+     */
+    public ProcessInstanceRelatedValue toProcessInstanceRelatedValue() {
+        return new ProcessInstanceRelatedValue(
+                hasProcessInstanceKey ? processInstanceKey : null,
+                bpmnElementType,
+                hasProcessDefinitionKey ? processDefinitionKey : null);
+    }
+
+    /** Reads a value, nested maps and arrays are skipped completely. */
+    private MsgPackToken readValue() {
+        final var value = reader.readToken();
+        if (value.getType() == MsgPackType.MAP) {
+            reader.skipValues(2L * value.getSize());
+        } else if (value.getType() == MsgPackType.ARRAY) {
+            reader.skipValues(value.getSize());
+        }
+        return value;
+    }
+
+    private static BpmnElementType toElementType(final DirectBuffer name) {
+        for (int i = 0; i < ELEMENT_TYPE_NAMES.length; i++) {
+            if (ELEMENT_TYPE_NAMES[i].equals(name)) {
+                return ELEMENT_TYPES[i];
+            }
+        }
+        return null;
+    }
+
+    private static DirectBuffer utf8(final String value) {
+        return new UnsafeBuffer(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -20,10 +20,8 @@ import io.camunda.zeebe.protocol.record.RejectionType
 import io.camunda.zeebe.protocol.record.ValueType
 import io.camunda.zeebe.protocol.record.intent.Intent
 import kotlinx.serialization.Serializable
-import kotlinx.serialization.Transient
 import kotlinx.serialization.encodeToString
 import kotlinx.serialization.json.Json
-import kotlinx.serialization.json.JsonElement
 
 @Serializable
 data class Record(val position: Long,
@@ -42,10 +40,15 @@ data class Record(val position: Long,
                   val brokerVersion: String,
                   val recordVersion: Int ? = 0,
                   val authData: String ? = "",
-                  val recordValue: JsonElement,
-                  /*Transient marks to ignore the property during serialization */
-                  @Transient val piRelatedValue: ProcessInstanceRelatedValue? = null
+                  val recordValue: RecordValue
 ) {
+    /**
+     * The process instance related properties of the value, which are decoded on the first access.
+     * Not serialized, since they are part of the record value.
+     */
+    val piRelatedValue: ProcessInstanceRelatedValue?
+        get() = recordValue.processInstanceRelatedValue
+
     override fun toString(): String {
         return Json.encodeToString(this)
     }
@@ -0,0 +1,97 @@
+/*
+ * Copyright © 2021 Christopher Kujawa (zelldon91@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.zell.zdb.log.records
+
+import io.camunda.zeebe.protocol.impl.encoding.MsgPackConverter
+import kotlinx.serialization.KSerializer
+import kotlinx.serialization.Serializable
+import kotlinx.serialization.descriptors.SerialDescriptor
+import kotlinx.serialization.encoding.Decoder
+import kotlinx.serialization.encoding.Encoder
+import kotlinx.serialization.json.Json
+import kotlinx.serialization.json.JsonElement
+import org.agrona.DirectBuffer
+import org.agrona.concurrent.UnsafeBuffer
+
+/**
+ * The value of a record, which is kept as MsgPack and converted to JSON only when it is needed,
+ * e.g. when the record is printed as JSON. Records which are filtered out, or only printed with
+ * their metadata, never pay for the conversion.
+ */
+@Serializable(with = RecordValueSerializer::class)
+class RecordValue(private val msgPack: ByteArray) {
+
+    /**
+     * The value as JSON string, converted on the first access.
+     */
+    val json: String by lazy { MsgPackConverter.convertToJson(UnsafeBuffer(msgPack)) }
+
+    /**
+     * The value as JSON element, parsed on the first access.
+     */
+    val jsonElement: JsonElement by lazy { Json.parseToJsonElement(json) }
+
+    /**
+     * The process instance related properties of the value, read from the MsgPack value on the first
+     * access, without converting it to JSON.
+     */
+    val processInstanceRelatedValue: ProcessInstanceRelatedValue by lazy {
+        ProcessInstanceFieldReader().read(UnsafeBuffer(msgPack), 0, msgPack.size).toProcessInstanceRelatedValue()
+    }
+
+    /**
+     * Wraps the given buffer around the MsgPack value, to read it without copying.
+     */
+    fun wrapMsgPack(buffer: UnsafeBuffer) {
+        buffer.wrap(msgPack)
+    }
+
+    override fun equals(other: Any?): Boolean {
+        return other is RecordValue && msgPack.contentEquals(other.msgPack)
+    }
+
+    override fun hashCode(): Int {
+        return msgPack.contentHashCode()
+    }
+
+    override fun toString(): String {
+        return json
+    }
+
+    companion object {
+        /**
+         * Copies the MsgPack value out of the given buffer, which might be reused afterwards.
+         */
+        fun copyOf(buffer: DirectBuffer, offset: Int, length: Int): RecordValue {
+            val msgPack = ByteArray(length)
+            buffer.getBytes(offset, msgPack)
+            return RecordValue(msgPack)
+        }
+    }
+}
+
+class RecordValueSerializer : KSerializer<RecordValue> {
+    override val descriptor: SerialDescriptor = JsonElement.serializer().descriptor
+
+    override fun serialize(encoder: Encoder, value: RecordValue) {
+        encoder.encodeSerializableValue(JsonElement.serializer(), value.jsonElement)
+    }
+
+    override fun deserialize(decoder: Decoder): RecordValue {
+        val jsonElement = decoder.decodeSerializableValue(JsonElement.serializer())
+        return RecordValue(MsgPackConverter.convertToMsgPack(jsonElement.toString()))
+    }
+}
@@ -0,0 +1,28 @@
+/*
+ * Copyright © 2021 Christopher Kujawa (zelldon91@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.zell.zdb.raft;
+
+/**
+ * The header of a raft log entry, without its payload.
+ *
+ * @param index the index of the entry
+ * @param term the term in which the entry was written
+ * @param applicationEntry whether the entry contains records
+ * @param lowestPosition the position of the first record, -1 if it is no application entry
+ * @param highestPosition the position of the last record, -1 if it is no application entry
+ */
+public record RaftEntryHeader(
+        long index, long term, boolean applicationEntry, long lowestPosition, long highestPosition) {}
@@ -0,0 +1,76 @@
+/*
+ * Copyright © 2021 Christopher Kujawa (zelldon91@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.zell.zdb.raft;
+
+import io.atomix.raft.storage.serializer.ApplicationEntryDecoder;
+import io.atomix.raft.storage.serializer.EntryType;
+import io.atomix.raft.storage.serializer.MessageHeaderDecoder;
+import io.atomix.raft.storage.serializer.RaftLogEntryDecoder;
+import io.zell.zdb.journal.ReadOnlyJournalRecord;
+
+/**
+ * Reads only the SBE header fields of raft log entries: the term, the entry type and, for
+ * application entries, the lowest and highest position. Other than the {@link
+ * io.atomix.raft.storage.serializer.RaftEntrySBESerializer}, neither the records of application
+ * entries nor the members of configuration entries are decoded, which makes scans that only need
+ * the indexes, terms and positions a lot cheaper.
+ *
+ * <p>The reader reuses its decoders, it is not thread safe.
+ */
+public final class RaftEntryHeaderReader {
+
+    private static final long NO_POSITION = -1;
+
+    private final MessageHeaderDecoder headerDecoder = new MessageHeaderDecoder();
+    private final RaftLogEntryDecoder raftLogEntryDecoder = new RaftLogEntryDecoder();
+    private final ApplicationEntryDecoder applicationEntryDecoder = new ApplicationEntryDecoder();
+
+    /**
+     * Reads the header of the raft log entry, which is stored in the given journal record.
+     *
+     * @param record the journal record of the entry
+     * @return the header of the entry
+     */
+    public RaftEntryHeader read(final ReadOnlyJournalRecord record) {
+        final var data = record.data();
+        headerDecoder.wrap(data, 0);
+        raftLogEntryDecoder.wrap(
+                data,
+                headerDecoder.encodedLength(),
+                headerDecoder.blockLength(),
+                headerDecoder.version());
+        final long term = raftLogEntryDecoder.term();
+
+        if (raftLogEntryDecoder.type() != EntryType.APPLICATION) {
+            return new RaftEntryHeader(record.index(), term, false, NO_POSITION, NO_POSITION);
+        }
+
+        // the application entry follows the raft log entry, with its own message header
+        final int entryOffset = headerDecoder.encodedLength() + headerDecoder.blockLength();
+        headerDecoder.wrap(data, entryOffset);
+        applicationEntryDecoder.wrap(
+                data,
+                entryOffset + headerDecoder.encodedLength(),
+                headerDecoder.blockLength(),
+                headerDecoder.version());
+        return new RaftEntryHeader(
+                record.index(),
+                term,
+                true,
+                applicationEntryDecoder.lowestAsqn(),
+                applicationEntryDecoder.highestAsqn());
+    }
+}
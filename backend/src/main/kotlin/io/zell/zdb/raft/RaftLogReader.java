@@ -17,15 +17,49 @@
 package io.zell.zdb.raft;
 
 
+import io.zell.zdb.journal.ReadOnlyJournalRecord;
 import io.zell.zdb.log.records.IndexedRaftLogEntryImpl;
 
 import java.util.Iterator;
 
 public interface RaftLogReader extends Iterator<IndexedRaftLogEntryImpl>, AutoCloseable {
 
+    /**
+     * Reads only the header of the next entry, instead of decoding it completely like {@link
+     * #next()}. Useful for scans which only need the indexes, terms and positions.
+     *
+     * @return the header of the next entry
+     */
+    RaftEntryHeader nextHeader();
+
+    /**
+     * Reads the journal record of the next entry, without decoding it. Useful to decode the entry
+     * later, e.g. on another thread. The record might be reused by the next read.
+     *
+     * @return the journal record of the next entry
+     */
+    ReadOnlyJournalRecord nextRecord();
+
     long seek(long index);
 
     long seekToAsqn(final long asqn);
 
+    /**
+     * Seeks to the last entry of the log.
+     *
+     * @return the index of the entry that will be returned by {@link #next()}
+     */
+    long seekToLast();
+
+    /**
+     * Seeks to the last application entry, which has been written at or before the given
+     * timestamp. The timestamp of an entry is the timestamp of its first record. Since timestamps
+     * are not strictly ordered (e.g. on leader changes), this is on best effort basis.
+     *
+     * @param timestamp the timestamp in milliseconds since epoch
+     * @return the index of the entry that will be returned by {@link #next()}
+     */
+    long seekToTimestamp(final long timestamp);
+
     void close();
 }
@@ -18,9 +18,13 @@
 package io.zell.zdb.raft;
 
 import io.atomix.raft.storage.log.entry.RaftLogEntry;
+import io.atomix.raft.storage.log.entry.SerializedApplicationEntry;
 import io.atomix.raft.storage.serializer.RaftEntrySBESerializer;
 import io.atomix.raft.storage.serializer.RaftEntrySerializer;
+import io.camunda.zeebe.logstreams.impl.log.LoggedEventImpl;
 import io.zell.zdb.journal.JournalReader;
+import io.zell.zdb.journal.ReadOnlyJournal;
+import io.zell.zdb.journal.ReadOnlyJournalRecord;
 import io.zell.zdb.log.records.IndexedRaftLogEntryImpl;
 
 import java.util.NoSuchElementException;
@@ -31,10 +35,26 @@ import java.util.NoSuchElementException;
  */
 public class RaftLogUncommittedReader implements RaftLogReader {
     private final JournalReader journalReader;
+    // null if the journal is owned by someone else
+    private final ReadOnlyJournal journal;
     private final RaftEntrySerializer serializer = new RaftEntrySBESerializer();
+    private final RaftEntryHeaderReader headerReader = new RaftEntryHeaderReader();
+    private final LoggedEventImpl loggedEvent = new LoggedEventImpl();
 
     public RaftLogUncommittedReader(final JournalReader journalReader) {
+        this(journalReader, null);
+    }
+
+    /**
+     * Creates a reader, which owns the given journal. The journal is closed together with the
+     * reader, which releases the mapped segments right away instead of on garbage collection.
+     *
+     * @param journalReader the reader of the journal
+     * @param journal the journal to close with the reader, or null if it is owned elsewhere
+     */
+    public RaftLogUncommittedReader(final JournalReader journalReader, final ReadOnlyJournal journal) {
         this.journalReader = journalReader;
+        this.journal = journal;
     }
 
     @Override
@@ -54,6 +74,24 @@ public class RaftLogUncommittedReader implements RaftLogReader {
         return new IndexedRaftLogEntryImpl(entry.term(), entry.entry(), journalRecord);
     }
 
+    @Override
+    public RaftEntryHeader nextHeader() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        return headerReader.read(journalReader.next());
+    }
+
+    @Override
+    public ReadOnlyJournalRecord nextRecord() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        return journalReader.next();
+    }
+
     @Override
     public long seek(final long index) {
         return journalReader.seek(index);
@@ -64,9 +102,32 @@ public class RaftLogUncommittedReader implements RaftLogReader {
         return journalReader.seekToAsqn(asqn);
     }
 
+    @Override
+    public long seekToLast() {
+        return journalReader.seekToLast();
+    }
+
+    @Override
+    public long seekToTimestamp(final long timestamp) {
+        return journalReader.seekToKey(timestamp, this::readTimestamp);
+    }
+
+    private long readTimestamp(final ReadOnlyJournalRecord journalRecord) {
+        final RaftLogEntry entry = serializer.readRaftLogEntry(journalRecord.data());
+        if (entry.entry() instanceof final SerializedApplicationEntry applicationEntry) {
+            loggedEvent.wrap(applicationEntry.data(), 0);
+            return loggedEvent.getTimestamp();
+        }
+        // raft entries have no timestamp
+        return -1;
+    }
+
     @Override
     public void close() {
         journalReader.close();
+        if (journal != null) {
+            journal.close();
+        }
     }
 
     public long seekToAsqn(final long asqn, final long indexUpperBound) {
@@ -0,0 +1,127 @@
+/*
+ * Copyright © 2021 Christopher Kujawa (zelldon91@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.zell.zdb.journal;
+
+import io.zell.zdb.journal.file.SegmentedReadOnlyJournal;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures how many records per second can be read, when iterating over a complete partition log.
+ * The log is not generated, since a realistic one takes some time to create. Instead, the path to
+ * an existing partition log has to be given, e.g.:
+ *
+ * <pre>
+ * -Dzdb.benchmark.logPath=/usr/local/zeebe/data/raft-partition/partitions/1
+ * </pre>
+ *
+ * The {@code records} counter of the results contains the records/s.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class JournalReadBenchmark {
+
+  private static final String LOG_PATH_PROPERTY = "zdb.benchmark.logPath";
+  private static final String PARTITION_NAME_FORMAT = "raft-partition-partition-%s";
+  private static final int MAX_SEGMENT_SIZE = 128 * 1024 * 1024;
+
+  @Param({"false", "true"})
+  public boolean readLocking;
+
+  @Param({"false", "true"})
+  public boolean reuseRecords;
+
+  private SegmentedReadOnlyJournal journal;
+
+  public static void main(final String[] args) throws RunnerException {
+    final var options =
+        new OptionsBuilder().include(JournalReadBenchmark.class.getSimpleName());
+    // the benchmark runs in a forked JVM, which needs to know the log as well
+    final var logPath = System.getProperty(LOG_PATH_PROPERTY);
+    if (logPath != null) {
+      options.jvmArgsAppend("-D" + LOG_PATH_PROPERTY + "=" + logPath);
+    }
+    new Runner(options.build()).run();
+  }
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    final var logPathProperty = System.getProperty(LOG_PATH_PROPERTY);
+    if (logPathProperty == null) {
+      throw new IllegalStateException(
+          "Expected the path to a partition log in the system property '%s', but it was not set."
+              .formatted(LOG_PATH_PROPERTY));
+    }
+
+    final var logPath = Path.of(logPathProperty);
+    journal =
+        SegmentedReadOnlyJournal.builder()
+            .withDirectory(logPath.toFile())
+            .withName(PARTITION_NAME_FORMAT.formatted(logPath.getFileName()))
+            .withMaxSegmentSize(MAX_SEGMENT_SIZE)
+            .withReadLocking(readLocking)
+            .withRecordReuse(reuseRecords)
+            .build();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    journal.close();
+  }
+
+  @Benchmark
+  public void readCompleteLog(final RecordCounter counter, final Blackhole blackhole) {
+    try (final var reader = journal.openReader()) {
+      while (reader.hasNext()) {
+        blackhole.consume(reader.next());
+        counter.records++;
+      }
+    }
+  }
+
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  public static class RecordCounter {
+    public long records;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      records = 0;
+    }
+  }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright © 2021 Christopher Kujawa (zelldon91@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.zell.zdb.journal.file;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.zell.zdb.journal.ReadOnlyJournalRecord;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+final class DirectJournalReaderTest {
+
+  private static final int SEGMENT_SIZE = 4 * 1024 * 1024;
+  private static final int CHUNK_SIZE = 1024 * 1024;
+  // not a divisor of the chunk size, such that records straddle the chunks
+  private static final int DATA_LENGTH = 100_000;
+
+  @TempDir private Path tempDir;
+
+  @Test
+  void shouldReadRecordsWhichStraddleChunks() {
+    // given
+    final var writer = new TestJournalWriter(tempDir, SEGMENT_SIZE);
+    final int records = 3 * CHUNK_SIZE / DATA_LENGTH;
+    for (long key = 1; key <= records; key++) {
+      writer.append(key, DATA_LENGTH);
+    }
+    writer.close();
+
+    final int chunkStart = writer.positionOf(1) / CHUNK_SIZE * CHUNK_SIZE;
+    assertThat(writer.positionOf(11) - chunkStart).isLessThan(CHUNK_SIZE);
+    assertThat(writer.positionOf(12) - chunkStart).isGreaterThan(CHUNK_SIZE);
+
+    // when - then
+    assertReadsRecords(writer, records, DATA_LENGTH);
+  }
+
+  @Test
+  void shouldReadRecordsWhichAreLargerThanAChunk() {
+    // given
+    final var writer = new TestJournalWriter(tempDir, SEGMENT_SIZE);
+    final int dataLength = CHUNK_SIZE + CHUNK_SIZE / 2;
+    for (long key = 1; key <= 2; key++) {
+      writer.append(key, dataLength);
+    }
+    writer.close();
+
+    // when - then
+    assertReadsRecords(writer, 2, dataLength);
+  }
+
+  @Test
+  void shouldReadRecordsAcrossSegments() {
+    // given
+    final var writer = new TestJournalWriter(tempDir, SEGMENT_SIZE);
+    final int recordsPerSegment = 2 * CHUNK_SIZE / DATA_LENGTH;
+    for (long key = 1; key <= 3L * recordsPerSegment; key++) {
+      writer.append(key, DATA_LENGTH);
+      if (key % recordsPerSegment == 0 && key < 3L * recordsPerSegment) {
+        writer.nextSegment();
+      }
+    }
+    writer.close();
+
+    // when - then
+    assertReadsRecords(writer, 3 * recordsPerSegment, DATA_LENGTH);
+  }
+
+  @Test
+  void shouldStreamFromSeekedRecord() {
+    // given
+    final var writer = new TestJournalWriter(tempDir, SEGMENT_SIZE);
+    final int records = 3 * CHUNK_SIZE / DATA_LENGTH;
+    for (long key = 1; key <= records; key++) {
+      writer.append(key, DATA_LENGTH);
+    }
+    writer.close();
+
+    try (final var journal = writer.journal().withDirectIo(true).build();
+        final var reader = journal.openReader()) {
+      // when
+      reader.seek(12);
+
+      // then
+      for (long index = 12; index <= records; index++) {
+        assertThat(reader.hasNext()).isTrue();
+        assertRecord(reader.next(), index, DATA_LENGTH);
+      }
+      assertThat(reader.hasNext()).isFalse();
+    }
+  }
+
+  /**
+   * Reads all records with reused records, and verifies each record after the next one was
+   * requested, since that is when the next chunks are read.
+   */
+  private static void assertReadsRecords(
+      final TestJournalWriter writer, final int records, final int dataLength) {
+    try (final var journal = writer.journal().withDirectIo(true).withRecordReuse(true).build();
+        final var reader = journal.openReader()) {
+      assertThat(reader).isInstanceOf(DirectJournalReader.class);
+
+      long expectedIndex = 1;
+      while (reader.hasNext()) {
+        final var record = reader.next();
+        reader.hasNext();
+        assertRecord(record, expectedIndex, dataLength);
+        expectedIndex++;
+      }
+      assertThat(expectedIndex - 1).isEqualTo(records);
+    }
+  }
+
+  private static void assertRecord(
+      final ReadOnlyJournalRecord record, final long index, final int dataLength) {
+    assertThat(record.index()).isEqualTo(index);
+    assertThat(TestJournalWriter.key(record)).isEqualTo(index);
+    assertThat(record.data().capacity()).isEqualTo(dataLength);
+    final int lastByte = dataLength - 1;
+    assertThat(record.data().getByte(lastByte)).isEqualTo((byte) (lastByte % 127 + 1));
+  }
+}
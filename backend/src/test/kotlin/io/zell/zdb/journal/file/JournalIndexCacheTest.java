@@ -0,0 +1,181 @@
+/*
+ * Copyright © 2021 Christopher Kujawa (zelldon91@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.zell.zdb.journal.file;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+final class JournalIndexCacheTest {
+
+  private static final int SEGMENT_SIZE = 64 * 1024;
+  private static final int DENSITY = 5;
+  private static final int RECORDS_PER_SEGMENT = 20;
+
+  @TempDir private Path tempDir;
+
+  @Test
+  void shouldPersistIndexOfAllSegments() throws IOException {
+    // given
+    final var logDirectory = tempDir.resolve("log");
+    final var writer = writeJournal(logDirectory, Long.BYTES);
+
+    // when
+    final List<IndexInfo> indexed = readIndex(logDirectory);
+
+    // then
+    assertThat(listCacheFiles()).hasSize(1);
+    for (long index = DENSITY; index <= 2 * RECORDS_PER_SEGMENT; index += DENSITY) {
+      assertThat(indexed).contains(new IndexInfo(index, writer.positionOf(index)));
+    }
+  }
+
+  @Test
+  void shouldRestoreIndexOfUnchangedSegmentsFromCache() throws IOException {
+    // given
+    final var logDirectory = tempDir.resolve("log");
+    writeJournal(logDirectory, Long.BYTES);
+    final var persisted = readIndex(logDirectory);
+
+    // the content changes, but size and last modified stay the same, so the cache is not stale
+    final var lastModified = lastModifiedTimes(logDirectory);
+    writeJournal(logDirectory, 4 * Long.BYTES);
+    restoreLastModifiedTimes(logDirectory, lastModified);
+
+    // when
+    final var restored = readIndex(logDirectory);
+
+    // then
+    assertThat(restored).isEqualTo(persisted);
+  }
+
+  @Test
+  void shouldScanSegmentsAgainWhichChangedSinceTheyWereCached() throws IOException {
+    // given
+    final var logDirectory = tempDir.resolve("log");
+    writeJournal(logDirectory, Long.BYTES);
+    final var persisted = readIndex(logDirectory);
+
+    final var lastModified = lastModifiedTimes(logDirectory);
+    final var writer = writeJournal(logDirectory, 4 * Long.BYTES);
+    restoreLastModifiedTimes(logDirectory, lastModified);
+    final var changedSegment = writer.segmentFiles().get(1);
+    Files.setLastModifiedTime(
+        changedSegment, FileTime.fromMillis(lastModified.get(1).toMillis() + 10_000));
+
+    // when
+    final var restored = readIndex(logDirectory);
+
+    // then
+    final long firstIndexOfChangedSegment = RECORDS_PER_SEGMENT + DENSITY;
+    assertThat(restored)
+        .contains(new IndexInfo(DENSITY, persisted.get(0).position()))
+        .contains(
+            new IndexInfo(
+                firstIndexOfChangedSegment, writer.positionOf(firstIndexOfChangedSegment)))
+        .doesNotContainAnyElementsOf(
+            persisted.stream().filter(info -> info.index() > RECORDS_PER_SEGMENT).toList());
+
+    // the cache is updated as well
+    assertThat(readIndex(logDirectory)).isEqualTo(restored);
+  }
+
+  @Test
+  void shouldRebuildCorruptedCache() throws IOException {
+    // given
+    final var logDirectory = tempDir.resolve("log");
+    writeJournal(logDirectory, Long.BYTES);
+    final var persisted = readIndex(logDirectory);
+    Files.write(listCacheFiles().get(0), new byte[] {1, 2, 3});
+
+    // when
+    final var restored = readIndex(logDirectory);
+
+    // then
+    assertThat(restored).isEqualTo(persisted);
+    assertThat(Files.size(listCacheFiles().get(0))).isGreaterThan(3);
+  }
+
+  private TestJournalWriter writeJournal(final Path logDirectory, final int dataLength) {
+    final var writer = new TestJournalWriter(logDirectory, SEGMENT_SIZE);
+    for (int segment = 0; segment < 2; segment++) {
+      if (segment > 0) {
+        writer.nextSegment();
+      }
+      for (int record = 0; record < RECORDS_PER_SEGMENT; record++) {
+        writer.append(segment * RECORDS_PER_SEGMENT + record + 1, dataLength);
+      }
+    }
+    writer.close();
+    return writer;
+  }
+
+  /** Opens the journal with the cache, and returns the indexed entries by index. */
+  private List<IndexInfo> readIndex(final Path logDirectory) {
+    final var journal =
+        TestJournalWriter.journal(logDirectory, SEGMENT_SIZE)
+            .withJournalIndexDensity(DENSITY)
+            .withIndexCacheDirectory(tempDir.resolve("cache").toFile())
+            .build();
+    try {
+      final List<IndexInfo> indexed = new ArrayList<>();
+      for (long index = DENSITY; index <= 2 * RECORDS_PER_SEGMENT; index += DENSITY) {
+        final var info = journal.getJournalIndex().lookup(index);
+        if (info != null && info.index() == index) {
+          indexed.add(info);
+        }
+      }
+      return indexed;
+    } finally {
+      journal.close();
+    }
+  }
+
+  private List<FileTime> lastModifiedTimes(final Path logDirectory) throws IOException {
+    final List<FileTime> times = new ArrayList<>();
+    for (final var file : listSegmentFiles(logDirectory)) {
+      times.add(Files.getLastModifiedTime(file));
+    }
+    return times;
+  }
+
+  private void restoreLastModifiedTimes(final Path logDirectory, final List<FileTime> times)
+      throws IOException {
+    final var files = listSegmentFiles(logDirectory);
+    for (int i = 0; i < files.size(); i++) {
+      Files.setLastModifiedTime(files.get(i), times.get(i));
+    }
+  }
+
+  private static List<Path> listSegmentFiles(final Path logDirectory) throws IOException {
+    try (final var files = Files.list(logDirectory)) {
+      return files.sorted().toList();
+    }
+  }
+
+  private List<Path> listCacheFiles() throws IOException {
+    try (final var files = Files.list(tempDir.resolve("cache"))) {
+      return files.filter(file -> file.toString().endsWith(".idx")).toList();
+    }
+  }
+}
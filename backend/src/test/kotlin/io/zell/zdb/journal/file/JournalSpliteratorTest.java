@@ -0,0 +1,150 @@
+/*
+ * Copyright © 2021 Christopher Kujawa (zelldon91@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.zell.zdb.journal.file;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.zell.zdb.journal.ReadOnlyJournalRecord;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+final class JournalSpliteratorTest {
+
+  private static final int SEGMENT_SIZE = 64 * 1024;
+  private static final int SEGMENTS = 4;
+  private static final int RECORDS_PER_SEGMENT = 10;
+
+  @TempDir private Path tempDir;
+  private SegmentedReadOnlyJournal journal;
+
+  @BeforeEach
+  void setUp() {
+    final var writer = new TestJournalWriter(tempDir, SEGMENT_SIZE);
+    for (int segment = 0; segment < SEGMENTS; segment++) {
+      if (segment > 0) {
+        writer.nextSegment();
+      }
+      for (int record = 0; record < RECORDS_PER_SEGMENT; record++) {
+        writer.append(segment * RECORDS_PER_SEGMENT + record + 1);
+      }
+    }
+    writer.close();
+    journal = writer.journal().withRecordReuse(true).build();
+  }
+
+  @AfterEach
+  void tearDown() {
+    journal.close();
+  }
+
+  @Test
+  void shouldSplitAtSegmentBoundaries() {
+    // given
+    final var spliterator = journal.spliterator();
+
+    // when
+    final var prefix = spliterator.trySplit();
+
+    // then
+    assertThat(prefix).isNotNull();
+    assertThat(readIndexes(prefix)).containsExactlyElementsOf(indexes(1, 2 * RECORDS_PER_SEGMENT));
+    assertThat(readIndexes(spliterator))
+        .containsExactlyElementsOf(
+            indexes(2 * RECORDS_PER_SEGMENT + 1, SEGMENTS * RECORDS_PER_SEGMENT));
+  }
+
+  @Test
+  void shouldSplitUntilEverySplitHasOneSegment() {
+    // given
+    final var spliterator = journal.spliterator();
+    final var firstHalf = spliterator.trySplit();
+
+    // when
+    final var firstQuarter = firstHalf.trySplit();
+    final var thirdQuarter = spliterator.trySplit();
+
+    // then
+    assertThat(firstQuarter.trySplit()).isNull();
+    assertThat(firstHalf.trySplit()).isNull();
+    assertThat(readIndexes(firstQuarter))
+        .containsExactlyElementsOf(indexes(1, RECORDS_PER_SEGMENT));
+    assertThat(readIndexes(firstHalf))
+        .containsExactlyElementsOf(indexes(RECORDS_PER_SEGMENT + 1, 2 * RECORDS_PER_SEGMENT));
+    assertThat(readIndexes(thirdQuarter))
+        .containsExactlyElementsOf(indexes(2 * RECORDS_PER_SEGMENT + 1, 3 * RECORDS_PER_SEGMENT));
+    assertThat(readIndexes(spliterator))
+        .containsExactlyElementsOf(
+            indexes(3 * RECORDS_PER_SEGMENT + 1, SEGMENTS * RECORDS_PER_SEGMENT));
+  }
+
+  @Test
+  void shouldNotSplitOnceStarted() {
+    // given
+    final var spliterator = journal.spliterator();
+    final List<Long> read = new ArrayList<>();
+    spliterator.tryAdvance(record -> read.add(record.index()));
+
+    // when
+    final var prefix = spliterator.trySplit();
+
+    // then
+    assertThat(prefix).isNull();
+    read.addAll(readIndexes(spliterator));
+    assertThat(read).containsExactlyElementsOf(indexes(1, SEGMENTS * RECORDS_PER_SEGMENT));
+  }
+
+  @Test
+  void shouldEstimateSizeByDescriptors() {
+    // given
+    final var spliterator = journal.spliterator();
+
+    // when
+    final long estimate = spliterator.estimateSize();
+
+    // then - the last segment has no last index in its descriptor, which counts as one record
+    assertThat(estimate).isEqualTo((SEGMENTS - 1) * RECORDS_PER_SEGMENT + 1);
+  }
+
+  @Test
+  void shouldReadAllRecordsInParallelInOrder() {
+    // when
+    final var indexes =
+        StreamSupport.stream(journal.spliterator(), true)
+            .map(ReadOnlyJournalRecord::index)
+            .toList();
+
+    // then
+    assertThat(indexes).containsExactlyElementsOf(indexes(1, SEGMENTS * RECORDS_PER_SEGMENT));
+  }
+
+  private static List<Long> readIndexes(final Spliterator<ReadOnlyJournalRecord> spliterator) {
+    final List<Long> indexes = new ArrayList<>();
+    spliterator.forEachRemaining(record -> indexes.add(record.index()));
+    return indexes;
+  }
+
+  private static List<Long> indexes(final long from, final long to) {
+    return LongStream.rangeClosed(from, to).boxed().toList();
+  }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright © 2021 Christopher Kujawa (zelldon91@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.zell.zdb.journal.file;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+import io.zell.zdb.journal.file.JournalVerifier.CorruptedRange;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+final class JournalVerifierTest {
+
+  private static final int SEGMENT_SIZE = 64 * 1024;
+  private static final int RECORDS_PER_SEGMENT = 20;
+  private static final ForkJoinPool POOL = new ForkJoinPool(2);
+
+  @TempDir private Path tempDir;
+  private TestJournalWriter writer;
+
+  @BeforeEach
+  void setUp() {
+    writer = new TestJournalWriter(tempDir, SEGMENT_SIZE);
+    for (int segment = 0; segment < 2; segment++) {
+      if (segment > 0) {
+        writer.nextSegment();
+      }
+      for (int record = 0; record < RECORDS_PER_SEGMENT; record++) {
+        writer.append(segment * RECORDS_PER_SEGMENT + record + 1, 64);
+      }
+    }
+    writer.close();
+  }
+
+  @AfterAll
+  static void shutdownPool() {
+    POOL.shutdown();
+  }
+
+  @Test
+  void shouldVerifyValidJournal() {
+    // when
+    final var result = verify();
+
+    // then
+    assertThat(result.isValid()).isTrue();
+    assertThat(result.segments()).isEqualTo(2);
+    assertThat(result.records()).isEqualTo(2 * RECORDS_PER_SEGMENT);
+    assertThat(result.corruptedRanges()).isEmpty();
+  }
+
+  @Test
+  void shouldReportCorruptedRecord() {
+    // given
+    writer.corrupt(5);
+
+    // when
+    final var result = verify();
+
+    // then
+    assertThat(result.isValid()).isFalse();
+    assertThat(result.records()).isEqualTo(2 * RECORDS_PER_SEGMENT - 1);
+    assertThat(result.corruptedRanges())
+        .singleElement()
+        .satisfies(
+            range -> {
+              assertThat(range.segment()).isEqualTo(segmentName(0));
+              assertThat(range.fromIndex()).isEqualTo(5);
+              assertThat(range.toIndex()).isEqualTo(5);
+              assertThat(range.reason()).contains("checksum");
+            });
+  }
+
+  @Test
+  void shouldReportRangeOfConsecutiveCorruptedRecords() {
+    // given
+    writer.corrupt(5);
+    writer.corrupt(6);
+    writer.corrupt(7);
+
+    // when
+    final var result = verify();
+
+    // then
+    assertThat(result.records()).isEqualTo(2 * RECORDS_PER_SEGMENT - 3);
+    assertThat(result.corruptedRanges())
+        .extracting(CorruptedRange::segment, CorruptedRange::fromIndex, CorruptedRange::toIndex)
+        .containsExactly(tuple(segmentName(0), 5L, 7L));
+  }
+
+  @Test
+  void shouldReportCorruptedRangesOfEverySegment() {
+    // given
+    writer.corrupt(3);
+    writer.corrupt(RECORDS_PER_SEGMENT + 10);
+
+    // when
+    final var result = verify();
+
+    // then
+    assertThat(result.corruptedRanges())
+        .extracting(CorruptedRange::segment, CorruptedRange::fromIndex, CorruptedRange::toIndex)
+        .containsExactly(
+            tuple(segmentName(0), 3L, 3L),
+            tuple(
+                segmentName(1), RECORDS_PER_SEGMENT + 10L, RECORDS_PER_SEGMENT + 10L));
+  }
+
+  @Test
+  void shouldReportUnknownEndIfNoValidRecordFollows() {
+    // given
+    writer.corrupt(RECORDS_PER_SEGMENT);
+
+    // when
+    final var result = verify();
+
+    // then
+    assertThat(result.records()).isEqualTo(2 * RECORDS_PER_SEGMENT - 1);
+    assertThat(result.corruptedRanges())
+        .extracting(CorruptedRange::segment, CorruptedRange::fromIndex, CorruptedRange::toIndex)
+        .containsExactly(
+            tuple(
+                segmentName(0), (long) RECORDS_PER_SEGMENT, JournalVerifier.UNKNOWN_INDEX));
+  }
+
+  private JournalVerifier.VerificationResult verify() {
+    final var journal = writer.journal().build();
+    try {
+      return new JournalVerifier(journal).verify(POOL);
+    } finally {
+      journal.close();
+    }
+  }
+
+  private String segmentName(final int segment) {
+    return writer.segmentFiles().get(segment).getFileName().toString();
+  }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright © 2021 Christopher Kujawa (zelldon91@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.zell.zdb.journal.file;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Path;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+final class SegmentedJournalReaderTest {
+
+  private static final int SEGMENT_SIZE = 2 * 1024 * 1024;
+  private static final int SEGMENTS = 3;
+  private static final int RECORDS_PER_SEGMENT = 1000;
+  private static final int DATA_LENGTH = 1000;
+  private static final long LAST_INDEX = SEGMENTS * RECORDS_PER_SEGMENT;
+
+  @TempDir private Path tempDir;
+  private SegmentedReadOnlyJournal journal;
+
+  @BeforeEach
+  void setUp() {
+    // the first segments are completed, the last one has no last entry in its descriptor
+    final var writer = new TestJournalWriter(tempDir, SEGMENT_SIZE);
+    for (int segment = 0; segment < SEGMENTS; segment++) {
+      if (segment > 0) {
+        writer.nextSegment();
+      }
+      for (int record = 0; record < RECORDS_PER_SEGMENT; record++) {
+        final long index = (long) segment * RECORDS_PER_SEGMENT + record + 1;
+        writer.append(keyOf(index), DATA_LENGTH);
+      }
+    }
+    writer.close();
+    journal = writer.journal().build();
+  }
+
+  @AfterEach
+  void tearDown() {
+    journal.close();
+  }
+
+  @Test
+  void shouldSeekToFirstRecordIfKeyIsBeforeTheLog() {
+    // given
+    try (final var reader = journal.openReader()) {
+      // when
+      final long index = reader.seekToKey(1, TestJournalWriter::key);
+
+      // then
+      assertThat(index).isEqualTo(1);
+      assertThat(reader.next().index()).isEqualTo(1);
+    }
+  }
+
+  @Test
+  void shouldSeekToRecordWithKey() {
+    // given
+    try (final var reader = journal.openReader()) {
+      for (final long expectedIndex : new long[] {2, 500, 1000, 1003, 1500, 2003, 2500, 3000}) {
+        // when
+        final long index = reader.seekToKey(keyOf(expectedIndex), TestJournalWriter::key);
+
+        // then
+        assertThat(index).isEqualTo(expectedIndex);
+        assertThat(reader.next().index()).isEqualTo(expectedIndex);
+      }
+    }
+  }
+
+  @Test
+  void shouldSeekToRecordWithLowerKeyIfKeyIsInBetween() {
+    // given
+    try (final var reader = journal.openReader()) {
+      for (final long expectedIndex : new long[] {3, 999, 1002, 2999}) {
+        // when
+        final long index = reader.seekToKey(keyOf(expectedIndex) + 5, TestJournalWriter::key);
+
+        // then
+        assertThat(index).isEqualTo(expectedIndex);
+        assertThat(reader.next().index()).isEqualTo(expectedIndex);
+      }
+    }
+  }
+
+  @Test
+  void shouldSkipRecordsWithoutKey() {
+    // given
+    final long indexWithoutKey = 7 * 150;
+    assertThat(keyOf(indexWithoutKey)).isNegative();
+
+    try (final var reader = journal.openReader()) {
+      // when
+      final long index = reader.seekToKey(keyOf(indexWithoutKey + 1) - 1, TestJournalWriter::key);
+
+      // then
+      assertThat(index).isEqualTo(indexWithoutKey - 1);
+      assertThat(reader.next().index()).isEqualTo(indexWithoutKey - 1);
+    }
+  }
+
+  @Test
+  void shouldSeekToLastRecordWithKeyIfKeyIsAfterTheLog() {
+    // given
+    final long lastIndexWithKey = keyOf(LAST_INDEX) < 0 ? LAST_INDEX - 1 : LAST_INDEX;
+
+    try (final var reader = journal.openReader()) {
+      // when
+      final long index = reader.seekToKey(Long.MAX_VALUE, TestJournalWriter::key);
+
+      // then
+      assertThat(index).isEqualTo(lastIndexWithKey);
+      assertThat(reader.next().index()).isEqualTo(lastIndexWithKey);
+    }
+  }
+
+  @Test
+  void shouldSeekToLastRecordOfCompletedSegmentIfKeyIsAfterIt() {
+    // given
+    final long lastIndexOfSegment = RECORDS_PER_SEGMENT;
+
+    try (final var reader = journal.openReader()) {
+      // when
+      final long index =
+          reader.seekToKey(keyOf(lastIndexOfSegment) + 5, TestJournalWriter::key);
+
+      // then
+      assertThat(index).isEqualTo(lastIndexOfSegment);
+      assertThat(reader.next().index()).isEqualTo(lastIndexOfSegment);
+      assertThat(reader.next().index()).isEqualTo(lastIndexOfSegment + 1);
+    }
+  }
+
+  @Test
+  void shouldSeekToLastRecord() {
+    // given
+    try (final var reader = journal.openReader()) {
+      // when
+      final long index = reader.seekToLast();
+
+      // then
+      assertThat(index).isEqualTo(LAST_INDEX);
+      assertThat(reader.next().index()).isEqualTo(LAST_INDEX);
+      assertThat(reader.hasNext()).isFalse();
+    }
+  }
+
+  @Test
+  void shouldSeekToLastRecordWrittenAfterDescriptorWasUpdated() {
+    // given
+    final var writer = new TestJournalWriter(tempDir.resolve("updated"), SEGMENT_SIZE);
+    for (long index = 1; index <= 10; index++) {
+      writer.append(keyOf(index));
+    }
+    writer.updateDescriptor();
+    for (long index = 11; index <= 15; index++) {
+      writer.append(keyOf(index));
+    }
+    writer.close();
+
+    try (final var updatedJournal = writer.journal().build();
+        final var reader = updatedJournal.openReader()) {
+      // when
+      final long index = reader.seekToLast();
+
+      // then
+      assertThat(index).isEqualTo(15);
+      assertThat(reader.next().index()).isEqualTo(15);
+      assertThat(reader.hasNext()).isFalse();
+    }
+  }
+
+  @Test
+  void shouldSeekToLastRecordOfPreviousSegmentIfLastSegmentIsEmpty() {
+    // given
+    final var writer = new TestJournalWriter(tempDir.resolve("empty"), SEGMENT_SIZE);
+    for (long index = 1; index <= 10; index++) {
+      writer.append(keyOf(index));
+    }
+    writer.nextSegment();
+    writer.close();
+
+    try (final var emptyLastSegmentJournal = writer.journal().build();
+        final var reader = emptyLastSegmentJournal.openReader()) {
+      // when
+      final long index = reader.seekToLast();
+
+      // then
+      assertThat(index).isEqualTo(10);
+      assertThat(reader.next().index()).isEqualTo(10);
+      assertThat(reader.hasNext()).isFalse();
+    }
+  }
+
+  /** Every 7th record has no key, like the raft entries which have no timestamp. */
+  private static long keyOf(final long index) {
+    return index % 7 == 0 ? -1 : index * 10;
+  }
+}
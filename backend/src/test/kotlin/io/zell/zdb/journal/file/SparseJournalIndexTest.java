@@ -0,0 +1,136 @@
+/*
+ * Copyright © 2021 Christopher Kujawa (zelldon91@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.zell.zdb.journal.file;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+final class SparseJournalIndexTest {
+
+  private static final int DENSITY = 5;
+
+  private final SparseJournalIndex index = new SparseJournalIndex(DENSITY);
+
+  @Test
+  void shouldOnlyIndexEveryDensityRecord() {
+    // when
+    for (long i = 1; i <= 12; i++) {
+      index.index(i, i * 10, positionOf(i));
+    }
+
+    // then
+    assertThat(index.lookup(4)).isNull();
+    assertThat(index.lookup(5)).isEqualTo(new IndexInfo(5, positionOf(5)));
+    assertThat(index.lookup(9)).isEqualTo(new IndexInfo(5, positionOf(5)));
+    assertThat(index.lookup(10)).isEqualTo(new IndexInfo(10, positionOf(10)));
+    assertThat(index.lookup(Long.MAX_VALUE)).isEqualTo(new IndexInfo(10, positionOf(10)));
+  }
+
+  @Test
+  void shouldLookupEntriesIndexedOutOfOrder() {
+    // given - a seek indexes a later segment first, and the earlier one afterwards
+    for (final long i : new long[] {50, 55, 60, 10, 20, 15, 30, 25, 55, 5}) {
+      index.index(i, i * 10, positionOf(i));
+    }
+
+    // when - then
+    assertThat(index.lookup(4)).isNull();
+    for (final long i : new long[] {5, 10, 15, 20, 25, 30, 50, 55, 60}) {
+      assertThat(index.lookup(i)).isEqualTo(new IndexInfo(i, positionOf(i)));
+      assertThat(index.lookup(i + DENSITY - 1)).isEqualTo(new IndexInfo(i, positionOf(i)));
+      assertThat(index.lookupAsqn(i * 10, Long.MAX_VALUE)).isEqualTo(i);
+      assertThat(index.lookupAsqn(i * 10 + 1, Long.MAX_VALUE)).isEqualTo(i);
+    }
+    // the gap between the indexed segments
+    assertThat(index.lookup(45)).isEqualTo(new IndexInfo(30, positionOf(30)));
+    assertThat(index.lookupAsqn(450, Long.MAX_VALUE)).isEqualTo(30);
+  }
+
+  @Test
+  void shouldKeepFirstPositionOfEntryIndexedTwice() {
+    // given
+    index.index(10, 100, 1);
+
+    // when
+    index.index(10, 100, 2);
+
+    // then
+    assertThat(index.lookup(10)).isEqualTo(new IndexInfo(10, 1));
+  }
+
+  @Test
+  void shouldGrowBeyondInitialCapacity() {
+    // given
+    final long entries = 3000;
+
+    // when - in reverse, such that every entry is inserted at the start
+    for (long i = entries * DENSITY; i > 0; i -= DENSITY) {
+      index.index(i, i * 10, positionOf(i));
+    }
+
+    // then
+    for (long i = DENSITY; i <= entries * DENSITY; i += DENSITY) {
+      assertThat(index.lookup(i)).isEqualTo(new IndexInfo(i, positionOf(i)));
+      assertThat(index.lookupAsqn(i * 10, Long.MAX_VALUE)).isEqualTo(i);
+    }
+  }
+
+  @Test
+  void shouldLookupAsqnOnlyOfEntriesWithAsqn() {
+    // given - raft entries have no asqn
+    index.index(5, 50, positionOf(5));
+    index.index(10, SegmentedReadOnlyJournal.ASQN_IGNORE, positionOf(10));
+    index.index(15, 150, positionOf(15));
+
+    // when - then
+    assertThat(index.lookup(12)).isEqualTo(new IndexInfo(10, positionOf(10)));
+    assertThat(index.lookupAsqn(49, Long.MAX_VALUE)).isNull();
+    assertThat(index.lookupAsqn(100, Long.MAX_VALUE)).isEqualTo(5);
+    assertThat(index.lookupAsqn(150, Long.MAX_VALUE)).isEqualTo(15);
+  }
+
+  @Test
+  void shouldLookupAsqnUpToIndexUpperBound() {
+    // given
+    for (long i = DENSITY; i <= 50; i += DENSITY) {
+      index.index(i, i * 10, positionOf(i));
+    }
+
+    // when - then
+    assertThat(index.lookupAsqn(500, 50)).isEqualTo(50);
+    assertThat(index.lookupAsqn(500, 32)).isEqualTo(30);
+    assertThat(index.lookupAsqn(500, 5)).isEqualTo(5);
+    assertThat(index.lookupAsqn(500, 4)).isNull();
+    assertThat(index.lookupAsqn(200, 32)).isEqualTo(20);
+  }
+
+  @Test
+  void shouldTellWhetherIndexWasIndexed() {
+    // given
+    index.index(10, 100, positionOf(10));
+
+    // when - then
+    assertThat(index.hasIndexed(5)).isFalse();
+    assertThat(index.hasIndexed(10)).isTrue();
+    assertThat(index.hasIndexed(14)).isTrue();
+    assertThat(index.hasIndexed(15)).isFalse();
+  }
+
+  private static int positionOf(final long index) {
+    return (int) index * 100;
+  }
+}
@@ -0,0 +1,286 @@
+/*
+ * Copyright © 2021 Christopher Kujawa (zelldon91@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.zell.zdb.journal.file;
+
+import io.camunda.zeebe.journal.file.DescriptorMetadataEncoder;
+import io.camunda.zeebe.journal.file.MessageHeaderEncoder;
+import io.camunda.zeebe.journal.file.RecordDataEncoder;
+import io.camunda.zeebe.journal.file.RecordMetadataEncoder;
+import io.camunda.zeebe.journal.file.SegmentDescriptorEncoder;
+import io.camunda.zeebe.journal.util.ChecksumGenerator;
+import io.zell.zdb.journal.ReadOnlyJournalRecord;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.agrona.DirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+
+/**
+ * Writes journal segments the same way a broker does, such that the readers can be tested without
+ * a running broker. The data of each record starts with its key, which is a long, followed by
+ * filler bytes.
+ *
+ * <p>Segments which are completed by {@link #nextSegment()} have the last entry in their
+ * descriptor. The segment which is written last, by {@link #close()}, has none, like the segment
+ * a broker still writes to.
+ *
+ * <p>The writer is public, such that logs of raft entries can be written by other test packages
+ * via {@link #append(DirectBuffer, long)}.
+ */
+public final class TestJournalWriter implements AutoCloseable {
+
+  static final String JOURNAL_NAME = "journal";
+  private static final byte FRAME_VERSION = 1;
+
+  private final MessageHeaderEncoder headerEncoder = new MessageHeaderEncoder();
+  private final DescriptorMetadataEncoder descriptorMetadataEncoder =
+      new DescriptorMetadataEncoder();
+  private final SegmentDescriptorEncoder descriptorEncoder = new SegmentDescriptorEncoder();
+  private final RecordMetadataEncoder metadataEncoder = new RecordMetadataEncoder();
+  private final RecordDataEncoder dataEncoder = new RecordDataEncoder();
+  private final ChecksumGenerator checksumGenerator = new ChecksumGenerator();
+
+  private final Path directory;
+  private final String name;
+  private final int segmentSize;
+  private final ByteBuffer segment;
+  private final UnsafeBuffer segmentBuffer;
+  private final List<Path> segmentFiles = new ArrayList<>();
+  private final Map<Long, Frame> frames = new HashMap<>();
+
+  private long segmentIndex = 1;
+  private long nextIndex = 1;
+  private int position;
+  private int lastPosition;
+
+  TestJournalWriter(final Path directory, final int segmentSize) {
+    this(directory, JOURNAL_NAME, segmentSize);
+  }
+
+  /**
+   * Writes the segments of the journal with the given name, e.g. the name of the partition whose
+   * log is written.
+   */
+  public TestJournalWriter(final Path directory, final String name, final int segmentSize) {
+    this.directory = directory;
+    this.name = name;
+    this.segmentSize = segmentSize;
+    segment = ByteBuffer.allocate(segmentSize).order(ByteOrder.LITTLE_ENDIAN);
+    segmentBuffer = new UnsafeBuffer(segment);
+    position = writeDescriptor(0, 0);
+  }
+
+  /** Returns the key of a record written by this writer. */
+  static long key(final ReadOnlyJournalRecord record) {
+    return record.data().getLong(0, ByteOrder.LITTLE_ENDIAN);
+  }
+
+  /** Opens the written journal, the builder can be configured further. */
+  SegmentedJournalBuilder journal() {
+    return journal(directory, segmentSize);
+  }
+
+  /** Opens a journal, which was written by this writer before. */
+  static SegmentedJournalBuilder journal(final Path directory, final int segmentSize) {
+    return SegmentedReadOnlyJournal.builder()
+        .withName(JOURNAL_NAME)
+        .withDirectory(directory.toFile())
+        .withMaxSegmentSize(segmentSize);
+  }
+
+  /**
+   * Appends a record with the given key, whose asqn is the key as well.
+   *
+   * @return the index of the record
+   */
+  long append(final long key) {
+    return append(key, Long.BYTES);
+  }
+
+  /**
+   * Appends a record with the given key and the given length of its data.
+   *
+   * @return the index of the record
+   */
+  long append(final long key, final int dataLength) {
+    final var data = new UnsafeBuffer(new byte[Math.max(dataLength, Long.BYTES)]);
+    data.putLong(0, key, ByteOrder.LITTLE_ENDIAN);
+    for (int i = Long.BYTES; i < data.capacity(); i++) {
+      data.putByte(i, (byte) (i % 127 + 1));
+    }
+    return append(data, key);
+  }
+
+  /**
+   * Appends a record with the given data, e.g. a serialized raft entry.
+   *
+   * @return the index of the record
+   */
+  public long append(final DirectBuffer data, final long asqn) {
+    final int metadataOffset = position + 1;
+    final int metadataLength = headerEncoder.encodedLength() + metadataEncoder.sbeBlockLength();
+    final int dataOffset = metadataOffset + metadataLength;
+    dataEncoder
+        .wrapAndApplyHeader(segmentBuffer, dataOffset, headerEncoder)
+        .index(nextIndex)
+        .asqn(asqn)
+        .putData(data, 0, data.capacity());
+    final int recordLength = headerEncoder.encodedLength() + dataEncoder.encodedLength();
+    if (dataOffset + recordLength >= segmentSize) {
+      throw new IllegalStateException("The record doesn't fit into the segment anymore");
+    }
+
+    metadataEncoder
+        .wrapAndApplyHeader(segmentBuffer, metadataOffset, headerEncoder)
+        .checksum(checksumGenerator.compute(segment, dataOffset, recordLength))
+        .length(recordLength);
+    segmentBuffer.putByte(position, FRAME_VERSION);
+
+    lastPosition = position;
+    position = dataOffset + recordLength;
+    frames.put(nextIndex, new Frame(segmentFiles.size(), lastPosition, position));
+    return nextIndex++;
+  }
+
+  /**
+   * Writes the last record of the current segment into its descriptor, like a broker does when it
+   * flushes. Records which are appended afterwards are not known by the descriptor.
+   */
+  void updateDescriptor() {
+    writeDescriptor(nextIndex - 1, lastPosition);
+  }
+
+  /** Completes the current segment and starts the next one. */
+  public void nextSegment() {
+    updateDescriptor();
+    flush();
+    segmentIndex = nextIndex;
+    segment.clear();
+    segmentBuffer.setMemory(0, segmentSize, (byte) 0);
+    position = writeDescriptor(0, 0);
+  }
+
+  /**
+   * Skips the given number of indexes, such that the journal has a gap. Only the indexes of a
+   * segment without records can be skipped, which then starts at the index after the gap.
+   */
+  public void skipIndexes(final long count) {
+    if (nextIndex != segmentIndex) {
+      throw new IllegalStateException("Expected an empty segment to skip indexes");
+    }
+    nextIndex += count;
+    segmentIndex = nextIndex;
+    position = writeDescriptor(0, 0);
+  }
+
+  /** Returns the position of the record with the given index with in its segment. */
+  int positionOf(final long index) {
+    return frames.get(index).position();
+  }
+
+  /**
+   * Overwrites the last byte of the record with the given index in its segment file, such that it
+   * doesn't match its checksum anymore. Only records of written segments can be corrupted.
+   */
+  void corrupt(final long index) {
+    final var frame = frames.get(index);
+    final var file = segmentFiles.get(frame.segment());
+    try (final var channel =
+        FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      final var lastByte = ByteBuffer.allocate(1);
+      channel.read(lastByte, frame.end() - 1);
+      lastByte.put(0, (byte) ~lastByte.get(0));
+      channel.write(lastByte.clear(), frame.end() - 1);
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /** Returns the segment files, which have been written so far. */
+  List<Path> segmentFiles() {
+    return segmentFiles;
+  }
+
+  @Override
+  public void close() {
+    flush();
+  }
+
+  /**
+   * Writes the descriptor of the current segment at its start.
+   *
+   * @return the length of the descriptor
+   */
+  private int writeDescriptor(final long lastIndex, final int lastEntryPosition) {
+    segmentBuffer.putByte(0, SegmentDescriptor.CUR_VERSION);
+    final int metadataOffset = SegmentDescriptor.VERSION_LENGTH;
+    descriptorMetadataEncoder.wrapAndApplyHeader(segmentBuffer, metadataOffset, headerEncoder);
+    final int descriptorOffset =
+        metadataOffset + headerEncoder.encodedLength() + descriptorMetadataEncoder.encodedLength();
+    descriptorEncoder
+        .wrapAndApplyHeader(segmentBuffer, descriptorOffset, headerEncoder)
+        .id(segmentFiles.size() + 1)
+        .index(segmentIndex)
+        .maxSegmentSize(segmentSize)
+        .lastIndex(lastIndex)
+        .lastPosition(lastEntryPosition);
+    final int descriptorLength = headerEncoder.encodedLength() + descriptorEncoder.encodedLength();
+    descriptorMetadataEncoder.checksum(
+        checksumGenerator.compute(segment, descriptorOffset, descriptorLength));
+    return descriptorOffset + descriptorLength;
+  }
+
+  private void flush() {
+    final var file =
+        directory.resolve(name + "-" + (segmentFiles.size() + 1) + ".log");
+    try {
+      Files.createDirectories(directory);
+      try (final var channel =
+          FileChannel.open(
+              file,
+              StandardOpenOption.CREATE,
+              StandardOpenOption.WRITE,
+              StandardOpenOption.TRUNCATE_EXISTING)) {
+        // the segments are preallocated, the bytes after the last record are zero
+        final var content = segment.duplicate().clear();
+        while (content.hasRemaining()) {
+          channel.write(content);
+        }
+      }
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    segmentFiles.add(file);
+  }
+
+  /**
+   * Where a record is written.
+   *
+   * @param segment the number of the segment, starting at 0
+   * @param position the start of the record's frame
+   * @param end the position after the record
+   */
+  private record Frame(int segment, int position, int end) {}
+}
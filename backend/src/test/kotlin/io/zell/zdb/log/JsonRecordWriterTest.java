@@ -0,0 +1,150 @@
+/*
+ * Copyright © 2021 Christopher Kujawa (zelldon91@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.zell.zdb.log;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.camunda.zeebe.protocol.impl.encoding.MsgPackConverter;
+import io.camunda.zeebe.protocol.record.RecordType;
+import io.camunda.zeebe.protocol.record.RejectionType;
+import io.camunda.zeebe.protocol.record.ValueType;
+import io.camunda.zeebe.protocol.record.intent.JobIntent;
+import io.camunda.zeebe.protocol.record.intent.ProcessInstanceCreationIntent;
+import io.zell.zdb.log.records.ApplicationRecord;
+import io.zell.zdb.log.records.PersistedRecord;
+import io.zell.zdb.log.records.RaftRecord;
+import io.zell.zdb.log.records.Record;
+import io.zell.zdb.log.records.RecordValue;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+
+final class JsonRecordWriterTest {
+
+  private static final String VALUE =
+      """
+      {"type":"say \\"hi\\"\\n\\ttwice\\\\","control":"\\u0001\\b\\f\\r","unicode":"ümlaut ✓",
+      "nested":{"list":[1,-2,9223372036854775807,-9223372036854775808,true,false,null,
+      {"deep":[[]]}],"empty":{}},"float":1.5}
+      """;
+
+  @Test
+  void shouldWriteRecordWithDefaultsLikeToString() {
+    // given
+    final var record = new ApplicationRecord(3, 1, 11, 10);
+    record.getEntries().add(record(10, RejectionType.NULL_VAL, "", 0L, 0, 0, ""));
+    record.getEntries().add(record(11, RejectionType.NULL_VAL, "", 0L, 0, 0, ""));
+
+    // when - then
+    assertWrittenLikeToString(record);
+  }
+
+  @Test
+  void shouldWriteRejectionWithEscapedReasonLikeToString() {
+    // given
+    final var record = new ApplicationRecord(4, 2, 12, 12);
+    record
+        .getEntries()
+        .add(
+            record(
+                12,
+                RejectionType.INVALID_ARGUMENT,
+                "Expected \"a\", but got '\\b'\n\tat ümlaut ✓ \u0001\u001f",
+                -1L,
+                -2147483648,
+                1,
+                "auth\r\n"));
+
+    // when - then
+    assertWrittenLikeToString(record);
+  }
+
+  @Test
+  void shouldWriteNullPropertiesLikeToString() {
+    // given
+    final var record = new ApplicationRecord(5, 2, 13, 13);
+    record.getEntries().add(record(13, null, null, null, 7, null, null));
+
+    // when - then
+    assertWrittenLikeToString(record);
+  }
+
+  @Test
+  void shouldWriteRaftRecordLikeToString() {
+    // when - then
+    assertWrittenLikeToString(new RaftRecord(1, 1));
+    assertWrittenLikeToString(new RaftRecord(Long.MAX_VALUE, 0));
+  }
+
+  @Test
+  void shouldWritePartitionRecordLikeToString() {
+    // given
+    final var entry = new ApplicationRecord(3, 1, 10, 10);
+    final var record =
+        new PartitionRecord(2, entry, record(10, RejectionType.NULL_VAL, "", 0L, 0, 0, ""));
+    final var output = new ByteArrayOutputStream();
+    final var writer = new JsonRecordWriter(output, 16);
+
+    // when
+    writer.write(record);
+    writer.flush();
+
+    // then
+    assertThat(output.toString(StandardCharsets.UTF_8)).isEqualTo(record.toString());
+  }
+
+  private static void assertWrittenLikeToString(final PersistedRecord record) {
+    // a small buffer, such that the records are flushed in between
+    final var output = new ByteArrayOutputStream();
+    final var writer = new JsonRecordWriter(output, 16);
+
+    writer.write(record);
+    writer.flush();
+
+    assertThat(output.toString(StandardCharsets.UTF_8)).isEqualTo(record.toString());
+    assertThat(output.toByteArray())
+        .isEqualTo(record.toString().getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static Record record(
+      final long position,
+      final RejectionType rejectionType,
+      final String rejectionReason,
+      final Long requestId,
+      final int requestStreamId,
+      final Integer recordVersion,
+      final String authData) {
+    return new Record(
+        position,
+        position - 1,
+        1700000000000L,
+        2251799813685249L,
+        rejectionType == RejectionType.NULL_VAL ? RecordType.EVENT : RecordType.COMMAND_REJECTION,
+        rejectionType == RejectionType.NULL_VAL ? ValueType.JOB : ValueType.PROCESS_INSTANCE_CREATION,
+        rejectionType == RejectionType.NULL_VAL
+            ? JobIntent.CREATED
+            : ProcessInstanceCreationIntent.CREATE,
+        rejectionType,
+        rejectionReason,
+        requestId,
+        requestStreamId,
+        6,
+        "8.8.0",
+        recordVersion,
+        authData,
+        new RecordValue(MsgPackConverter.convertToMsgPack(VALUE)));
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright © 2021 Christopher Kujawa (zelldon91@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.zell.zdb.log;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+final class LogCheckTest {
+
+  private static final int SEGMENT_SIZE = 4 * 1024;
+  private static final long TIMESTAMP = 1700000000000L;
+
+  // the segments are the splits of the check, if there are enough threads
+  private final ForkJoinPool pool = new ForkJoinPool(4);
+  @TempDir private Path tempDir;
+
+  @AfterEach
+  void tearDown() {
+    pool.shutdown();
+  }
+
+  @Test
+  void shouldCheckConsistentSegments() {
+    // given
+    final var logPath = tempDir.resolve("1");
+    try (final var writer = new TestLogWriter(logPath, SEGMENT_SIZE)) {
+      writer.append(1, 2, TIMESTAMP);
+      writer.append(3, TIMESTAMP);
+      writer.nextSegment();
+      writer.append(4, 6, TIMESTAMP);
+      writer.nextSegment();
+      writer.append(7, TIMESTAMP);
+      writer.append(8, 9, TIMESTAMP);
+      writer.nextSegment();
+      writer.append(10, TIMESTAMP);
+    }
+
+    // when
+    final var checkDetails = new LogCheck(logPath).check(pool);
+
+    // then
+    assertThat(checkDetails.isConsistent()).isTrue();
+    assertThat(checkDetails.getInconsistencies()).isEmpty();
+    assertThat(checkDetails.getEntries()).isEqualTo(6);
+  }
+
+  @Test
+  void shouldReportGapsAtSegmentBoundary() {
+    // given
+    final var logPath = tempDir.resolve("1");
+    final long gapIndex;
+    try (final var writer = new TestLogWriter(logPath, SEGMENT_SIZE)) {
+      writer.append(1, 2, TIMESTAMP);
+      writer.append(3, TIMESTAMP);
+      writer.nextSegment();
+      writer.append(4, 5, TIMESTAMP);
+      writer.append(6, TIMESTAMP);
+      writer.nextSegment();
+      // the indexes 5 and 6 and the positions 7 to 9 are missing
+      writer.skipIndexes(2);
+      gapIndex = writer.append(10, TIMESTAMP);
+      writer.append(11, TIMESTAMP);
+      writer.nextSegment();
+      writer.append(12, 13, TIMESTAMP);
+    }
+
+    // when
+    final var checkDetails = new LogCheck(logPath).check(pool);
+
+    // then
+    assertThat(gapIndex).isEqualTo(7);
+    assertThat(checkDetails.getInconsistencyCount()).isEqualTo(2);
+    assertThat(checkDetails.getInconsistencies())
+        .extracting(LogInconsistency::getIndex, LogInconsistency::getType)
+        .containsExactly(
+            tuple(gapIndex, InconsistencyType.NON_CONTIGUOUS_INDEX),
+            tuple(gapIndex, InconsistencyType.NON_CONTIGUOUS_POSITIONS));
+    assertThat(checkDetails.getEntries()).isEqualTo(7);
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright © 2021 Christopher Kujawa (zelldon91@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.zell.zdb.log;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+import io.zell.zdb.ZeebePaths;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+final class MergedLogReaderTest {
+
+  private static final int SEGMENT_SIZE = 4 * 1024;
+  private static final long TIMESTAMP = 1700000000000L;
+
+  @TempDir private Path tempDir;
+
+  @BeforeEach
+  void writeLogs() {
+    try (final var writer = new TestLogWriter(logPath("1"), SEGMENT_SIZE)) {
+      writer.append(1, TIMESTAMP + 10);
+      writer.append(2, TIMESTAMP + 30);
+      writer.nextSegment();
+      writer.append(3, 4, TIMESTAMP + 50);
+    }
+    try (final var writer = new TestLogWriter(logPath("2"), SEGMENT_SIZE)) {
+      writer.append(1, TIMESTAMP + 20);
+      writer.append(2, TIMESTAMP + 30);
+      writer.append(3, TIMESTAMP + 40);
+    }
+  }
+
+  @Test
+  void shouldMergeRecordsByTimestampPartitionAndPosition() {
+    // given
+    final var records = new ArrayList<PartitionRecord>();
+
+    // when
+    try (final var reader = new MergedLogReader(tempDir)) {
+      reader.forEachRemaining(records::add);
+    }
+
+    // then
+    assertThat(records)
+        .extracting(
+            PartitionRecord::getPartitionId,
+            record -> record.getRecord().getTimestamp(),
+            record -> record.getRecord().getPosition())
+        .containsExactly(
+            tuple(1, TIMESTAMP + 10, 1L),
+            tuple(2, TIMESTAMP + 20, 1L),
+            tuple(1, TIMESTAMP + 30, 2L),
+            tuple(2, TIMESTAMP + 30, 2L),
+            tuple(2, TIMESTAMP + 40, 3L),
+            tuple(1, TIMESTAMP + 50, 3L),
+            tuple(1, TIMESTAMP + 50, 4L));
+    assertThat(records)
+        .allSatisfy(
+            record ->
+                assertThat(record.getEntry().getEntries()).contains(record.getRecord()));
+  }
+
+  @Test
+  void shouldFailOnFailingPartition() {
+    // given
+    final var records = new ArrayList<PartitionRecord>();
+    // only the last record of the second partition is written at this timestamp
+    final RecordFilter failingFilter =
+        record -> {
+          if (record.timestamp() == TIMESTAMP + 40) {
+            throw new IllegalArgumentException("Invalid record");
+          }
+          return true;
+        };
+
+    final var reader =
+        new MergedLogReader(
+            tempDir,
+            new LogOptions(),
+            logContentReader -> logContentReader.filterRecords(failingFilter));
+
+    // when - then
+    try (reader) {
+      assertThatThrownBy(() -> reader.forEachRemaining(records::add))
+          .isInstanceOf(IllegalStateException.class)
+          .hasMessage("Failed to read the log of partition 2")
+          .hasCauseInstanceOf(IllegalArgumentException.class);
+    }
+    // the records before the failure are merged
+    assertThat(records)
+        .extracting(PartitionRecord::getPartitionId, record -> record.getRecord().getPosition())
+        .containsExactly(tuple(1, 1L), tuple(2, 1L), tuple(1, 2L), tuple(2, 2L));
+  }
+
+  private Path logPath(final String partition) {
+    return ZeebePaths.Companion.getLogPath(tempDir.toFile(), partition);
+  }
+}
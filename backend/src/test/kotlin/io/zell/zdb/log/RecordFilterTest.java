@@ -0,0 +1,85 @@
+/*
+ * Copyright © 2021 Christopher Kujawa (zelldon91@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.zell.zdb.log;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.camunda.zeebe.protocol.record.RecordType;
+import io.camunda.zeebe.protocol.record.RejectionType;
+import io.camunda.zeebe.protocol.record.ValueType;
+import io.camunda.zeebe.protocol.record.intent.JobIntent;
+import io.camunda.zeebe.protocol.record.intent.ProcessInstanceIntent;
+import org.junit.jupiter.api.Test;
+
+final class RecordFilterTest {
+
+  private static final TestRecordMetadata TIMED_OUT_JOB =
+      new TestRecordMetadata(
+          10, 5, 1000, 42, RecordType.EVENT, ValueType.JOB, JobIntent.TIMED_OUT, RejectionType.NULL_VAL);
+
+  @Test
+  void shouldMatchAllConditions() {
+    // given
+    final var filter = RecordFilter.parse("valueType=JOB and intent=TIMED_OUT AND recordType=EVENT");
+
+    // when - then
+    assertThat(filter.test(TIMED_OUT_JOB)).isTrue();
+    assertThat(filter.test(TIMED_OUT_JOB.withIntent(JobIntent.CREATED))).isFalse();
+  }
+
+  @Test
+  void shouldMatchAlternativeValues() {
+    // given
+    final var filter = RecordFilter.parse("intent=created|timed_out");
+
+    // when - then
+    assertThat(filter.test(TIMED_OUT_JOB)).isTrue();
+    assertThat(filter.test(TIMED_OUT_JOB.withIntent(JobIntent.CREATED))).isTrue();
+    assertThat(filter.test(TIMED_OUT_JOB.withIntent(ProcessInstanceIntent.ELEMENT_ACTIVATED)))
+        .isFalse();
+  }
+
+  @Test
+  void shouldCompareNumbers() {
+    // given
+    final var filter = RecordFilter.parse("position >= 10 and timestamp<1001 and key != 1");
+
+    // when - then
+    assertThat(filter.test(TIMED_OUT_JOB)).isTrue();
+    assertThat(RecordFilter.parse("position > 10").test(TIMED_OUT_JOB)).isFalse();
+  }
+
+  @Test
+  void shouldRejectInvalidExpressions() {
+    assertThatThrownBy(() -> RecordFilter.parse("valueType=NO_SUCH_TYPE"))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining("NO_SUCH_TYPE");
+    assertThatThrownBy(() -> RecordFilter.parse("intent=CREATED|TIMED_OUTT"))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining("TIMED_OUTT")
+        .hasMessageContaining("TIMED_OUT, ");
+    assertThatThrownBy(() -> RecordFilter.parse("unknown=1"))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining("unknown");
+    assertThatThrownBy(() -> RecordFilter.parse("valueType<JOB"))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> RecordFilter.parse("position=first"))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> RecordFilter.parse(""))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+}
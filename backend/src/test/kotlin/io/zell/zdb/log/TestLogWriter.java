@@ -0,0 +1,138 @@
+/*
+ * Copyright © 2021 Christopher Kujawa (zelldon91@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.zell.zdb.log;
+
+import io.atomix.raft.storage.log.entry.SerializedApplicationEntry;
+import io.atomix.raft.storage.serializer.RaftEntrySBESerializer;
+import io.camunda.zeebe.logstreams.impl.log.LogEntryDescriptor;
+import io.camunda.zeebe.logstreams.impl.serializer.DataFrameDescriptor;
+import io.camunda.zeebe.protocol.impl.encoding.MsgPackConverter;
+import io.camunda.zeebe.protocol.impl.record.RecordMetadata;
+import io.camunda.zeebe.protocol.record.RecordType;
+import io.camunda.zeebe.protocol.record.ValueType;
+import io.camunda.zeebe.protocol.record.intent.JobIntent;
+import io.zell.zdb.journal.file.TestJournalWriter;
+import java.nio.file.Path;
+import org.agrona.DirectBuffer;
+import org.agrona.ExpandableArrayBuffer;
+import org.agrona.MutableDirectBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+
+/**
+ * Writes the log of a partition the same way a broker does, such that the log readers can be
+ * tested without a running broker. Every raft entry is an application entry of job events, whose
+ * keys are their positions.
+ */
+public final class TestLogWriter implements AutoCloseable {
+
+  private static final long TERM = 1;
+
+  private final RaftEntrySBESerializer serializer = new RaftEntrySBESerializer();
+  private final RecordMetadata metadata =
+      new RecordMetadata()
+          .recordType(RecordType.EVENT)
+          .valueType(ValueType.JOB)
+          .intent(JobIntent.CREATED);
+  private final DirectBuffer value = new UnsafeBuffer(MsgPackConverter.convertToMsgPack("{}"));
+  private final TestJournalWriter journalWriter;
+
+  /**
+   * @param logPath the directory of the partition log, which is named by the partition id
+   */
+  public TestLogWriter(final Path logPath, final int segmentSize) {
+    journalWriter =
+        new TestJournalWriter(
+            logPath, "raft-partition-partition-" + logPath.getFileName(), segmentSize);
+  }
+
+  /**
+   * Appends an application entry with a single record.
+   *
+   * @return the index of the entry
+   */
+  public long append(final long position, final long timestamp) {
+    return append(position, position, timestamp);
+  }
+
+  /**
+   * Appends an application entry with the records from the lowest to the highest position, which
+   * are all written at the given timestamp.
+   *
+   * @return the index of the entry
+   */
+  public long append(final long lowestPosition, final long highestPosition, final long timestamp) {
+    final var records = new ExpandableArrayBuffer();
+    int length = 0;
+    for (long position = lowestPosition; position <= highestPosition; position++) {
+      length = writeRecord(records, length, position, timestamp);
+    }
+
+    final var applicationEntry =
+        new SerializedApplicationEntry(
+            lowestPosition, highestPosition, new UnsafeBuffer(records, 0, length));
+    final var entry = new ExpandableArrayBuffer();
+    final int entryLength = serializer.getApplicationEntrySerializedLength(applicationEntry);
+    serializer.writeApplicationEntry(TERM, applicationEntry, entry, 0);
+    return journalWriter.append(new UnsafeBuffer(entry, 0, entryLength), highestPosition);
+  }
+
+  /** Completes the current segment and starts the next one. */
+  public void nextSegment() {
+    journalWriter.nextSegment();
+  }
+
+  /** Skips the given number of indexes, see {@link TestJournalWriter#skipIndexes(long)}. */
+  public void skipIndexes(final long count) {
+    journalWriter.skipIndexes(count);
+  }
+
+  @Override
+  public void close() {
+    journalWriter.close();
+  }
+
+  /**
+   * Writes the frame of a logged event, whose source record is the one before.
+   *
+   * @return the offset after the frame
+   */
+  private int writeRecord(
+      final MutableDirectBuffer buffer,
+      final int offset,
+      final long position,
+      final long timestamp) {
+    final int metadataLength = metadata.getLength();
+    final int framedLength =
+        DataFrameDescriptor.framedLength(
+            LogEntryDescriptor.headerLength(metadataLength) + value.capacity());
+    buffer.putInt(DataFrameDescriptor.lengthOffset(offset), framedLength);
+
+    final int eventOffset = DataFrameDescriptor.messageOffset(offset);
+    LogEntryDescriptor.setPosition(buffer, eventOffset, position);
+    LogEntryDescriptor.setSourceEventPosition(buffer, eventOffset, position - 1);
+    LogEntryDescriptor.setKey(buffer, eventOffset, position);
+    LogEntryDescriptor.setTimestamp(buffer, eventOffset, timestamp);
+    LogEntryDescriptor.setMetadataLength(buffer, eventOffset, (short) metadataLength);
+    metadata.write(buffer, LogEntryDescriptor.metadataOffset(eventOffset));
+    buffer.putBytes(
+        LogEntryDescriptor.valueOffset(eventOffset, metadataLength), value, 0, value.capacity());
+
+    // the frames are aligned, the padding stays zero
+    final int end = offset + DataFrameDescriptor.alignedLength(framedLength);
+    buffer.setMemory(offset + framedLength, end - offset - framedLength, (byte) 0);
+    return end;
+  }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright © 2021 Christopher Kujawa (zelldon91@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.zell.zdb.log;
+
+import io.camunda.zeebe.protocol.record.RecordType;
+import io.camunda.zeebe.protocol.record.RejectionType;
+import io.camunda.zeebe.protocol.record.ValueType;
+import io.camunda.zeebe.protocol.record.intent.Intent;
+
+/** The metadata of a record, to test the filters and the index of the metadata without a log. */
+public record TestRecordMetadata(
+    long position,
+    long sourceRecordPosition,
+    long timestamp,
+    long key,
+    RecordType recordType,
+    ValueType valueType,
+    Intent intent,
+    RejectionType rejectionType)
+    implements RecordMetadataView {
+
+  /** Creates the metadata of a record, which is no rejection. */
+  public TestRecordMetadata(
+      final long position,
+      final long sourceRecordPosition,
+      final long timestamp,
+      final long key,
+      final RecordType recordType,
+      final ValueType valueType,
+      final Intent intent) {
+    this(
+        position,
+        sourceRecordPosition,
+        timestamp,
+        key,
+        recordType,
+        valueType,
+        intent,
+        RejectionType.NULL_VAL);
+  }
+
+  public TestRecordMetadata withIntent(final Intent intent) {
+    return new TestRecordMetadata(
+        position, sourceRecordPosition, timestamp, key, recordType, valueType, intent, rejectionType);
+  }
+}
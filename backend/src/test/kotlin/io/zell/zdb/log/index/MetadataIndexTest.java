@@ -0,0 +1,174 @@
+/*
+ * Copyright © 2021 Christopher Kujawa (zelldon91@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.zell.zdb.log.index;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.camunda.zeebe.protocol.record.RecordType;
+import io.camunda.zeebe.protocol.record.RejectionType;
+import io.camunda.zeebe.protocol.record.ValueType;
+import io.camunda.zeebe.protocol.record.intent.JobIntent;
+import io.camunda.zeebe.protocol.record.intent.ProcessInstanceIntent;
+import io.zell.zdb.log.RecordFilter;
+import io.zell.zdb.log.TestRecordMetadata;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.agrona.collections.LongHashSet;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+final class MetadataIndexTest {
+
+  @TempDir private Path tempDir;
+  private Path logPath;
+  private Path cacheDirectory;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    logPath = Files.createDirectories(tempDir.resolve("1"));
+    cacheDirectory = tempDir.resolve("cache");
+
+    try (final var writer =
+        new MetadataIndexWriter(MetadataIndex.file(logPath, cacheDirectory), List.of())) {
+      writer.add(
+          1,
+          new TestRecordMetadata(
+              10, -1, 1000, 5, RecordType.EVENT, ValueType.JOB, JobIntent.CREATED),
+          42);
+      writer.add(
+          1,
+          new TestRecordMetadata(
+              11,
+              10,
+              1001,
+              6,
+              RecordType.EVENT,
+              ValueType.PROCESS_INSTANCE,
+              ProcessInstanceIntent.ELEMENT_ACTIVATED),
+          42);
+      writer.add(
+          2,
+          new TestRecordMetadata(
+              12, 11, 1002, 5, RecordType.COMMAND, ValueType.JOB, JobIntent.COMPLETE),
+          MetadataIndex.NO_PROCESS_INSTANCE_KEY);
+      writer.finish();
+    }
+  }
+
+  @Test
+  void shouldReadTheWrittenColumns() {
+    // when
+    try (final var index = MetadataIndex.open(logPath, cacheDirectory)) {
+      // then
+      assertThat(index).isNotNull();
+      assertThat(index.getRecordCount()).isEqualTo(3);
+
+      final var cursor = index.cursor();
+      assertThat(cursor.next()).isTrue();
+      assertThat(cursor.next()).isTrue();
+      assertThat(cursor.index()).isEqualTo(1);
+      assertThat(cursor.position()).isEqualTo(11);
+      assertThat(cursor.sourceRecordPosition()).isEqualTo(10);
+      assertThat(cursor.timestamp()).isEqualTo(1001);
+      assertThat(cursor.key()).isEqualTo(6);
+      assertThat(cursor.processInstanceKey()).isEqualTo(42);
+      assertThat(cursor.hasProcessInstanceKey()).isTrue();
+      assertThat(cursor.recordType()).isEqualTo(RecordType.EVENT);
+      assertThat(cursor.valueType()).isEqualTo(ValueType.PROCESS_INSTANCE);
+      assertThat(cursor.intent()).isEqualTo(ProcessInstanceIntent.ELEMENT_ACTIVATED);
+      assertThat(cursor.rejectionType()).isEqualTo(RejectionType.NULL_VAL);
+
+      assertThat(cursor.next()).isTrue();
+      assertThat(cursor.intent()).isEqualTo(JobIntent.COMPLETE);
+      assertThat(cursor.hasProcessInstanceKey()).isFalse();
+      assertThat(cursor.next()).isFalse();
+    }
+  }
+
+  @Test
+  void shouldMatchRecords() {
+    // given
+    final var filter = RecordFilter.parse("valueType=JOB");
+
+    // when
+    try (final var index = MetadataIndex.open(logPath, cacheDirectory)) {
+      final var matches = index.match(filter::test);
+
+      // then
+      assertThat(matches.getEntryIndexes()).containsExactly(1, 2);
+      assertThat(matches.getPositions()).containsExactly(10, 12);
+      assertThat(index.match(record -> record.processInstanceKey() == 42).getEntryIndexes())
+          .containsExactly(1);
+    }
+  }
+
+  @Test
+  void shouldMatchEntriesLikeReader() {
+    // given
+    final var noKeys = new LongHashSet();
+    final var instanceKeys = new LongHashSet();
+    instanceKeys.add(42);
+
+    // when
+    try (final var index = MetadataIndex.open(logPath, cacheDirectory)) {
+      final var all = index.matchEntries(1, Long.MAX_VALUE, noKeys, null);
+      final var jobs =
+          index.matchEntries(1, Long.MAX_VALUE, noKeys, RecordFilter.parse("valueType=JOB"));
+      final var instance = index.matchEntries(1, Long.MAX_VALUE, instanceKeys, null);
+      final var instanceJobs =
+          index.matchEntries(1, Long.MAX_VALUE, instanceKeys, RecordFilter.parse("valueType=JOB"));
+      final var fromSecondEntry = index.matchEntries(2, Long.MAX_VALUE, noKeys, null);
+      final var toSecondEntry = index.matchEntries(1, 12, noKeys, null);
+      final var withinFirstEntry = index.matchEntries(1, 11, noKeys, null);
+
+      // then
+      assertThat(all.getPositions()).containsExactly(10, 11, 12);
+      assertThat(jobs.getEntryIndexes()).containsExactly(1, 2);
+      assertThat(jobs.getPositions()).containsExactly(10, 12);
+      // the process instance filter selects complete entries
+      assertThat(instance.getEntryIndexes()).containsExactly(1);
+      assertThat(instance.getPositions()).containsExactly(10, 11);
+      assertThat(instanceJobs.getPositions()).containsExactly(10);
+      assertThat(fromSecondEntry.getEntryIndexes()).containsExactly(2);
+      assertThat(fromSecondEntry.getPositions()).containsExactly(12);
+      // entries which start before the limit are read completely
+      assertThat(toSecondEntry.getEntryIndexes()).containsExactly(1);
+      assertThat(toSecondEntry.getPositions()).containsExactly(10, 11);
+      assertThat(withinFirstEntry.getPositions()).containsExactly(10, 11);
+    }
+  }
+
+  @Test
+  void shouldNotLeaveTemporaryFiles() throws IOException {
+    // when
+    try (final var files = Files.list(cacheDirectory)) {
+      // then
+      assertThat(files).containsExactly(MetadataIndex.file(logPath, cacheDirectory));
+    }
+  }
+
+  @Test
+  void shouldNotOpenOutdatedIndex() throws IOException {
+    // given
+    Files.createFile(logPath.resolve("raft-partition-partition-1-1.log"));
+
+    // when - then
+    assertThat(MetadataIndex.open(logPath, cacheDirectory)).isNull();
+  }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright © 2021 Christopher Kujawa (zelldon91@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.zell.zdb.log.query;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+final class LogQueryParserTest {
+
+  @Test
+  void shouldParseAggregation() {
+    // given
+    final var sql =
+        "select valueType, intent, count(*) from records where recordType = 'EVENT'"
+            + " group by 1, 2 order by count(*) desc, valueType limit 10;";
+
+    // when
+    final var query = LogQueryParser.parse(sql);
+
+    // then
+    assertThat(query.labels()).containsExactly("valueType", "intent", "count(*)");
+    assertThat(query.isAggregated()).isTrue();
+    assertThat(query.getGroupBy()).containsExactly(QueryColumn.VALUE_TYPE, QueryColumn.INTENT);
+    assertThat(query.getWhere())
+        .containsExactly(new Condition(QueryColumn.RECORD_TYPE, "=", "EVENT"));
+    assertThat(query.getOrderBy())
+        .containsExactly(new OrderItem(2, true), new OrderItem(0, false));
+    assertThat(query.getLimit()).isEqualTo(10L);
+  }
+
+  @Test
+  void shouldParseConditions() {
+    // when
+    final var query =
+        LogQueryParser.parse(
+            "SELECT position, elementId FROM records"
+                + " WHERE processInstanceKey = 2251799813685249 AND position <> 5 AND elementId = task");
+
+    // then
+    assertThat(query.isAggregated()).isFalse();
+    assertThat(query.getWhere())
+        .containsExactly(
+            new Condition(QueryColumn.PROCESS_INSTANCE_KEY, "=", 2251799813685249L),
+            new Condition(QueryColumn.POSITION, "!=", 5L),
+            new Condition(QueryColumn.ELEMENT_ID, "=", "task"));
+    assertThat(query.getWhere().get(0).matches(2251799813685249L)).isTrue();
+    assertThat(query.getWhere().get(0).matches(null)).isFalse();
+    assertThat(query.getWhere().get(1).matches(5L)).isFalse();
+  }
+
+  @Test
+  void shouldRejectInvalidQueries() {
+    for (final var sql :
+        List.of(
+            "SELECT position FROM records WHERE",
+            "SELECT unknown FROM records",
+            "SELECT position FROM elements",
+            "SELECT valueType, count(*) FROM records",
+            "SELECT sum(intent) FROM records",
+            "SELECT position FROM records WHERE position = 'first'",
+            "SELECT position FROM records WHERE valueType = NO_SUCH_TYPE",
+            "SELECT position FROM records ORDER BY timestamp",
+            "SELECT position FROM records GROUP BY 2",
+            "SELECT position FROM records LIMIT 1 2")) {
+      assertThatThrownBy(() -> LogQueryParser.parse(sql))
+          .describedAs(sql)
+          .isInstanceOf(IllegalArgumentException.class);
+    }
+  }
+}
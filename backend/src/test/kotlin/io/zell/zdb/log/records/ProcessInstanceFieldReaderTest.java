@@ -0,0 +1,108 @@
+/*
+ * Copyright © 2021 Christopher Kujawa (zelldon91@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.zell.zdb.log.records;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.camunda.zeebe.msgpack.spec.MsgPackWriter;
+import io.camunda.zeebe.protocol.record.value.BpmnElementType;
+import java.nio.charset.StandardCharsets;
+import org.agrona.DirectBuffer;
+import org.agrona.ExpandableArrayBuffer;
+import org.agrona.concurrent.UnsafeBuffer;
+import org.junit.jupiter.api.Test;
+
+final class ProcessInstanceFieldReaderTest {
+
+  private final ExpandableArrayBuffer buffer = new ExpandableArrayBuffer();
+  private final MsgPackWriter writer = new MsgPackWriter();
+  private final ProcessInstanceFieldReader reader = new ProcessInstanceFieldReader();
+
+  @Test
+  void shouldReadFields() {
+    // given
+    writer.wrap(buffer, 0);
+    writer.writeMapHeader(4);
+    writeKey("processInstanceKey", 2251799813685249L);
+    writeKey("processDefinitionKey", 2251799813685248L);
+    writer.writeString(utf8("bpmnElementType"));
+    writer.writeString(utf8("SERVICE_TASK"));
+    writer.writeString(utf8("elementId"));
+    writer.writeString(utf8("task"));
+
+    // when
+    reader.read(buffer, 0, writer.getOffset());
+
+    // then
+    assertThat(reader.hasProcessInstanceKey()).isTrue();
+    assertThat(reader.processInstanceKey()).isEqualTo(2251799813685249L);
+    assertThat(reader.hasProcessDefinitionKey()).isTrue();
+    assertThat(reader.processDefinitionKey()).isEqualTo(2251799813685248L);
+    assertThat(reader.bpmnElementType()).isEqualTo(BpmnElementType.SERVICE_TASK);
+    assertThat(reader.elementId()).isEqualTo("task");
+  }
+
+  @Test
+  void shouldKeepStoredMinusOne() {
+    // given
+    writer.wrap(buffer, 0);
+    writer.writeMapHeader(2);
+    writeKey("processInstanceKey", -1);
+    writeKey("processDefinitionKey", -1);
+
+    // when
+    final var value = reader.read(buffer, 0, writer.getOffset()).toProcessInstanceRelatedValue();
+
+    // then
+    assertThat(reader.hasProcessInstanceKey()).isTrue();
+    assertThat(reader.hasProcessDefinitionKey()).isTrue();
+    assertThat(value.getProcessInstanceKey()).isEqualTo(-1L);
+    assertThat(value.getProcessDefinitionKey()).isEqualTo(-1L);
+  }
+
+  @Test
+  void shouldResetMissingFields() {
+    // given
+    writer.wrap(buffer, 0);
+    writer.writeMapHeader(1);
+    writeKey("processInstanceKey", 1);
+    reader.read(buffer, 0, writer.getOffset());
+
+    writer.wrap(buffer, 0);
+    writer.writeMapHeader(1);
+    writeKey("key", 1);
+
+    // when
+    final var value = reader.read(buffer, 0, writer.getOffset()).toProcessInstanceRelatedValue();
+
+    // then
+    assertThat(reader.hasProcessInstanceKey()).isFalse();
+    assertThat(reader.processInstanceKey()).isEqualTo(ProcessInstanceFieldReader.NO_KEY);
+    assertThat(reader.hasProcessDefinitionKey()).isFalse();
+    assertThat(value.getProcessInstanceKey()).isNull();
+    assertThat(value.getProcessDefinitionKey()).isNull();
+    assertThat(reader.elementIdBuffer()).isNull();
+  }
+
+  private void writeKey(final String name, final long value) {
+    writer.writeString(utf8(name));
+    writer.writeInteger(value);
+  }
+
+  private static DirectBuffer utf8(final String value) {
+    return new UnsafeBuffer(value.getBytes(StandardCharsets.UTF_8));
+  }
+}
@@ -27,6 +27,7 @@ import io.camunda.zeebe.db.impl.ZeebeDbConstants;
 import io.camunda.zeebe.model.bpmn.Bpmn;
 import io.camunda.zeebe.model.bpmn.BpmnModelInstance;
 import io.camunda.zeebe.protocol.ZbColumnFamilies;
+import io.camunda.zeebe.protocol.record.RecordType;
 import io.camunda.zeebe.protocol.record.RejectionType;
 import io.camunda.zeebe.protocol.record.ValueType;
 import io.camunda.zeebe.protocol.record.intent.ProcessInstanceIntent;
@@ -37,10 +38,18 @@ import io.zeebe.containers.ZeebeContainer;
 import io.zell.zdb.TestUtils;
 import io.zell.zdb.ZeebeContentCreator;
 import io.zell.zdb.ZeebePaths;
+import io.zell.zdb.log.LogCheck;
+import io.zell.zdb.log.LogCheckDetails;
 import io.zell.zdb.log.LogContentReader;
+import io.zell.zdb.log.LogFilter;
+import io.zell.zdb.log.LogOptions;
 import io.zell.zdb.log.LogSearch;
 import io.zell.zdb.log.LogStatus;
 import io.zell.zdb.log.LogWriter;
+import io.zell.zdb.log.RecordFilter;
+import io.zell.zdb.log.index.MetadataIndex;
+import io.zell.zdb.log.index.MetadataIndexWriter;
+import io.zell.zdb.log.query.LogQueryParser;
 import io.zell.zdb.log.records.ApplicationRecord;
 import io.zell.zdb.log.records.PersistedRecord;
 import io.zell.zdb.log.records.RaftRecord;
@@ -54,15 +63,21 @@ import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
+import org.agrona.collections.LongHashSet;
 import org.agrona.concurrent.UnsafeBuffer;
 import org.assertj.core.api.InstanceOfAssertFactories;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.testcontainers.junit.jupiter.Container;
@@ -141,6 +156,29 @@ public class Version88Test {
           .contains("highestIndex")
           .contains("lowestIndex");
     }
+
+    @Test
+    public void shouldCheckConsistentLog() {
+      // given
+      final var logPath = ZeebePaths.Companion.getLogPath(TEMP_DIR, PARITION_ONE);
+      final var status = new LogStatus(logPath).status();
+      final var pool = new ForkJoinPool(4);
+
+      // when
+      final LogCheckDetails checkDetails;
+      try {
+        checkDetails = new LogCheck(logPath).check(pool);
+      } finally {
+        pool.shutdown();
+      }
+
+      // then
+      assertThat(checkDetails.isConsistent()).isTrue();
+      assertThat(checkDetails.getInconsistencyCount()).isZero();
+      assertThat(checkDetails.getInconsistencies()).isEmpty();
+      assertThat(checkDetails.getEntries())
+          .isEqualTo(status.getHighestIndex() - status.getLowestIndex() + 1);
+    }
   }
 
   @Nested
@@ -889,6 +927,385 @@ public class Version88Test {
       // then
       assertThat(logContent).isNull();
     }
+
+    @Test
+    @Timeout(60)
+    public void shouldStopFollowingWhenLimitIsReached() {
+      // given
+      final var logPath = ZeebePaths.Companion.getLogPath(TEMP_DIR, PARITION_ONE);
+      final var outputStream = new ByteArrayOutputStream();
+      long expectedRecords = 0;
+      try (final var logContentReader = new LogContentReader(logPath)) {
+        logContentReader.limitToPosition(10);
+        while (logContentReader.hasNext()) {
+          logContentReader.next();
+          expectedRecords++;
+        }
+      }
+
+      // when
+      try (final var logContentReader = new LogContentReader(logPath)) {
+        logContentReader.limitToPosition(10);
+        new LogWriter(outputStream, logContentReader).followAsJsonLines(Duration.ofMillis(100));
+      }
+
+      // then
+      assertThat(outputStream.toString(StandardCharsets.UTF_8).lines())
+          .hasSize((int) expectedRecords);
+    }
+
+    @Test
+    public void shouldWriteSameJsonAsRecordToString() {
+      // given - the output of log print before the records were streamed
+      final var logPath = ZeebePaths.Companion.getLogPath(TEMP_DIR, PARITION_ONE);
+      final var records = new ArrayList<PersistedRecord>();
+      final var expectedJson = new StringBuilder("[" + System.lineSeparator());
+      try (final var logContentReader = new LogContentReader(logPath)) {
+        var separator = "";
+        while (logContentReader.hasNext()) {
+          final var record = logContentReader.next();
+          records.add(record);
+          expectedJson.append(separator).append(record);
+          separator = ",";
+        }
+      }
+      expectedJson.append("]").append(System.lineSeparator());
+      assertThat(records).hasAtLeastOneElementOfType(RaftRecord.class);
+
+      // when
+      final var outputStream = new ByteArrayOutputStream();
+      try (final var logContentReader = new LogContentReader(logPath)) {
+        new LogWriter(outputStream, logContentReader).writeAsJson();
+      }
+
+      // then
+      assertThat(outputStream.toString(StandardCharsets.UTF_8))
+          .isEqualTo(expectedJson.toString());
+      assertThat(outputStream.toByteArray())
+          .isEqualTo(expectedJson.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void shouldQueryColumnsOfEveryRecord() {
+      // given
+      final var logPath = ZeebePaths.Companion.getLogPath(TEMP_DIR, PARITION_ONE);
+      final var expectedRows =
+          readAllRecords(logPath).stream()
+              .map(
+                  record ->
+                      List.<Object>of(
+                          record.getPosition(),
+                          record.getValueType().name(),
+                          record.getIntent().name()))
+              .toList();
+
+      // when
+      final var rows = executeQuery(logPath, "SELECT position, valueType, intent FROM records");
+
+      // then
+      assertThat(rows).containsExactlyElementsOf(expectedRows);
+    }
+
+    @Test
+    public void shouldPushDownQueryConditionsIntoRecordFilter() {
+      // given
+      final var logPath = ZeebePaths.Companion.getLogPath(TEMP_DIR, PARITION_ONE);
+      final var expectedPositions =
+          readAllRecords(logPath).stream()
+              .filter(record -> record.getValueType() == ValueType.PROCESS_INSTANCE)
+              .filter(record -> record.getIntent() == ProcessInstanceIntent.ELEMENT_ACTIVATED)
+              .map(Record::getPosition)
+              .toList();
+      final var rows = new ArrayList<List<?>>();
+      final var scannedPositions = new ArrayList<Long>();
+
+      // when
+      try (final var logContentReader = new LogContentReader(logPath)) {
+        LogQueryParser.parse(
+                "SELECT position FROM records"
+                    + " WHERE valueType = PROCESS_INSTANCE AND intent = 'ELEMENT_ACTIVATED'")
+            .execute(logContentReader, rows::add);
+
+        // the conditions are set as record filter, which skips the other records in every scan
+        logContentReader.seekToIndex(1);
+        logContentReader.scan(
+            record -> {
+              scannedPositions.add(record.position());
+              return true;
+            });
+      }
+
+      // then
+      assertThat(expectedPositions).isNotEmpty();
+      assertThat(rows)
+          .containsExactlyElementsOf(expectedPositions.stream().map(List::of).toList());
+      assertThat(scannedPositions).containsExactlyElementsOf(expectedPositions);
+    }
+
+    @Test
+    public void shouldQueryValueColumns() {
+      // given
+      final var logPath = ZeebePaths.Companion.getLogPath(TEMP_DIR, PARITION_ONE);
+      final long processInstanceKey =
+          zeebeContentCreator.processInstanceEvent.getProcessInstanceKey();
+      final var expectedRows =
+          readAllRecords(logPath).stream()
+              .filter(record -> record.getRecordType() == RecordType.EVENT)
+              .filter(
+                  record ->
+                      record.getPiRelatedValue() != null
+                          && Objects.equals(
+                              record.getPiRelatedValue().getProcessInstanceKey(),
+                              processInstanceKey))
+              .map(record -> List.<Object>of(record.getPosition(), record.getKey()))
+              .toList();
+
+      // when
+      final var rows =
+          executeQuery(
+              logPath,
+              "SELECT position, key FROM records WHERE processInstanceKey = "
+                  + processInstanceKey
+                  + " AND recordType = EVENT");
+
+      // then
+      assertThat(expectedRows).isNotEmpty();
+      assertThat(rows).containsExactlyElementsOf(expectedRows);
+    }
+
+    @Test
+    public void shouldGroupAndCountQueriedRecords() {
+      // given
+      final var logPath = ZeebePaths.Companion.getLogPath(TEMP_DIR, PARITION_ONE);
+      final var records = readAllRecords(logPath);
+      final var expectedRows =
+          records.stream()
+              .collect(
+                  Collectors.groupingBy(
+                      record -> record.getValueType().name(), TreeMap::new, Collectors.counting()))
+              .entrySet()
+              .stream()
+              .map(group -> List.<Object>of(group.getKey(), group.getValue()))
+              .toList();
+      final var processInstancePositions =
+          records.stream()
+              .filter(record -> record.getValueType() == ValueType.PROCESS_INSTANCE)
+              .map(Record::getPosition)
+              .toList();
+
+      // when
+      final var groupedRows =
+          executeQuery(
+              logPath, "SELECT valueType, count(*) FROM records GROUP BY valueType ORDER BY 1");
+      final var aggregatedRows =
+          executeQuery(
+              logPath,
+              "SELECT count(*), min(position), max(position) FROM records"
+                  + " WHERE valueType = PROCESS_INSTANCE");
+
+      // then
+      assertThat(groupedRows).containsExactlyElementsOf(expectedRows);
+      assertThat(aggregatedRows)
+          .containsExactly(
+              List.of(
+                  (long) processInstancePositions.size(),
+                  Collections.min(processInstancePositions),
+                  Collections.max(processInstancePositions)));
+    }
+
+    @Test
+    public void shouldOrderAndLimitQueriedRecords() {
+      // given
+      final var logPath = ZeebePaths.Companion.getLogPath(TEMP_DIR, PARITION_ONE);
+      final var positions = readAllRecords(logPath).stream().map(Record::getPosition).toList();
+
+      // when
+      final var lastRows =
+          executeQuery(logPath, "SELECT position FROM records ORDER BY position DESC LIMIT 5");
+      final var firstRows = executeQuery(logPath, "SELECT position FROM records LIMIT 3");
+      final var noRows = executeQuery(logPath, "SELECT position FROM records LIMIT 0");
+
+      // then
+      assertThat(lastRows)
+          .containsExactlyElementsOf(
+              positions.stream()
+                  .sorted(Comparator.reverseOrder())
+                  .limit(5)
+                  .map(List::of)
+                  .toList());
+      assertThat(firstRows)
+          .containsExactlyElementsOf(positions.stream().limit(3).map(List::of).toList());
+      assertThat(noRows).isEmpty();
+    }
+
+    @Test
+    public void shouldQueryMetadataIndexLikeLog() {
+      // given
+      final var logPath = ZeebePaths.Companion.getLogPath(TEMP_DIR, PARITION_ONE);
+      final var cacheDirectory = TEMP_DIR.toPath().resolve("query-index-cache");
+      MetadataIndexWriter.build(logPath, new LogOptions(), cacheDirectory);
+      final var query =
+          LogQueryParser.parse(
+              "SELECT valueType, intent, count(*), max(processInstanceKey) FROM records"
+                  + " WHERE recordType = EVENT GROUP BY 1, 2 ORDER BY 3 DESC, 1, 2");
+      final var expectedRows = new ArrayList<List<?>>();
+      try (final var logContentReader = new LogContentReader(logPath)) {
+        query.execute(logContentReader, expectedRows::add);
+      }
+
+      // when
+      final var rows = new ArrayList<List<?>>();
+      try (final var index = MetadataIndex.open(logPath, cacheDirectory)) {
+        assertThat(index).isNotNull();
+        query.execute(index, rows::add);
+      }
+
+      // then
+      assertThat(expectedRows).isNotEmpty();
+      assertThat(rows).containsExactlyElementsOf(expectedRows);
+    }
+
+    @Test
+    public void shouldPrintSameRecordsWithMetadataIndex() {
+      // given
+      final var logPath = ZeebePaths.Companion.getLogPath(TEMP_DIR, PARITION_ONE);
+      final var cacheDirectory = TEMP_DIR.toPath().resolve("print-index-cache");
+      MetadataIndexWriter.build(logPath, new LogOptions(), cacheDirectory);
+      final var records = readAllRecords(logPath);
+      final long middleTimestamp = records.get(records.size() / 2).getTimestamp();
+      final var noKeys = new LongHashSet();
+      final var instanceKeys = new LongHashSet();
+      instanceKeys.add(zeebeContentCreator.processInstanceEvent.getProcessInstanceKey());
+      final var filters =
+          List.of(
+              new LogFilter(
+                  0,
+                  0,
+                  Long.MAX_VALUE,
+                  0,
+                  noKeys,
+                  RecordFilter.parse("valueType=PROCESS_INSTANCE")),
+              new LogFilter(50, 0, 120, 0, noKeys, RecordFilter.parse("recordType=EVENT")),
+              new LogFilter(0, 0, Long.MAX_VALUE, 0, instanceKeys, null),
+              new LogFilter(
+                  40, 0, 100, 0, instanceKeys, RecordFilter.parse("intent=ELEMENT_ACTIVATED")),
+              new LogFilter(
+                  0,
+                  middleTimestamp,
+                  Long.MAX_VALUE,
+                  0,
+                  noKeys,
+                  RecordFilter.parse("recordType=COMMAND")),
+              new LogFilter(
+                  0, 0, Long.MAX_VALUE, 5, noKeys, RecordFilter.parse("recordType=EVENT")),
+              new LogFilter(0, 0, Long.MAX_VALUE, 0, noKeys, RecordFilter.parse("key=-2")));
+
+      for (int i = 0; i < filters.size(); i++) {
+        // when
+        final var withoutIndex = printJson(logPath, filters.get(i), null);
+        final var withIndex = printJson(logPath, filters.get(i), cacheDirectory);
+
+        // then
+        assertThat(withIndex).as("printed with filter %d", i).isEqualTo(withoutIndex);
+      }
+      assertThat(printJson(logPath, filters.get(2), null))
+          .contains(
+              "\"processInstanceKey\":"
+                  + zeebeContentCreator.processInstanceEvent.getProcessInstanceKey());
+    }
+
+    @Test
+    public void shouldDecodeInParallelLikeSequentialReader() {
+      // given
+      final var logPath = ZeebePaths.Companion.getLogPath(TEMP_DIR, PARITION_ONE);
+      final var cacheDirectory = TEMP_DIR.toPath().resolve("parallel-index-cache");
+      MetadataIndexWriter.build(logPath, new LogOptions(), cacheDirectory);
+      final var instanceKeys = new LongHashSet();
+      instanceKeys.add(zeebeContentCreator.processInstanceEvent.getProcessInstanceKey());
+      final var indexFilter =
+          new LogFilter(
+              0, 0, Long.MAX_VALUE, 0, new LongHashSet(), RecordFilter.parse("recordType=EVENT"));
+      final List<Consumer<LogContentReader>> configurations =
+          List.of(
+              logContentReader -> {},
+              logContentReader -> logContentReader.filterForProcessInstances(instanceKeys),
+              logContentReader ->
+                  logContentReader.filterRecords(RecordFilter.parse("valueType=PROCESS_INSTANCE")),
+              logContentReader -> logContentReader.limitToPosition(MAX_POSITION / 2),
+              logContentReader -> {
+                try (final var index = MetadataIndex.open(logPath, cacheDirectory)) {
+                  assertThat(index).isNotNull();
+                  indexFilter.applyTo(logContentReader, index);
+                }
+              });
+
+      for (int i = 0; i < configurations.size(); i++) {
+        // when
+        final var sequential = new ArrayList<String>();
+        final boolean sequentialLimitReached;
+        try (final var logContentReader = new LogContentReader(logPath)) {
+          configurations.get(i).accept(logContentReader);
+          logContentReader.forEachRemaining(record -> sequential.add(record.toString()));
+          sequentialLimitReached = logContentReader.getLimitReached();
+        }
+
+        final var parallel = new ArrayList<String>();
+        final boolean parallelLimitReached;
+        try (final var logContentReader = new LogContentReader(logPath)) {
+          configurations.get(i).accept(logContentReader);
+          logContentReader.decodeInParallel(4);
+          logContentReader.forEachRemaining(record -> parallel.add(record.toString()));
+          parallelLimitReached = logContentReader.getLimitReached();
+        }
+
+        // then
+        assertThat(sequential).as("read with configuration %d", i).isNotEmpty();
+        assertThat(parallel).as("read with configuration %d", i).isEqualTo(sequential);
+        assertThat(parallelLimitReached)
+            .as("limit reached with configuration %d", i)
+            .isEqualTo(sequentialLimitReached);
+        // only the configuration with the limit ends before the end of the log
+        assertThat(parallelLimitReached).isEqualTo(i == 3);
+      }
+    }
+
+    private String printJson(
+        final Path logPath, final LogFilter filter, final Path cacheDirectory) {
+      final var outputStream = new ByteArrayOutputStream();
+      try (final var logContentReader = new LogContentReader(logPath)) {
+        if (cacheDirectory == null) {
+          filter.applyTo(logContentReader);
+        } else {
+          try (final var index = MetadataIndex.open(logPath, cacheDirectory)) {
+            assertThat(index).isNotNull();
+            filter.applyTo(logContentReader, index);
+          }
+        }
+        new LogWriter(outputStream, logContentReader).writeAsJson();
+      }
+      return outputStream.toString(StandardCharsets.UTF_8);
+    }
+
+    private List<Record> readAllRecords(final Path logPath) {
+      final var records = new ArrayList<Record>();
+      try (final var logContentReader = new LogContentReader(logPath)) {
+        logContentReader.forEachRemaining(
+            persistedRecord -> {
+              if (persistedRecord instanceof final ApplicationRecord applicationRecord) {
+                records.addAll(applicationRecord.getEntries());
+              }
+            });
+      }
+      return records;
+    }
+
+    private List<List<?>> executeQuery(final Path logPath, final String sql) {
+      final var rows = new ArrayList<List<?>>();
+      try (final var logContentReader = new LogContentReader(logPath)) {
+        LogQueryParser.parse(sql).execute(logContentReader, rows::add);
+      }
+      return rows;
+    }
   }
 
   @Nested
@@ -0,0 +1,56 @@
+/*
+ * Copyright © 2021 Christopher Kujawa (zelldon91@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.zell.zdb.journal;
+
+import io.zell.zdb.log.LogCheck;
+import java.nio.file.Path;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Spec;
+
+@Command(
+    name = "check",
+    description =
+        "Checks the consistency of the log, e.g. whether indexes and positions are contiguous, and prints the found inconsistencies")
+public class LogCheckCommand implements Callable<Integer> {
+
+  @Spec private CommandSpec spec;
+
+  @Option(
+      names = {"--threads"},
+      description =
+          "The number of segments which are checked in parallel, defaults to the number of available processors.",
+      defaultValue = "0")
+  private int threads;
+
+  @Override
+  public Integer call() {
+    final Path partitionPath = spec.findOption("-p").getValue();
+    final int parallelism = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+
+    final var pool = new ForkJoinPool(parallelism);
+    try {
+      final var checkDetails = new LogCheck(partitionPath, LogCommand.logOptions(spec)).check(pool);
+      System.out.println(checkDetails);
+      return checkDetails.isConsistent() ? 0 : 1;
+    } finally {
+      pool.shutdown();
+    }
+  }
+}
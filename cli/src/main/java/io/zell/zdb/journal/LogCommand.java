@@ -15,6 +15,7 @@
  */
 package io.zell.zdb.journal;
 
+import io.zell.zdb.log.LogOptions;
 import io.zell.zdb.log.LogStatus;
 import java.nio.file.Path;
 import java.util.concurrent.Callable;
@@ -27,7 +28,15 @@ import picocli.CommandLine.Spec;
 @Command(
     name = "log",
     mixinStandardHelpOptions = true,
-    subcommands = {LogSearchCommand.class, LogPrintCommand.class},
+    subcommands = {
+      LogSearchCommand.class,
+      LogPrintCommand.class,
+      LogVerifyCommand.class,
+      LogSegmentsCommand.class,
+      LogCheckCommand.class,
+      LogQueryCommand.class,
+      LogIndexCommand.class
+    },
     description = "Allows to inspect the log via sub commands")
 public class LogCommand implements Callable<Integer> {
 
@@ -41,14 +50,98 @@ public class LogCommand implements Callable<Integer> {
       scope = ScopeType.INHERIT)
   private Path partitionPath;
 
+  @Option(
+      names = {"--maxMappedSegments"},
+      description =
+          "The maximum number of log segments which are mapped into memory at the same time, defaults to ${DEFAULT-VALUE}.",
+      defaultValue = LogOptions.DEFAULT_MAX_MAPPED_SEGMENTS + "",
+      scope = ScopeType.INHERIT)
+  private int maxMappedSegments;
+
+  @Option(
+      names = {"--indexCacheDir"},
+      paramLabel = "CACHE_PATH",
+      description =
+          "The directory in which the log index is persisted, to speed up repeated searches on the same log, defaults to ${DEFAULT-VALUE}.",
+      defaultValue = "${sys:user.home}/.cache/zdb",
+      scope = ScopeType.INHERIT)
+  private Path indexCacheDirectory;
+
+  @Option(
+      names = {"--verify"},
+      description =
+          "Which records are verified against their checksum when they are read, defaults to ${DEFAULT-VALUE}."
+              + " Sampled verifies the first record of each segment and every "
+              + ChecksumVerification.SAMPLE_INTERVAL
+              + "th record. Possible values: [ ${COMPLETION-CANDIDATES} ]",
+      defaultValue = "FULL",
+      scope = ScopeType.INHERIT)
+  private ChecksumVerification checksumVerification;
+
+  @Option(
+      names = {"--prefetch"},
+      description =
+          "The number of log segments which are read ahead of the currently read segment, to overlap the disk I/O with decoding, defaults to ${DEFAULT-VALUE}. 0 disables the prefetching. Only the next few MB after the read position and the start of the following segments are read.",
+      defaultValue = LogOptions.DEFAULT_PREFETCH_DISTANCE + "",
+      scope = ScopeType.INHERIT)
+  private int prefetchDistance;
+
+  @Option(
+      names = {"--directIo"},
+      description =
+          "Streams the log with direct I/O instead of mapping it, such that reading the log doesn't evict the page cache of other processes on the same host, e.g. of a broker.",
+      scope = ScopeType.INHERIT)
+  private boolean directIo;
+
+  @Option(
+      names = {"--indexDensity"},
+      description =
+          "Every how many log entries the index stores a position, defaults to ${DEFAULT-VALUE}. A lower density makes seeks faster, but uses more memory.",
+      defaultValue = LogOptions.DEFAULT_INDEX_DENSITY + "",
+      scope = ScopeType.INHERIT)
+  private int indexDensity;
+
   @Command(name = "status", description = "Print's the status of the log")
   public int status() {
     System.out.println();
-    final var status = new LogStatus(partitionPath).status();
-    System.out.println(status);
+    try (final var logStatus = new LogStatus(partitionPath, logOptions(spec))) {
+      System.out.println(logStatus.status());
+    }
     return 0;
   }
 
+  /**
+   * Collects the log options, which are inherited by all log sub commands.
+   *
+   * @param spec the spec of the current (sub) command
+   * @return the log options to read the log with
+   */
+  static LogOptions logOptions(final CommandSpec spec) {
+    final int maxMappedSegments = spec.findOption("--maxMappedSegments").getValue();
+    final ChecksumVerification checksumVerification = spec.findOption("--verify").getValue();
+    final int prefetchDistance = spec.findOption("--prefetch").getValue();
+    final boolean directIo = spec.findOption("--directIo").getValue();
+    final int indexDensity = spec.findOption("--indexDensity").getValue();
+    return new LogOptions()
+        .withMaxMappedSegments(maxMappedSegments)
+        .withChecksumVerification(checksumVerification)
+        .withPrefetchDistance(prefetchDistance)
+        .withDirectIo(directIo)
+        .withIndexDensity(indexDensity);
+  }
+
+  /**
+   * Same as {@link #logOptions(CommandSpec)}, but the log index is persisted in the configured
+   * cache directory. Useful for commands which seek in the log.
+   *
+   * @param spec the spec of the current (sub) command
+   * @return the log options to read the log with
+   */
+  static LogOptions logOptionsWithIndexCache(final CommandSpec spec) {
+    final Path indexCacheDirectory = spec.findOption("--indexCacheDir").getValue();
+    return logOptions(spec).withIndexCacheDirectory(indexCacheDirectory);
+  }
+
   @Override
   public Integer call() {
     spec.commandLine().usage(System.out);
@@ -0,0 +1,59 @@
+/*
+ * Copyright © 2021 Christopher Kujawa (zelldon91@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.zell.zdb.journal;
+
+import io.zell.zdb.log.index.MetadataIndex;
+import io.zell.zdb.log.index.MetadataIndexWriter;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Spec;
+
+@Command(
+    name = "index",
+    description =
+        "Manages the metadata index of the log, which answers filters and queries on the metadata without decoding the log")
+public class LogIndexCommand implements Callable<Integer> {
+
+  @Spec private CommandSpec spec;
+
+  @Command(
+      name = "build",
+      description =
+          "Builds the metadata index of the log in the index cache directory, which replaces a previous one."
+              + " The index is outdated as soon as the log changes.")
+  public int build() {
+    final Path partitionPath = spec.findOption("-p").getValue();
+    final Path cacheDirectory = spec.findOption("--indexCacheDir").getValue();
+
+    final long start = System.nanoTime();
+    final long recordCount =
+        MetadataIndexWriter.build(partitionPath, LogCommand.logOptions(spec), cacheDirectory);
+    final var duration = Duration.ofNanos(System.nanoTime() - start);
+    System.out.printf(
+        "Indexed %d records in %d ms into %s%n",
+        recordCount, duration.toMillis(), MetadataIndex.file(partitionPath, cacheDirectory));
+    return 0;
+  }
+
+  @Override
+  public Integer call() {
+    spec.commandLine().usage(System.out);
+    return 0;
+  }
+}
@@ -15,10 +15,18 @@
  */
 package io.zell.zdb.journal;
 
+import io.zell.zdb.log.JsonRecordWriter;
 import io.zell.zdb.log.LogContentReader;
+import io.zell.zdb.log.LogFilter;
 import io.zell.zdb.log.LogWriter;
+import io.zell.zdb.log.MergedLogReader;
+import io.zell.zdb.log.RecordFilter;
+import io.zell.zdb.log.index.MetadataIndex;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.concurrent.Callable;
+import org.agrona.collections.LongHashSet;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.Model.CommandSpec;
 import picocli.CommandLine.Option;
@@ -27,6 +35,8 @@ import picocli.CommandLine.Spec;
 @Command(name = "print", description = "Print's the complete log to standard out")
 public class LogPrintCommand implements Callable<Integer> {
 
+  private static final Duration FOLLOW_POLL_INTERVAL = Duration.ofMillis(500);
+
   public enum Format {
     JSON,
     DOT,
@@ -51,6 +61,16 @@ public class LogPrintCommand implements Callable<Integer> {
       defaultValue = "0")
   private long fromPosition;
 
+  @Option(
+      names = {"--fromTimestamp"},
+      description =
+          "Option to skip the begin of log and only print from the given timestamp (in milliseconds since epoch)."
+              + " Note this is on best effort basis, since engine records are written in batches."
+              + " There might be some more records printed before the given timestamp (part of the written batch)."
+              + " If set, the --fromPosition is ignored.",
+      defaultValue = "0")
+  private long fromTimestamp;
+
   @Option(
       names = {"--to", "--toPosition"},
       description =
@@ -62,56 +82,211 @@ public class LogPrintCommand implements Callable<Integer> {
 
   @Option(
       names = {"--instanceKey"},
+      split = ",",
       description =
           "Filter to print only records which are part the specified process instance."
+              + " Can be repeated, or given as comma separated list, to print the records of several process instances."
               + " Note this is on best effort basis, since engine records are written in batches."
               + " There might be some records printed which do not have an process instance key assigned."
-              + " RaftRecords are completely skipped, if this filter is applied.",
+              + " RaftRecords are completely skipped, if this filter is applied.")
+  private long[] instanceKeys = {};
+
+  @Option(
+      names = {"--where"},
+      description =
+          "Filter to print only records which match the given expression on their metadata, e.g. \"valueType=JOB and intent=TIMED_OUT\"."
+              + " Conditions on recordType, valueType, intent, rejectionType, position, sourceRecordPosition, timestamp and key can be joined by 'and'."
+              + " Records which don't match are skipped before their value is decoded."
+              + " If the metadata index of the log was built via 'zdb log index build', this filter and --instanceKey are applied on the index.")
+  private String where;
+
+  @Option(
+      names = {"--threads"},
+      description =
+          "The number of threads which decode the log entries in parallel, while another thread reads them ahead, defaults to ${DEFAULT-VALUE}."
+              + " The records are printed in the same order. Not used with --follow.",
+      defaultValue = "1")
+  private int threads;
+
+  private LogFilter logFilter;
+
+  @Option(
+      names = {"--tail"},
+      description =
+          "Option to print only the last given number of log entries. If set, --fromPosition and --fromTimestamp are ignored.",
       defaultValue = "0")
-  private long instanceKey;
+  private long tail;
+
+  @Option(
+      names = {"--follow"},
+      description =
+          "Keeps printing new records as they are appended to the log, until the command is interrupted or the --to position is reached."
+              + " Combine it with --tail to start at the end of the log. Records are printed as table, or as one JSON object per line.")
+  private boolean follow;
+
+  @Option(
+      names = {"--all-partitions"},
+      description =
+          "Prints the records of all partitions, merged by their timestamp. The path has to point to the data directory of a broker."
+              + " The other options apply to every partition.")
+  private boolean allPartitions;
 
   @Override
   public Integer call() {
     final Path partitionPath = spec.findOption("-p").getValue();
-    final var logContentReader = new LogContentReader(partitionPath);
+    RecordFilter recordFilter = null;
+    if (where != null) {
+      try {
+        recordFilter = RecordFilter.parse(where);
+      } catch (final IllegalArgumentException e) {
+        System.err.println("Invalid --where expression: " + e.getMessage());
+        return 1;
+      }
+    }
+    logFilter =
+        new LogFilter(
+            fromPosition, fromTimestamp, toPosition, tail, instanceKeySet(), recordFilter);
+
+    if (allPartitions) {
+      return printAllPartitions(partitionPath);
+    }
+
+    // only when seeking to a position, the persisted index is worth it
+    final var seeksToPosition = tail == 0 && fromPosition > 0 && fromTimestamp == 0;
+    var logOptions =
+        seeksToPosition ? LogCommand.logOptionsWithIndexCache(spec) : LogCommand.logOptions(spec);
+
+    if (follow) {
+      if (format == Format.DOT) {
+        System.err.println("The dot format can't be followed, since the graph is printed at once.");
+        return 1;
+      }
+      // a stream which reached the end doesn't see the entries appended afterwards
+      logOptions = logOptions.withDirectIo(false);
+    }
+
+    try (final var logContentReader = new LogContentReader(partitionPath, logOptions)) {
+      if (follow) {
+        follow(logContentReader);
+        return 0;
+      }
 
-    switch (format) {
-      case DOT -> {
-        // for backwards compatibility
-        final var logContent = logContentReader.readAll();
-        System.out.println(logContent.asDotFile());
+      switch (format) {
+        case DOT -> {
+          // for backwards compatibility
+          final var logContent = logContentReader.readAll();
+          System.out.println(logContent.asDotFile());
+        }
+        case TABLE -> printTable(partitionPath, logContentReader);
+        default -> printJson(partitionPath, logContentReader);
       }
-      case TABLE -> printTable(logContentReader);
-      default -> printJson(logContentReader);
     }
     return 0;
   }
 
-  private void printTable(LogContentReader logContentReader) {
-    logContentReader.seekToPosition(fromPosition);
-    logContentReader.limitToPosition(toPosition);
-    if (instanceKey > 0) {
-      logContentReader.filterForProcessInstance(instanceKey);
-    }
+  private void printTable(final Path partitionPath, final LogContentReader logContentReader) {
+    prepare(partitionPath, logContentReader);
 
     new LogWriter(System.out, logContentReader).writeAsTable();
   }
 
-  private void printJson(LogContentReader logContentReader) {
-    System.out.println("[");
-    logContentReader.seekToPosition(fromPosition);
-    logContentReader.limitToPosition(toPosition);
-    if (instanceKey > 0) {
-      logContentReader.filterForProcessInstance(instanceKey);
+  private void follow(final LogContentReader logContentReader) {
+    logFilter.applyTo(logContentReader);
+
+    final var logWriter = new LogWriter(System.out, logContentReader);
+    if (format == Format.TABLE) {
+      logWriter.followAsTable(FOLLOW_POLL_INTERVAL);
+    } else {
+      logWriter.followAsJsonLines(FOLLOW_POLL_INTERVAL);
+    }
+  }
+
+  private int printAllPartitions(final Path dataPath) {
+    if (follow || format == Format.DOT) {
+      System.err.println("The records of all partitions can only be printed as json or table.");
+      return 1;
     }
 
-    var separator = "";
-    while (logContentReader.hasNext()) {
-      final var record = logContentReader.next();
+    final var logOptions = LogCommand.logOptions(spec);
+    try (final var mergedLogReader =
+        new MergedLogReader(dataPath, logOptions, this::configurePartition)) {
+      if (format == Format.TABLE) {
+        System.out.println("Partition " + LogWriter.COLUMN_TITLE);
+        while (mergedLogReader.hasNext()) {
+          System.out.println(mergedLogReader.next().asColumnString());
+        }
+      } else {
+        final var jsonWriter = new JsonRecordWriter(System.out);
+        jsonWriter.writeAscii("[" + System.lineSeparator());
+        var separator = "";
+        while (mergedLogReader.hasNext()) {
+          jsonWriter.writeAscii(separator);
+          jsonWriter.write(mergedLogReader.next());
+          separator = ",";
+        }
+        jsonWriter.writeAscii("]" + System.lineSeparator());
+        jsonWriter.flush();
+      }
+    }
+    return 0;
+  }
+
+  private void configurePartition(final LogContentReader logContentReader) {
+    logFilter.applyTo(logContentReader);
+    if (threads > 1) {
+      logContentReader.decodeInParallel(threads);
+    }
+  }
 
-      System.out.print(separator + record);
-      separator = ",";
+  private void prepare(final Path partitionPath, final LogContentReader logContentReader) {
+    if (!filterWithIndex(partitionPath, logContentReader)) {
+      logFilter.applyTo(logContentReader);
     }
-    System.out.println("]");
+    if (threads > 1) {
+      logContentReader.decodeInParallel(threads);
+    }
+  }
+
+  private LongHashSet instanceKeySet() {
+    final var keys = new LongHashSet();
+    for (final long instanceKey : instanceKeys) {
+      if (instanceKey > 0) {
+        keys.add(instanceKey);
+      }
+    }
+    return keys;
+  }
+
+  /**
+   * Applies the bounds and filters on the metadata index of the log, if there is an up-to-date one.
+   * Then only the matching records need to be read from the log.
+   *
+   * @return false if the log has to be filtered while it is read
+   */
+  private boolean filterWithIndex(
+      final Path partitionPath, final LogContentReader logContentReader) {
+    if (!logFilter.getFiltersRecords()) {
+      return false;
+    }
+
+    final Path cacheDirectory = spec.findOption("--indexCacheDir").getValue();
+    try (final var index = MetadataIndex.open(partitionPath, cacheDirectory)) {
+      if (index == null) {
+        if (Files.isRegularFile(MetadataIndex.file(partitionPath, cacheDirectory))) {
+          System.err.println(
+              "The metadata index is outdated, will filter the log while reading it."
+                  + " Rebuild the index via 'zdb log index build'.");
+        }
+        return false;
+      }
+      logFilter.applyTo(logContentReader, index);
+      return true;
+    }
+  }
+
+  private void printJson(final Path partitionPath, final LogContentReader logContentReader) {
+    prepare(partitionPath, logContentReader);
+
+    new LogWriter(System.out, logContentReader).writeAsJson();
   }
 }
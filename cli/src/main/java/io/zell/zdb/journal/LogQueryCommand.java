@@ -0,0 +1,101 @@
+/*
+ * Copyright © 2021 Christopher Kujawa (zelldon91@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.zell.zdb.journal;
+
+import io.zell.zdb.log.LogContentReader;
+import io.zell.zdb.log.index.MetadataIndex;
+import io.zell.zdb.log.query.LogQuery;
+import io.zell.zdb.log.query.LogQueryParser;
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Parameters;
+import picocli.CommandLine.Spec;
+
+@Command(
+    name = "query",
+    description =
+        "Queries the records of the log with SQL, e.g. \"SELECT valueType, intent, count(*) FROM records GROUP BY 1, 2\"")
+public class LogQueryCommand implements Callable<Integer> {
+
+  @Spec private CommandSpec spec;
+
+  @Parameters(
+      paramLabel = "SQL",
+      description =
+          "The query on the table 'records', which supports SELECT, WHERE with conditions joined by AND, GROUP BY, ORDER BY and LIMIT."
+              + " The columns are index, term, position, sourceRecordPosition, timestamp, key, recordType, valueType, intent, rejectionType,"
+              + " processInstanceKey, processDefinitionKey, bpmnElementType and elementId."
+              + " The aggregations are count, min, max and sum.")
+  private String sql;
+
+  @Override
+  public Integer call() {
+    final Path partitionPath = spec.findOption("-p").getValue();
+    final LogQuery query;
+    try {
+      query = LogQueryParser.parse(sql);
+    } catch (final IllegalArgumentException e) {
+      System.err.println("Invalid query: " + e.getMessage());
+      return 1;
+    }
+
+    final var out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out)));
+    final Consumer<List<?>> printRow =
+        row -> out.println(row.stream().map(String::valueOf).collect(Collectors.joining(" ")));
+    try {
+      out.println(String.join(" ", query.labels()));
+      if (!executeOnIndex(partitionPath, query, printRow)) {
+        try (final var logContentReader =
+            new LogContentReader(partitionPath, LogCommand.logOptions(spec))) {
+          query.execute(logContentReader, printRow::accept);
+        }
+      }
+    } finally {
+      out.flush();
+    }
+    return 0;
+  }
+
+  /**
+   * Executes the query on the metadata index of the log, if there is an up-to-date one and the
+   * query only refers to indexed columns.
+   *
+   * @return false if the query has to be executed on the log
+   */
+  private boolean executeOnIndex(
+      final Path partitionPath, final LogQuery query, final Consumer<List<?>> printRow) {
+    if (!query.canUseIndex()) {
+      return false;
+    }
+
+    final Path cacheDirectory = spec.findOption("--indexCacheDir").getValue();
+    try (final var index = MetadataIndex.open(partitionPath, cacheDirectory)) {
+      if (index == null) {
+        return false;
+      }
+      query.execute(index, printRow::accept);
+      return true;
+    }
+  }
+}
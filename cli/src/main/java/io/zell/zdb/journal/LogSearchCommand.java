@@ -36,13 +36,16 @@ public class LogSearchCommand implements Callable<Integer> {
   public Integer call() {
     final Path logPath = spec.findOption("-p").getValue();
 
+    final var logOptions = LogCommand.logOptionsWithIndexCache(spec);
     final String result;
-    if (exclusive.index == 0) {
-      final var record = new LogSearch(logPath).searchPosition(exclusive.position);
-      result = record == null ? "{}" : record.toString();
-    } else {
-      final var logContent = new LogSearch(logPath).searchIndex(exclusive.index);
-      result = logContent == null ? "{}" : logContent.toString();
+    try (final var logSearch = new LogSearch(logPath, logOptions)) {
+      if (exclusive.index == 0) {
+        final var record = logSearch.searchPosition(exclusive.position);
+        result = record == null ? "{}" : record.toString();
+      } else {
+        final var logContent = logSearch.searchIndex(exclusive.index);
+        result = logContent == null ? "{}" : logContent.toString();
+      }
     }
     System.out.println(result);
     return 0;
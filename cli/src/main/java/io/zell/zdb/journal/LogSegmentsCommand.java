@@ -0,0 +1,94 @@
+/*
+ * Copyright © 2021 Christopher Kujawa (zelldon91@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.zell.zdb.journal;
+
+import io.zell.zdb.log.LogSegmentDetails;
+import io.zell.zdb.log.LogSegments;
+import java.nio.file.Path;
+import java.util.concurrent.Callable;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Spec;
+
+@Command(
+    name = "segments",
+    description =
+        "Print's the descriptors of all log segments, without reading the records. If the path points to a data"
+            + " directory, the segments of all its partitions are printed.")
+public class LogSegmentsCommand implements Callable<Integer> {
+
+  private static final String ROW_FORMAT = "%-9s %-40s %-9s %8s %12s %12s %12s %7s %12s %6s%n";
+
+  @Spec private CommandSpec spec;
+
+  @Override
+  public Integer call() {
+    final Path path = spec.findOption("-p").getValue();
+    final var segments = new LogSegments(path).segments();
+
+    System.out.printf(
+        ROW_FORMAT,
+        "Partition",
+        "File",
+        "State",
+        "Id",
+        "FirstIndex",
+        "LastIndex",
+        "LastPosition",
+        "Version",
+        "FileSize",
+        "Fill");
+    for (final LogSegmentDetails segment : segments) {
+      printSegment(segment);
+    }
+    return 0;
+  }
+
+  private static void printSegment(final LogSegmentDetails segment) {
+    switch (segment.getState()) {
+      case VALID ->
+          System.out.printf(
+              ROW_FORMAT,
+              segment.getPartition(),
+              segment.getFileName(),
+              segment.getState(),
+              segment.getId(),
+              segment.getFirstIndex(),
+              segment.getLastIndex(),
+              segment.getLastPosition(),
+              segment.getVersion(),
+              segment.getFileSize(),
+              "%.1f%%".formatted(segment.getFillRatio() * 100));
+      case EMPTY, CORRUPTED -> {
+        System.out.printf(
+            ROW_FORMAT,
+            segment.getPartition(),
+            segment.getFileName(),
+            segment.getState(),
+            "-",
+            "-",
+            "-",
+            "-",
+            "-",
+            segment.getFileSize(),
+            "-");
+        if (segment.getReason() != null) {
+          System.out.printf("          %s%n", segment.getReason());
+        }
+      }
+    }
+  }
+}
@@ -108,13 +108,15 @@ public class LogViewController implements Initializable {
     if (this.dataPath.getText() == null || this.dataPath.getText().isBlank()) {
       return;
     }
-    final var logContentReader = new LogContentReader(new File(this.dataPath.getText()).toPath());
-
-    consumeValueFromTextField(this.instanceKey, logContentReader::filterForProcessInstance);
-    consumeValueFromTextField(this.fromPosition, logContentReader::seekToPosition);
-    consumeValueFromTextField(this.toPosition, logContentReader::limitToPosition);
-
-    fillTableWithData(logContentReader);
+    // the log is read again on every search, release its mapped segments right away
+    try (final var logContentReader =
+        new LogContentReader(new File(this.dataPath.getText()).toPath())) {
+      consumeValueFromTextField(this.instanceKey, logContentReader::filterForProcessInstance);
+      consumeValueFromTextField(this.fromPosition, logContentReader::seekToPosition);
+      consumeValueFromTextField(this.toPosition, logContentReader::limitToPosition);
+
+      fillTableWithData(logContentReader);
+    }
   }
 
   private void consumeValueFromTextField(final TextField textField, final Consumer<Long> consumer) {